@@ -0,0 +1,81 @@
+package com.sistemasdistribuidos.thread.image.processing.benchmarks;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.WritableRaster;
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * Generates the images used by the benchmarks, so no input file is needed.
+ * Images are filled with seeded random noise, which defeats any shortcut a
+ * kernel could take on uniform areas and keeps runs reproducible.
+ *
+ * @author mariovillacortagarcia
+ */
+public final class BenchmarkImages {
+
+    private static final long SEED = 20250101L;
+
+    /**
+     * Utility class, not instantiable.
+     */
+    private BenchmarkImages() {
+    }
+
+    /**
+     * Creates a square noise image.
+     *
+     * @param type the image type name, such as "TYPE_INT_RGB" or "INT_RGB"
+     * @param size the width and height in pixels
+     * @return the generated image
+     * @throws IllegalArgumentException if the type name is unknown
+     */
+    public static BufferedImage generate(String type, int size) {
+        return generate(parseType(type), size, size);
+    }
+
+    /**
+     * Creates a noise image.
+     *
+     * @param type   the BufferedImage type constant
+     * @param width  the width in pixels
+     * @param height the height in pixels
+     * @return the generated image
+     */
+    public static BufferedImage generate(int type, int width, int height) {
+        BufferedImage image = new BufferedImage(width, height, type);
+        WritableRaster raster = image.getRaster();
+        Random random = new Random(SEED);
+        final int numBands = raster.getNumBands();
+        final int[] row = new int[width * numBands];
+
+        for (int y = 0; y < height; y++) {
+            for (int i = 0; i < row.length; i++) {
+                row[i] = random.nextInt(1 << raster.getSampleModel().getSampleSize(i % numBands));
+            }
+            raster.setPixels(0, y, width, 1, row);
+        }
+        return image;
+    }
+
+    /**
+     * Converts an image type name to its BufferedImage constant.
+     *
+     * @param type the type name, with or without the "TYPE_" prefix
+     * @return the BufferedImage type constant
+     * @throws IllegalArgumentException if the type name is unknown
+     */
+    public static int parseType(String type) {
+        String name = type.toUpperCase(Locale.ROOT);
+        return switch (name.startsWith("TYPE_") ? name.substring("TYPE_".length()) : name) {
+            case "INT_RGB" -> BufferedImage.TYPE_INT_RGB;
+            case "INT_ARGB" -> BufferedImage.TYPE_INT_ARGB;
+            case "INT_BGR" -> BufferedImage.TYPE_INT_BGR;
+            case "3BYTE_BGR" -> BufferedImage.TYPE_3BYTE_BGR;
+            case "4BYTE_ABGR" -> BufferedImage.TYPE_4BYTE_ABGR;
+            case "BYTE_GRAY" -> BufferedImage.TYPE_BYTE_GRAY;
+            case "USHORT_565_RGB" -> BufferedImage.TYPE_USHORT_565_RGB;
+            default -> throw new IllegalArgumentException("Unknown image type: " + type);
+        };
+    }
+}
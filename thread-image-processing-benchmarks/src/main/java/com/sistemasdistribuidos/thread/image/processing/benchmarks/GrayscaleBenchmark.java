@@ -0,0 +1,100 @@
+package com.sistemasdistribuidos.thread.image.processing.benchmarks;
+
+import com.sistemasdistribuidos.thread.image.processing.ForkJoinTileScheduler;
+import com.sistemasdistribuidos.thread.image.processing.ImageProcessor;
+import com.sistemasdistribuidos.thread.image.processing.ThreadImageProcessing;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the grayscale conversion of a whole image for every combination of
+ * image type, image size, thread count and partitioning strategy.
+ *
+ * Partitioning strategies: "fixed" is the baseline grid with one thread per
+ * area, "forkjoin-N" is the work-stealing scheduler with N pixel tiles.
+ *
+ * @author mariovillacortagarcia
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"--add-modules", "jdk.incubator.vector"})
+public class GrayscaleBenchmark {
+
+    private static final String FIXED = "fixed";
+    private static final String FORK_JOIN_PREFIX = "forkjoin-";
+
+    @Param({"INT_RGB", "INT_ARGB", "3BYTE_BGR", "4BYTE_ABGR", "BYTE_GRAY"})
+    public String imageType;
+
+    @Param({"512", "2048", "4096"})
+    public int size;
+
+    @Param({"1", "4", "8"})
+    public int threads;
+
+    @Param({FIXED, FORK_JOIN_PREFIX + "64", FORK_JOIN_PREFIX + "256"})
+    public String partitioning;
+
+    private BufferedImage image;
+    private List<Rectangle> grid;
+    private ForkJoinTileScheduler scheduler;
+
+    /**
+     * Generates the image and prepares the partitioning strategy.
+     */
+    @Setup(Level.Trial)
+    public void setUp() {
+        image = BenchmarkImages.generate(imageType, size);
+        if (partitioning.equals(FIXED)) {
+            grid = ThreadImageProcessing.divideImage(size, size, threads);
+        } else {
+            int tileSize = Integer.parseInt(partitioning.substring(FORK_JOIN_PREFIX.length()));
+            scheduler = new ForkJoinTileScheduler(threads, tileSize);
+        }
+    }
+
+    /**
+     * Shuts down the scheduler, if any.
+     */
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        if (scheduler != null) {
+            scheduler.close();
+        }
+    }
+
+    /**
+     * Converts the whole image with the selected strategy. The conversion is
+     * idempotent, so the same image is reused across invocations.
+     *
+     * @return the processed image, so the work is not eliminated
+     * @throws InterruptedException if a worker thread is interrupted
+     */
+    @Benchmark
+    public BufferedImage grayscale() throws InterruptedException {
+        if (scheduler != null) {
+            scheduler.process(image, area -> new ImageProcessor(image, area));
+        } else {
+            ThreadImageProcessing.runOnThreads(grid, area -> new ImageProcessor(image, area));
+        }
+        return image;
+    }
+}
@@ -0,0 +1,156 @@
+package com.sistemasdistribuidos.thread.image.processing.benchmarks;
+
+import com.sistemasdistribuidos.thread.image.processing.ConvolutionKernel;
+import com.sistemasdistribuidos.thread.image.processing.ConvolutionProcessor;
+import com.sistemasdistribuidos.thread.image.processing.FilterChain;
+import com.sistemasdistribuidos.thread.image.processing.FilterChainProcessor;
+import com.sistemasdistribuidos.thread.image.processing.ImageProcessor;
+import com.sistemasdistribuidos.thread.image.processing.LuminanceWeights;
+import com.sistemasdistribuidos.thread.image.processing.PixelFilter;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the single-threaded cost of each processing kernel over a whole
+ * image, so kernels can be compared independently of the scheduling.
+ *
+ * @author mariovillacortagarcia
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"--add-modules", "jdk.incubator.vector"})
+public class KernelBenchmark {
+
+    private static final String FILTER_CHAIN = "brightness=20,contrast=1.2,gamma=2.2,invert,swap=BGR";
+
+    @Param({"INT_RGB", "INT_ARGB", "3BYTE_BGR", "4BYTE_ABGR", "BYTE_GRAY"})
+    public String imageType;
+
+    @Param({"1024"})
+    public int size;
+
+    private BufferedImage source;
+    private BufferedImage image;
+    private BufferedImage destination;
+    private Rectangle bounds;
+    private PixelFilter filter;
+
+    /**
+     * Generates the images and prepares the kernels.
+     */
+    @Setup(Level.Trial)
+    public void setUp() {
+        source = BenchmarkImages.generate(imageType, size);
+        image = BenchmarkImages.generate(imageType, size);
+        destination = BenchmarkImages.generate(imageType, size);
+        bounds = new Rectangle(0, 0, size, size);
+        filter = FilterChain.parse(FILTER_CHAIN).fuse();
+    }
+
+    /**
+     * Restores the noise of the processed image before every invocation, so
+     * in-place kernels always convert noise instead of the output of the
+     * previous call, which after a few calls is gray or saturated. The copy is
+     * not measured, but an invocation level setup adds some timing overhead
+     * to every call and leaves the image in the cache, which is acceptable
+     * only because each call takes milliseconds.
+     */
+    @Setup(Level.Invocation)
+    public void resetImage() {
+        image.getRaster().setDataElements(0, 0, source.getRaster());
+    }
+
+    /**
+     * Grayscale conversion with {@link ImageProcessor}, averaging the bands.
+     *
+     * @return the processed image
+     */
+    @Benchmark
+    public BufferedImage grayscale() {
+        new ImageProcessor(image, bounds).run();
+        return image;
+    }
+
+    /**
+     * Fixed-point Rec.601 luminance conversion.
+     *
+     * @return the processed image
+     */
+    @Benchmark
+    public BufferedImage luminanceRec601() {
+        new ImageProcessor(image, bounds, LuminanceWeights.REC_601).run();
+        return image;
+    }
+
+    /**
+     * Fixed-point Rec.709 luminance conversion.
+     *
+     * @return the processed image
+     */
+    @Benchmark
+    public BufferedImage luminanceRec709() {
+        new ImageProcessor(image, bounds, LuminanceWeights.REC_709).run();
+        return image;
+    }
+
+    /**
+     * Fused five-step filter chain.
+     *
+     * @return the processed image
+     */
+    @Benchmark
+    public BufferedImage filterChain() {
+        new FilterChainProcessor(image, bounds, filter).run();
+        return image;
+    }
+
+    /**
+     * Separable 7x7 gaussian blur.
+     *
+     * @return the destination image
+     */
+    @Benchmark
+    public BufferedImage gaussianBlur() {
+        new ConvolutionProcessor(source, destination, bounds, ConvolutionKernel.gaussianBlur(1)).run();
+        return destination;
+    }
+
+    /**
+     * Non-separable 3x3 sharpen.
+     *
+     * @return the destination image
+     */
+    @Benchmark
+    public BufferedImage sharpen() {
+        new ConvolutionProcessor(source, destination, bounds, ConvolutionKernel.sharpen()).run();
+        return destination;
+    }
+
+    /**
+     * Sobel edge detection, two kernels combined as magnitude.
+     *
+     * @return the destination image
+     */
+    @Benchmark
+    public BufferedImage sobel() {
+        new ConvolutionProcessor(source, destination, bounds,
+                ConvolutionKernel.sobelX(), ConvolutionKernel.sobelY()).run();
+        return destination;
+    }
+}
@@ -0,0 +1,118 @@
+package com.sistemasdistribuidos.thread.image.processing.benchmarks;
+
+import com.sistemasdistribuidos.thread.image.processing.BufferPool;
+import com.sistemasdistribuidos.thread.image.processing.ConvolutionKernel;
+import com.sistemasdistribuidos.thread.image.processing.ConvolutionProcessor;
+import com.sistemasdistribuidos.thread.image.processing.ImageProcessor;
+import com.sistemasdistribuidos.thread.image.processing.PartitionStrategy;
+import com.sistemasdistribuidos.thread.image.processing.ThreadImageProcessing;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures every {@link PartitionStrategy} with a fixed number of threads
+ * taking the areas in order, for every combination of image type, image
+ * size, area size and kernel.
+ *
+ * Kernels: "grayscale" converts the image in place and reads each pixel
+ * once, "gaussian" is a separable blur and "sobel" two 3x3 kernels, both
+ * reading a halo of rows around every area and writing another image.
+ *
+ * @author mariovillacortagarcia
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"--add-modules", "jdk.incubator.vector"})
+public class PartitionBenchmark {
+
+    private static final String GRAYSCALE = "grayscale";
+    private static final String GAUSSIAN = "gaussian";
+    private static final String SOBEL = "sobel";
+
+    /**
+     * Standard deviation of the gaussian kernel, which gives a 13x13 window.
+     */
+    private static final double GAUSSIAN_SIGMA = 2;
+
+    @Param({"INT_RGB", "3BYTE_BGR", "BYTE_GRAY"})
+    public String imageType;
+
+    @Param({"2048", "4096"})
+    public int size;
+
+    @Param({"4"})
+    public int threads;
+
+    @Param({"rows", "columns", "tiles", "morton", "hilbert"})
+    public String strategy;
+
+    @Param({"64", "256"})
+    public int partitionSize;
+
+    @Param({GRAYSCALE, GAUSSIAN, SOBEL})
+    public String kernel;
+
+    private BufferedImage source;
+    private BufferedImage destination;
+    private List<Rectangle> areas;
+    private Function<Rectangle, Runnable> processorFactory;
+
+    /**
+     * Generates the images, cuts them with the selected strategy and prepares
+     * the kernel.
+     */
+    @Setup(Level.Trial)
+    public void setUp() {
+        source = BenchmarkImages.generate(imageType, size);
+        destination = BenchmarkImages.generate(imageType, size);
+        PartitionStrategy partition = PartitionStrategy.fromValue(strategy);
+        if (partition == null) {
+            throw new IllegalArgumentException("Unknown partition strategy: " + strategy);
+        }
+        areas = partition.partition(size, size, partitionSize);
+
+        // Every area borrows up to four float arrays of the same length
+        final BufferPool pool = new BufferPool(4 * threads);
+        final ConvolutionKernel[] kernels = switch (kernel) {
+            case GRAYSCALE -> null;
+            case GAUSSIAN -> new ConvolutionKernel[]{ConvolutionKernel.gaussianBlur(GAUSSIAN_SIGMA)};
+            case SOBEL -> new ConvolutionKernel[]{ConvolutionKernel.sobelX(), ConvolutionKernel.sobelY()};
+            default -> throw new IllegalArgumentException("Unknown kernel: " + kernel);
+        };
+        processorFactory = kernels == null
+                ? area -> new ImageProcessor(source, area)
+                : area -> new ConvolutionProcessor(source, destination, area, pool, kernels);
+    }
+
+    /**
+     * Processes the whole image. The grayscale conversion is idempotent and
+     * the convolutions write another image, so the same images are reused
+     * across invocations.
+     *
+     * @return the written image, so the work is not eliminated
+     * @throws InterruptedException if a worker thread is interrupted
+     */
+    @Benchmark
+    public BufferedImage process() throws InterruptedException {
+        ThreadImageProcessing.runOnThreads(areas, threads, processorFactory);
+        return kernel.equals(GRAYSCALE) ? source : destination;
+    }
+}
@@ -0,0 +1,103 @@
+package com.sistemasdistribuidos.thread.image.processing.benchmarks;
+
+import com.sistemasdistribuidos.thread.image.processing.ForkJoinTileScheduler;
+import com.sistemasdistribuidos.thread.image.processing.ResampleFilter;
+import com.sistemasdistribuidos.thread.image.processing.Resampler;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures halving an image with the {@link Resampler} for every filter and
+ * thread count, against Graphics2D scaling with bicubic interpolation.
+ *
+ * @author mariovillacortagarcia
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"--add-modules", "jdk.incubator.vector"})
+public class ResizeBenchmark {
+
+    private static final int STRIP_HEIGHT = 32;
+
+    @Param({"INT_RGB", "3BYTE_BGR"})
+    public String imageType;
+
+    @Param({"2048"})
+    public int size;
+
+    @Param({"1", "4", "8"})
+    public int threads;
+
+    @Param({"bilinear", "bicubic", "lanczos"})
+    public String filter;
+
+    private BufferedImage image;
+    private ForkJoinTileScheduler scheduler;
+    private Resampler resampler;
+
+    /**
+     * Generates the image and prepares the resampler.
+     */
+    @Setup(Level.Trial)
+    public void setUp() {
+        image = BenchmarkImages.generate(imageType, size);
+        scheduler = new ForkJoinTileScheduler(threads, Integer.MAX_VALUE, STRIP_HEIGHT);
+        resampler = new Resampler(scheduler, ResampleFilter.fromValue(filter));
+    }
+
+    /**
+     * Shuts down the scheduler.
+     */
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        scheduler.close();
+    }
+
+    /**
+     * Halves the image with the separable parallel resampler.
+     *
+     * @return the resized image
+     */
+    @Benchmark
+    public BufferedImage resampler() {
+        return resampler.resize(image, size / 2, size / 2);
+    }
+
+    /**
+     * Halves the image with Graphics2D and bicubic interpolation, the
+     * single-threaded baseline. Does not depend on the thread count or the
+     * filter parameters.
+     *
+     * @return the resized image
+     */
+    @Benchmark
+    public BufferedImage graphics2d() {
+        BufferedImage result = new BufferedImage(size / 2, size / 2, image.getType());
+        Graphics2D graphics = result.createGraphics();
+        try {
+            graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BICUBIC);
+            graphics.drawImage(image, 0, 0, size / 2, size / 2, null);
+        } finally {
+            graphics.dispose();
+        }
+        return result;
+    }
+}
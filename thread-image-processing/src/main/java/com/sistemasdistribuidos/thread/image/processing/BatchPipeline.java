@@ -0,0 +1,416 @@
+package com.sistemasdistribuidos.thread.image.processing;
+
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageTypeSpecifier;
+import javax.imageio.stream.ImageInputStream;
+
+/**
+ * Pipeline that converts every image of a directory to grayscale. Decoding,
+ * processing and encoding run as separate stages, each one with its own
+ * worker threads, connected by bounded queues. A full queue blocks the
+ * previous stage, so the number of images in memory never exceeds the
+ * capacity of the queues plus the number of workers, while disk I/O overlaps
+ * with the CPU work of the other stages.
+ *
+ * Images are decoded into buffers borrowed from a {@link BufferPool} and
+ * returned once encoded. The pool keeps as many images per size as can be in
+ * flight at once, so a batch of same-sized images allocates its buffers
+ * only while the pipeline fills up.
+ *
+ * With a {@link ResultCache}, the decoders hash every input file and copy
+ * the cached result of the inputs already converted in a previous run
+ * straight to the output directory, without decoding them. Only the misses
+ * go through the rest of the pipeline, and the encoders add their results
+ * to the cache.
+ *
+ * @author mariovillacortagarcia
+ */
+public class BatchPipeline {
+
+    /**
+     * Prefix added to the name of every output file.
+     */
+    static final String OUTPUT_PREFIX = "grayscale_";
+
+    /**
+     * Description of the conversion, part of the cache keys so results of a
+     * different conversion are never served.
+     */
+    private static final String OPERATION = "grayscale=average";
+
+    /**
+     * Marker that tells a worker that its stage has no more work.
+     */
+    private static final PipelineItem END_OF_STREAM = new PipelineItem(null, null, null);
+
+    private final int decoders;
+    private final int processors;
+    private final int encoders;
+    private final int queueCapacity;
+    private final BufferPool pool;
+    private final ResultCache cache;
+
+    /**
+     * Constructs a pipeline with the given number of workers per stage.
+     *
+     * @param decoders      the number of threads decoding images
+     * @param processors    the number of threads converting images
+     * @param encoders      the number of threads encoding images
+     * @param queueCapacity the capacity of each queue between stages
+     * @throws IllegalArgumentException if any argument is not positive
+     */
+    public BatchPipeline(int decoders, int processors, int encoders, int queueCapacity) {
+        this(decoders, processors, encoders, queueCapacity, null);
+    }
+
+    /**
+     * Constructs a pipeline with the given number of workers per stage that
+     * skips the inputs whose result is cached.
+     *
+     * @param decoders      the number of threads decoding images
+     * @param processors    the number of threads converting images
+     * @param encoders      the number of threads encoding images
+     * @param queueCapacity the capacity of each queue between stages
+     * @param cache         the cache of results, or null to convert every input
+     * @throws IllegalArgumentException if any count is not positive
+     */
+    public BatchPipeline(int decoders, int processors, int encoders, int queueCapacity, ResultCache cache) {
+        if (decoders <= 0 || processors <= 0 || encoders <= 0 || queueCapacity <= 0) {
+            throw new IllegalArgumentException("Worker counts and queue capacity must be positive");
+        }
+        this.decoders = decoders;
+        this.processors = processors;
+        this.encoders = encoders;
+        this.queueCapacity = queueCapacity;
+        this.pool = new BufferPool(decoders + processors + encoders + 2 * queueCapacity);
+        this.cache = cache;
+    }
+
+    /**
+     * Processes every readable image of the input directory and writes the
+     * results to the output directory. Images that fail are reported and
+     * skipped.
+     *
+     * @param inputDir  the directory with the images to process
+     * @param outputDir the directory where the results are written
+     * @return the number of images written
+     * @throws IOException          if the directories cannot be accessed
+     * @throws InterruptedException if interrupted while waiting for the workers
+     */
+    public int run(Path inputDir, Path outputDir) throws IOException, InterruptedException {
+        Files.createDirectories(outputDir);
+        Queue<Path> pending = new ConcurrentLinkedQueue<>(listImages(inputDir));
+        System.out.println("Batch of " + pending.size() + " images: " + decoders + " decoders, "
+                + processors + " processors, " + encoders + " encoders");
+
+        BlockingQueue<PipelineItem> decoded = new ArrayBlockingQueue<>(queueCapacity);
+        BlockingQueue<PipelineItem> processed = new ArrayBlockingQueue<>(queueCapacity);
+        AtomicInteger written = new AtomicInteger();
+        AtomicInteger activeDecoders = new AtomicInteger(decoders);
+        AtomicInteger activeProcessors = new AtomicInteger(processors);
+
+        List<Thread> workers = new ArrayList<>();
+        for (int i = 0; i < decoders; i++) {
+            workers.add(startWorker("decoder-" + i,
+                    () -> decode(pending, decoded, outputDir, written, activeDecoders)));
+        }
+        for (int i = 0; i < processors; i++) {
+            workers.add(startWorker("processor-" + i,
+                    () -> process(decoded, processed, activeProcessors)));
+        }
+        for (int i = 0; i < encoders; i++) {
+            workers.add(startWorker("encoder-" + i,
+                    () -> encode(processed, outputDir, written)));
+        }
+
+        try {
+            for (Thread worker : workers) {
+                worker.join();
+            }
+        } catch (InterruptedException e) {
+            workers.forEach(Thread::interrupt);
+            throw e;
+        }
+        System.out.println("Buffer pool: " + pool.getAllocations() + " images allocated, "
+                + pool.getReuses() + " reused");
+        if (cache != null) {
+            System.out.println("Result cache: " + cache.getHits() + " hits, " + cache.getMisses() + " misses, "
+                    + cache.size() + " entries");
+        }
+        return written.get();
+    }
+
+    /**
+     * Lists the files of a directory that ImageIO knows how to read.
+     *
+     * @param inputDir the directory to list
+     * @return the readable image files, sorted by name
+     * @throws IOException if the directory cannot be listed
+     */
+    static List<Path> listImages(Path inputDir) throws IOException {
+        Set<String> suffixes = Set.of(ImageIO.getReaderFileSuffixes());
+        try (Stream<Path> files = Files.list(inputDir)) {
+            return files.filter(Files::isRegularFile)
+                    .filter(file -> suffixes.contains(
+                            ThreadImageProcessing.getFileExtension(file.getFileName().toString())))
+                    .sorted()
+                    .toList();
+        }
+    }
+
+    /**
+     * Creates and starts a worker thread.
+     *
+     * @param name the name of the thread
+     * @param work the work to run
+     * @return the started thread
+     */
+    static Thread startWorker(String name, StageWork work) {
+        Thread thread = new Thread(() -> {
+            try {
+                work.run();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }, name);
+        thread.start();
+        return thread;
+    }
+
+    /**
+     * Decoding stage: reads pending files until there are none left, copying
+     * the cached results and decoding the rest. The last decoder to finish,
+     * even by dying from an error, tells every processor that the stream has
+     * ended. Failed images are reported and skipped so the stream always
+     * ends.
+     */
+    private void decode(Queue<Path> pending, BlockingQueue<PipelineItem> decoded, Path outputDir,
+            AtomicInteger written, AtomicInteger active) throws InterruptedException {
+        boolean interrupted = false;
+        try {
+            Path source;
+            while ((source = pending.poll()) != null) {
+                try {
+                    byte[] data = Files.readAllBytes(source);
+                    String key = null;
+                    if (cache != null) {
+                        String name = source.getFileName().toString();
+                        key = ResultCache.key(data, OPERATION + "." + ThreadImageProcessing.getFileExtension(name));
+                        if (cache.copyTo(key, outputDir.resolve(OUTPUT_PREFIX + name))) {
+                            written.incrementAndGet();
+                            continue;
+                        }
+                    }
+                    BufferedImage image = read(data, pool);
+                    if (image == null) {
+                        System.err.println("Skipping unreadable image " + source);
+                        continue;
+                    }
+                    decoded.put(new PipelineItem(source, image, key));
+                } catch (IOException | RuntimeException e) {
+                    System.err.println("Error decoding " + source + ": " + e.getMessage());
+                }
+            }
+        } catch (InterruptedException e) {
+            interrupted = true;
+            throw e;
+        } finally {
+            finishWorker(active, decoded, processors, interrupted);
+        }
+    }
+
+    /**
+     * Processing stage: converts decoded images to grayscale. The last
+     * processor to finish, even by dying from an error, tells every encoder
+     * that the stream has ended.
+     */
+    private void process(BlockingQueue<PipelineItem> decoded, BlockingQueue<PipelineItem> processed,
+            AtomicInteger active) throws InterruptedException {
+        boolean interrupted = false;
+        try {
+            PipelineItem item;
+            while ((item = decoded.take()) != END_OF_STREAM) {
+                BufferedImage image = item.image();
+                try {
+                    new ImageProcessor(image, new Rectangle(0, 0, image.getWidth(), image.getHeight())).run();
+                } catch (RuntimeException e) {
+                    System.err.println("Error processing " + item.source() + ": " + e.getMessage());
+                    pool.releaseImage(image);
+                    continue;
+                }
+                processed.put(item);
+            }
+        } catch (InterruptedException e) {
+            interrupted = true;
+            throw e;
+        } finally {
+            finishWorker(active, processed, encoders, interrupted);
+        }
+    }
+
+    /**
+     * Encoding stage: writes processed images to the output directory.
+     */
+    private void encode(BlockingQueue<PipelineItem> processed, Path outputDir, AtomicInteger written)
+            throws InterruptedException {
+        PipelineItem item;
+        while ((item = processed.take()) != END_OF_STREAM) {
+            String name = item.source().getFileName().toString();
+            Path target = outputDir.resolve(OUTPUT_PREFIX + name);
+            try {
+                if (ImageIO.write(item.image(), ThreadImageProcessing.getFileExtension(name), target.toFile())) {
+                    written.incrementAndGet();
+                    if (item.key() != null) {
+                        cacheResult(item.key(), target);
+                    }
+                } else {
+                    System.err.println("No writer available for " + target);
+                }
+            } catch (IOException | RuntimeException e) {
+                System.err.println("Error encoding " + target + ": " + e.getMessage());
+            }
+            pool.releaseImage(item.image());
+        }
+    }
+
+    /**
+     * Adds a result to the cache. A failure only costs converting the input
+     * again on the next run, so it is reported and ignored.
+     */
+    private void cacheResult(String key, Path result) {
+        try {
+            cache.put(key, result);
+        } catch (IOException e) {
+            System.err.println("Error caching " + result + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Decodes the first image of a file into an image borrowed from a pool.
+     * The destination has the same layout {@link ImageIO#read} would choose.
+     *
+     * @param data the contents of the file
+     * @param pool the pool that lends the destination image
+     * @return the decoded image, or null if no reader supports the file
+     * @throws IOException if an error occurs while reading
+     */
+    static BufferedImage read(byte[] data, BufferPool pool) throws IOException {
+        return read(data, 0, data.length, pool, null);
+    }
+
+    /**
+     * Decodes the first image of a range of bytes into an image borrowed
+     * from a pool, and tells the format it was encoded in.
+     *
+     * @param data   the array with the encoded image
+     * @param offset the index of the first byte of the image
+     * @param length the number of bytes of the image
+     * @param pool   the pool that lends the destination image
+     * @param format receives the format name of the image, or null
+     * @return the decoded image, or null if no reader supports the data
+     * @throws IOException if an error occurs while reading
+     */
+    static BufferedImage read(byte[] data, int offset, int length, BufferPool pool, String[] format)
+            throws IOException {
+        try (ImageInputStream in = ImageIO.createImageInputStream(new ByteArrayInputStream(data, offset, length))) {
+            Iterator<ImageReader> readers = in == null ? null : ImageIO.getImageReaders(in);
+            if (readers == null || !readers.hasNext()) {
+                return null;
+            }
+            ImageReader reader = readers.next();
+            try {
+                if (format != null) {
+                    format[0] = reader.getFormatName();
+                }
+                reader.setInput(in, true, true);
+                ImageTypeSpecifier type = reader.getImageTypes(0).next();
+                BufferedImage destination = pool.acquireImage(type, reader.getWidth(0), reader.getHeight(0));
+                ImageReadParam param = reader.getDefaultReadParam();
+                param.setDestination(destination);
+                try {
+                    return reader.read(0, param);
+                } catch (IOException | RuntimeException e) {
+                    pool.releaseImage(destination);
+                    throw e;
+                }
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    /**
+     * Counts a worker of a stage out, and ends the output of the stage once
+     * the last one is gone, however it stopped. When a worker was interrupted
+     * nothing is posted: {@link #run(Path, Path)} interrupts every stage, so
+     * there is nobody left to read the markers and a full queue would block
+     * the worker forever.
+     *
+     * @param active      the number of workers of the stage still running
+     * @param output      the queue the stage writes to
+     * @param consumers   the number of workers reading from the queue
+     * @param interrupted whether the worker was interrupted
+     * @throws InterruptedException if interrupted while the queue is full
+     */
+    private static void finishWorker(AtomicInteger active, BlockingQueue<PipelineItem> output, int consumers,
+            boolean interrupted) throws InterruptedException {
+        if (active.decrementAndGet() == 0 && !interrupted) {
+            endStream(output, consumers);
+        }
+    }
+
+    /**
+     * Puts one end of stream marker per consumer of the queue.
+     *
+     * @param queue     the queue to close
+     * @param consumers the number of workers reading from the queue
+     * @throws InterruptedException if interrupted while the queue is full
+     */
+    private static void endStream(BlockingQueue<PipelineItem> queue, int consumers) throws InterruptedException {
+        for (int i = 0; i < consumers; i++) {
+            queue.put(END_OF_STREAM);
+        }
+    }
+
+    /**
+     * Work done by a stage worker.
+     */
+    @FunctionalInterface
+    interface StageWork {
+
+        /**
+         * Runs the work of the stage until its input is exhausted.
+         *
+         * @throws InterruptedException if interrupted while waiting on a queue
+         */
+        void run() throws InterruptedException;
+    }
+
+    /**
+     * Image travelling through the pipeline together with its source file.
+     *
+     * @param source the file the image was read from
+     * @param image  the image
+     * @param key    the cache key of the source, or null without a cache
+     */
+    private record PipelineItem(Path source, BufferedImage image, String key) {
+    }
+}
@@ -0,0 +1,272 @@
+package com.sistemasdistribuidos.thread.image.processing;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.ColorModel;
+import java.awt.image.SampleModel;
+import java.awt.image.DataBuffer;
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.imageio.ImageTypeSpecifier;
+
+/**
+ * Size-keyed pool of images and scratch arrays. Jobs that process many images
+ * or tiles of the same size borrow their buffers from the pool and return
+ * them when done, so in steady state no large array is allocated and the
+ * garbage collector has nothing to reclaim.
+ *
+ * Images are keyed by their layout and size, arrays by their type and
+ * length. Each key keeps at most a fixed number of idle buffers, and all the
+ * keys together keep at most a fixed number of bytes: when a returned buffer
+ * would exceed it, the idle buffers of the least recently used keys are
+ * dropped first. A long-lived pool that sees many different sizes therefore
+ * keeps only the sizes in current use. Buffers that are not kept are left to
+ * the garbage collector. The pool is safe to use from several threads. A
+ * borrowed buffer keeps its previous contents.
+ *
+ * @author mariovillacortagarcia
+ */
+public final class BufferPool {
+
+    private final int capacityPerKey;
+    private final long maxIdleBytes;
+    /**
+     * Idle buffers of every key, from the least to the most recently used key.
+     */
+    private final LinkedHashMap<Object, ArrayDeque<Object>> idle = new LinkedHashMap<>(16, 0.75f, true);
+    private long idleBytes;
+    private final AtomicLong allocations = new AtomicLong();
+    private final AtomicLong reuses = new AtomicLong();
+
+    /**
+     * Constructs a pool that keeps idle buffers up to a quarter of the
+     * maximum heap size.
+     *
+     * @param capacityPerKey the maximum number of idle buffers kept for each
+     *                       size, 0 to never keep any
+     * @throws IllegalArgumentException if the capacity is negative
+     */
+    public BufferPool(int capacityPerKey) {
+        this(capacityPerKey, Runtime.getRuntime().maxMemory() / 4);
+    }
+
+    /**
+     * Constructs a pool.
+     *
+     * @param capacityPerKey the maximum number of idle buffers kept for each
+     *                       size, 0 to never keep any
+     * @param maxIdleBytes   the maximum number of bytes of all the idle
+     *                       buffers together
+     * @throws IllegalArgumentException if the capacity or the bytes are
+     *                                  negative
+     */
+    public BufferPool(int capacityPerKey, long maxIdleBytes) {
+        if (capacityPerKey < 0) {
+            throw new IllegalArgumentException("Capacity must not be negative: " + capacityPerKey);
+        }
+        if (maxIdleBytes < 0) {
+            throw new IllegalArgumentException("Max idle bytes must not be negative: " + maxIdleBytes);
+        }
+        this.capacityPerKey = capacityPerKey;
+        this.maxIdleBytes = maxIdleBytes;
+    }
+
+    /**
+     * Borrows an image of the given layout and size, creating it if the pool
+     * has none.
+     *
+     * @param type   the layout of the image
+     * @param width  the width of the image
+     * @param height the height of the image
+     * @return the image
+     */
+    public BufferedImage acquireImage(ImageTypeSpecifier type, int width, int height) {
+        BufferedImage image = (BufferedImage) acquire(ImageKey.of(type.getColorModel(), type.getSampleModel(),
+                width, height));
+        return image != null ? image : type.createBufferedImage(width, height);
+    }
+
+    /**
+     * Returns an image to the pool. The image must not be used afterwards.
+     *
+     * @param image the image to return
+     */
+    public void releaseImage(BufferedImage image) {
+        release(ImageKey.of(image.getColorModel(), image.getSampleModel(), image.getWidth(), image.getHeight()),
+                image);
+    }
+
+    /**
+     * Borrows an int array of the given length.
+     *
+     * @param length the length of the array
+     * @return the array
+     */
+    public int[] acquireInts(int length) {
+        int[] array = (int[]) acquire(new ArrayKey(int[].class, length));
+        return array != null ? array : new int[length];
+    }
+
+    /**
+     * Returns an int array to the pool. The array must not be used afterwards.
+     *
+     * @param array the array to return
+     */
+    public void releaseInts(int[] array) {
+        release(new ArrayKey(int[].class, array.length), array);
+    }
+
+    /**
+     * Borrows a float array of the given length.
+     *
+     * @param length the length of the array
+     * @return the array
+     */
+    public float[] acquireFloats(int length) {
+        float[] array = (float[]) acquire(new ArrayKey(float[].class, length));
+        return array != null ? array : new float[length];
+    }
+
+    /**
+     * Returns a float array to the pool. The array must not be used afterwards.
+     *
+     * @param array the array to return
+     */
+    public void releaseFloats(float[] array) {
+        release(new ArrayKey(float[].class, array.length), array);
+    }
+
+    /**
+     * Gets the number of buffers the pool had to create.
+     *
+     * @return the number of allocations
+     */
+    public long getAllocations() {
+        return allocations.get();
+    }
+
+    /**
+     * Gets the number of borrowed buffers that were served from the pool.
+     *
+     * @return the number of reuses
+     */
+    public long getReuses() {
+        return reuses.get();
+    }
+
+    /**
+     * Gets the number of bytes of the idle buffers the pool keeps.
+     *
+     * @return the idle bytes
+     */
+    public synchronized long getIdleBytes() {
+        return idleBytes;
+    }
+
+    /**
+     * Takes an idle buffer of the key, or counts an allocation if there is
+     * none.
+     *
+     * @return the buffer, or null if the caller must create it
+     */
+    private Object acquire(Object key) {
+        Object buffer;
+        synchronized (this) {
+            ArrayDeque<Object> buffers = idle.get(key);
+            buffer = buffers == null ? null : buffers.poll();
+            if (buffer != null) {
+                idleBytes -= sizeOf(key, buffer);
+                if (buffers.isEmpty()) {
+                    idle.remove(key);
+                }
+            }
+        }
+        (buffer != null ? reuses : allocations).incrementAndGet();
+        return buffer;
+    }
+
+    /**
+     * Keeps a buffer for the key unless the pool for that key is full, making
+     * room for it by dropping the idle buffers of the least recently used
+     * keys. The buffer is not kept if it does not fit even then.
+     */
+    private synchronized void release(Object key, Object buffer) {
+        ArrayDeque<Object> buffers = idle.get(key);
+        if (capacityPerKey == 0 || (buffers != null && buffers.size() >= capacityPerKey)) {
+            return;
+        }
+        final long bytes = sizeOf(key, buffer);
+        if (bytes > maxIdleBytes) {
+            return;
+        }
+        Iterator<Map.Entry<Object, ArrayDeque<Object>>> eldest = idle.entrySet().iterator();
+        while (idleBytes + bytes > maxIdleBytes && eldest.hasNext()) {
+            Map.Entry<Object, ArrayDeque<Object>> entry = eldest.next();
+            if (entry.getValue() != buffers) {
+                for (Object evicted : entry.getValue()) {
+                    idleBytes -= sizeOf(entry.getKey(), evicted);
+                }
+                eldest.remove();
+            }
+        }
+        if (idleBytes + bytes > maxIdleBytes) {
+            return;
+        }
+        if (buffers == null) {
+            buffers = new ArrayDeque<>(capacityPerKey);
+            idle.put(key, buffers);
+        }
+        buffers.add(buffer);
+        idleBytes += bytes;
+    }
+
+    /**
+     * Gets the bytes of a pooled buffer.
+     */
+    private static long sizeOf(Object key, Object buffer) {
+        if (key instanceof ArrayKey array) {
+            return (long) array.length() * (array.type() == int[].class ? Integer.BYTES : Float.BYTES);
+        }
+        DataBuffer data = ((BufferedImage) buffer).getRaster().getDataBuffer();
+        return (long) data.getSize() * data.getNumBanks() * DataBuffer.getDataTypeSize(data.getDataType())
+                / Byte.SIZE;
+    }
+
+    /**
+     * Key of the pooled arrays.
+     *
+     * @param type   the class of the array
+     * @param length the length of the array
+     */
+    private record ArrayKey(Class<?> type, int length) {
+    }
+
+    /**
+     * Key of the pooled images.
+     *
+     * @param type   the layout of the image
+     * @param width  the width of the image
+     * @param height the height of the image
+     */
+    private record ImageKey(ImageTypeSpecifier type, int width, int height) {
+
+        /**
+         * Creates the key of an image. The layout is always a plain
+         * {@link ImageTypeSpecifier} with a 1x1 sample model, as the specifiers
+         * returned by the readers are subclasses and the sample model of an
+         * image has its full size, and neither would compare equal otherwise.
+         *
+         * @param colorModel  the color model of the image
+         * @param sampleModel the sample model of the image, of any size
+         * @param width       the width of the image
+         * @param height      the height of the image
+         * @return the key
+         */
+        static ImageKey of(ColorModel colorModel, SampleModel sampleModel, int width, int height) {
+            return new ImageKey(new ImageTypeSpecifier(colorModel, sampleModel.createCompatibleSampleModel(1, 1)),
+                    width, height);
+        }
+    }
+}
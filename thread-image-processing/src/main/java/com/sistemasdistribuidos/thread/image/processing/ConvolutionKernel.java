@@ -0,0 +1,227 @@
+package com.sistemasdistribuidos.thread.image.processing;
+
+import java.util.Arrays;
+
+/**
+ * Immutable convolution kernel with odd width and height. When the kernel is
+ * the outer product of a column and a row vector it is separable, and a
+ * convolution can be computed as two 1-D passes costing O(w + h) per pixel
+ * instead of O(w * h).
+ *
+ * @author mariovillacortagarcia
+ */
+public final class ConvolutionKernel {
+
+    /**
+     * Relative tolerance used when checking whether a kernel is separable.
+     */
+    private static final float SEPARABLE_TOLERANCE = 1e-5f;
+
+    private final int width;
+    private final int height;
+    private final float[] weights;
+    private final float[] columnVector;
+    private final float[] rowVector;
+
+    /**
+     * Constructs a kernel from its weights in row-major order.
+     *
+     * @param width   the odd width of the kernel
+     * @param height  the odd height of the kernel
+     * @param weights the weights, width * height values in row-major order
+     * @throws IllegalArgumentException if the sizes are not odd and positive or
+     *                                  do not match the weights
+     */
+    public ConvolutionKernel(int width, int height, float[] weights) {
+        if (width <= 0 || height <= 0 || width % 2 == 0 || height % 2 == 0) {
+            throw new IllegalArgumentException("Kernel sizes must be odd and positive: " + width + "x" + height);
+        }
+        if (weights.length != width * height) {
+            throw new IllegalArgumentException("Expected " + width * height + " weights, got " + weights.length);
+        }
+        this.width = width;
+        this.height = height;
+        this.weights = weights.clone();
+
+        float[][] vectors = separate(width, height, this.weights);
+        this.columnVector = vectors == null ? null : vectors[0];
+        this.rowVector = vectors == null ? null : vectors[1];
+    }
+
+    /**
+     * Creates a box blur kernel.
+     *
+     * @param radius the radius of the box, the kernel side is 2 * radius + 1
+     * @return the box blur kernel
+     */
+    public static ConvolutionKernel boxBlur(int radius) {
+        final int side = 2 * radius + 1;
+        float[] weights = new float[side * side];
+        Arrays.fill(weights, 1f / weights.length);
+        return new ConvolutionKernel(side, side, weights);
+    }
+
+    /**
+     * Creates a normalised gaussian blur kernel with a radius of three sigmas.
+     *
+     * @param sigma the standard deviation in pixels
+     * @return the gaussian blur kernel
+     * @throws IllegalArgumentException if sigma is not positive
+     */
+    public static ConvolutionKernel gaussianBlur(double sigma) {
+        if (sigma <= 0) {
+            throw new IllegalArgumentException("Sigma must be positive: " + sigma);
+        }
+        final int radius = Math.max(1, (int) Math.ceil(3 * sigma));
+        final int side = 2 * radius + 1;
+        double[] profile = new double[side];
+        double sum = 0;
+        for (int i = 0; i < side; i++) {
+            profile[i] = Math.exp(-((i - radius) * (i - radius)) / (2 * sigma * sigma));
+            sum += profile[i];
+        }
+        float[] weights = new float[side * side];
+        for (int y = 0; y < side; y++) {
+            for (int x = 0; x < side; x++) {
+                weights[y * side + x] = (float) (profile[y] * profile[x] / (sum * sum));
+            }
+        }
+        return new ConvolutionKernel(side, side, weights);
+    }
+
+    /**
+     * Creates the 3x3 sharpen kernel.
+     *
+     * @return the sharpen kernel
+     */
+    public static ConvolutionKernel sharpen() {
+        return new ConvolutionKernel(3, 3, new float[]{
+            0, -1, 0,
+            -1, 5, -1,
+            0, -1, 0
+        });
+    }
+
+    /**
+     * Creates the horizontal gradient Sobel kernel.
+     *
+     * @return the Sobel X kernel
+     */
+    public static ConvolutionKernel sobelX() {
+        return new ConvolutionKernel(3, 3, new float[]{
+            -1, 0, 1,
+            -2, 0, 2,
+            -1, 0, 1
+        });
+    }
+
+    /**
+     * Creates the vertical gradient Sobel kernel.
+     *
+     * @return the Sobel Y kernel
+     */
+    public static ConvolutionKernel sobelY() {
+        return new ConvolutionKernel(3, 3, new float[]{
+            -1, -2, -1,
+            0, 0, 0,
+            1, 2, 1
+        });
+    }
+
+    /**
+     * Gets the width of the kernel.
+     *
+     * @return the width
+     */
+    public int getWidth() {
+        return width;
+    }
+
+    /**
+     * Gets the height of the kernel.
+     *
+     * @return the height
+     */
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * Gets a weight of the kernel.
+     *
+     * @param x the column of the weight
+     * @param y the row of the weight
+     * @return the weight
+     */
+    public float getWeight(int x, int y) {
+        return weights[y * width + x];
+    }
+
+    /**
+     * Checks whether the kernel can be applied as two 1-D passes.
+     *
+     * @return true if the kernel is separable
+     */
+    public boolean isSeparable() {
+        return columnVector != null;
+    }
+
+    /**
+     * Gets the vertical factor of a separable kernel.
+     *
+     * @return a copy of the column vector, or null if not separable
+     */
+    public float[] getColumnVector() {
+        return columnVector == null ? null : columnVector.clone();
+    }
+
+    /**
+     * Gets the horizontal factor of a separable kernel.
+     *
+     * @return a copy of the row vector, or null if not separable
+     */
+    public float[] getRowVector() {
+        return rowVector == null ? null : rowVector.clone();
+    }
+
+    /**
+     * Factors a kernel of rank one into a column and a row vector. The row
+     * holding the largest weight is used as row vector and each column vector
+     * entry is the ratio between its row and that one.
+     *
+     * @param width   the width of the kernel
+     * @param height  the height of the kernel
+     * @param weights the weights in row-major order
+     * @return the column and row vectors, or null if the kernel is not separable
+     */
+    private static float[][] separate(int width, int height, float[] weights) {
+        int pivot = 0;
+        float max = 0;
+        for (int i = 0; i < weights.length; i++) {
+            if (Math.abs(weights[i]) > max) {
+                max = Math.abs(weights[i]);
+                pivot = i;
+            }
+        }
+        if (max == 0) {
+            return null;
+        }
+        final int pivotRow = pivot / width;
+        final int pivotColumn = pivot % width;
+        final float pivotWeight = weights[pivot];
+
+        float[] row = Arrays.copyOfRange(weights, pivotRow * width, pivotRow * width + width);
+        float[] column = new float[height];
+        for (int y = 0; y < height; y++) {
+            column[y] = weights[y * width + pivotColumn] / pivotWeight;
+        }
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                if (Math.abs(column[y] * row[x] - weights[y * width + x]) > SEPARABLE_TOLERANCE * max) {
+                    return null;
+                }
+            }
+        }
+        return new float[][]{column, row};
+    }
+}
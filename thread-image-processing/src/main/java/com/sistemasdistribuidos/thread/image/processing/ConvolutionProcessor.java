@@ -0,0 +1,249 @@
+package com.sistemasdistribuidos.thread.image.processing;
+
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.util.Arrays;
+
+/**
+ * Image processor that convolves a specific area of an image. The tile is
+ * read together with a halo of neighbouring pixels from the source image and
+ * the result is written to a separate destination image, so tiles processed
+ * in parallel never read pixels that another tile has already modified.
+ *
+ * Separable kernels are applied as a horizontal pass over the tile and its
+ * vertical halo followed by a vertical pass. When several kernels are given,
+ * as for Sobel edge detection, the output is the magnitude of their
+ * responses. Color channels are convolved independently and alpha is copied
+ * from the source.
+ *
+ * The tile, its planes and the intermediate responses are borrowed from a
+ * {@link BufferPool}. Tiles of a scheduler mostly share a few sizes, so a
+ * shared pool lets every tile reuse the scratch arrays of previous ones.
+ *
+ * @author mariovillacortagarcia
+ */
+public class ConvolutionProcessor implements Runnable {
+
+    private static final int CHANNELS = 3;
+    private static final int MAX_LEVEL = 255;
+
+    private final BufferedImage source;
+    private final BufferedImage destination;
+    private final Rectangle area;
+    private final ConvolutionKernel[] kernels;
+    private final BufferPool pool;
+
+    /**
+     * Constructs a new convolution processor for the specified area that
+     * allocates its own scratch arrays.
+     *
+     * @param source      the image to read
+     * @param destination the image to write, with the size of the source
+     * @param area        the rectangular area that will be processed
+     * @param kernels     one kernel, or several of the same size whose
+     *                    responses are combined as a gradient magnitude
+     * @throws IllegalArgumentException if no kernel is given or their sizes differ
+     */
+    public ConvolutionProcessor(BufferedImage source, BufferedImage destination, Rectangle area,
+            ConvolutionKernel... kernels) {
+        this(source, destination, area, new BufferPool(0), kernels);
+    }
+
+    /**
+     * Constructs a new convolution processor for the specified area that
+     * borrows its scratch arrays from a pool.
+     *
+     * @param source      the image to read
+     * @param destination the image to write, with the size of the source
+     * @param area        the rectangular area that will be processed
+     * @param pool        the pool that provides the scratch arrays
+     * @param kernels     one kernel, or several of the same size whose
+     *                    responses are combined as a gradient magnitude
+     * @throws IllegalArgumentException if no kernel is given or their sizes differ
+     */
+    public ConvolutionProcessor(BufferedImage source, BufferedImage destination, Rectangle area,
+            BufferPool pool, ConvolutionKernel... kernels) {
+        if (kernels.length == 0) {
+            throw new IllegalArgumentException("At least one kernel is required");
+        }
+        for (ConvolutionKernel kernel : kernels) {
+            if (kernel.getWidth() != kernels[0].getWidth() || kernel.getHeight() != kernels[0].getHeight()) {
+                throw new IllegalArgumentException("All the kernels must have the same size");
+            }
+        }
+        this.source = source;
+        this.destination = destination;
+        this.area = area;
+        this.kernels = kernels;
+        this.pool = pool;
+    }
+
+    /**
+     * Convolves the assigned area and writes it to the destination image.
+     */
+    @Override
+    public void run() {
+        final int haloX = kernels[0].getWidth() / 2;
+        final int haloY = kernels[0].getHeight() / 2;
+        final int inputWidth = area.width + 2 * haloX;
+        final int inputHeight = area.height + 2 * haloY;
+        final int[] input = pool.acquireInts(inputWidth * inputHeight);
+        TileBuffers.readWithHalo(source, area, haloX, haloY, input);
+        final float[][] planes = splitChannels(input);
+
+        final int size = area.width * area.height;
+        final float[][] result = new float[CHANNELS][];
+        final float[] response = pool.acquireFloats(size);
+        final float[] horizontal = pool.acquireFloats(area.width * inputHeight);
+        for (int channel = 0; channel < CHANNELS; channel++) {
+            result[channel] = pool.acquireFloats(size);
+            if (kernels.length > 1) {
+                Arrays.fill(result[channel], 0);
+            }
+        }
+        for (ConvolutionKernel kernel : kernels) {
+            for (int channel = 0; channel < CHANNELS; channel++) {
+                if (kernel.isSeparable()) {
+                    convolveSeparable(planes[channel], inputWidth, inputHeight, kernel, horizontal, response);
+                } else {
+                    convolve(planes[channel], inputWidth, kernel, response);
+                }
+                accumulate(result[channel], response);
+            }
+        }
+
+        final int[] output = pool.acquireInts(size);
+        for (int y = 0; y < area.height; y++) {
+            for (int x = 0; x < area.width; x++) {
+                final int i = y * area.width + x;
+                final int alpha = input[(y + haloY) * inputWidth + x + haloX] & 0xFF000000;
+                output[i] = alpha
+                        | toLevel(result[0][i]) << 16
+                        | toLevel(result[1][i]) << 8
+                        | toLevel(result[2][i]);
+            }
+        }
+        TileBuffers.write(destination, area, output);
+
+        pool.releaseInts(output);
+        pool.releaseInts(input);
+        pool.releaseFloats(response);
+        pool.releaseFloats(horizontal);
+        for (int channel = 0; channel < CHANNELS; channel++) {
+            pool.releaseFloats(planes[channel]);
+            pool.releaseFloats(result[channel]);
+        }
+    }
+
+    /**
+     * Adds a response to the result, or its square when the responses are
+     * combined as a magnitude.
+     *
+     * @param result   the accumulated result
+     * @param response the response of one kernel
+     */
+    private void accumulate(float[] result, float[] response) {
+        if (kernels.length == 1) {
+            System.arraycopy(response, 0, result, 0, response.length);
+            return;
+        }
+        for (int i = 0; i < response.length; i++) {
+            result[i] += response[i] * response[i];
+        }
+    }
+
+    /**
+     * Converts an accumulated value to an 8-bit level.
+     *
+     * @param value the accumulated value
+     * @return the level, rounded and clamped to 0-255
+     */
+    private int toLevel(float value) {
+        final float level = kernels.length == 1 ? value : (float) Math.sqrt(value);
+        return Math.clamp(Math.round(level), 0, MAX_LEVEL);
+    }
+
+    /**
+     * Splits packed pixels into one float plane per color channel.
+     *
+     * @param pixels the packed ARGB pixels
+     * @return the red, green and blue planes, borrowed from the pool
+     */
+    private float[][] splitChannels(int[] pixels) {
+        float[][] planes = new float[CHANNELS][];
+        for (int channel = 0; channel < CHANNELS; channel++) {
+            planes[channel] = pool.acquireFloats(pixels.length);
+        }
+        for (int i = 0; i < pixels.length; i++) {
+            planes[0][i] = (pixels[i] >> 16) & MAX_LEVEL;
+            planes[1][i] = (pixels[i] >> 8) & MAX_LEVEL;
+            planes[2][i] = pixels[i] & MAX_LEVEL;
+        }
+        return planes;
+    }
+
+    /**
+     * Convolves a plane with the full 2-D kernel.
+     *
+     * @param plane      the plane including the halo
+     * @param planeWidth the width of the plane
+     * @param kernel     the kernel
+     * @param response   receives the response for the area, without halo
+     */
+    private void convolve(float[] plane, int planeWidth, ConvolutionKernel kernel, float[] response) {
+        final int kernelWidth = kernel.getWidth();
+        final int kernelHeight = kernel.getHeight();
+        for (int y = 0; y < area.height; y++) {
+            for (int x = 0; x < area.width; x++) {
+                float sum = 0;
+                for (int ky = 0; ky < kernelHeight; ky++) {
+                    final int rowStart = (y + ky) * planeWidth + x;
+                    for (int kx = 0; kx < kernelWidth; kx++) {
+                        sum += kernel.getWeight(kx, ky) * plane[rowStart + kx];
+                    }
+                }
+                response[y * area.width + x] = sum;
+            }
+        }
+    }
+
+    /**
+     * Convolves a plane with a separable kernel as two 1-D passes.
+     *
+     * @param plane       the plane including the halo
+     * @param planeWidth  the width of the plane
+     * @param planeHeight the height of the plane
+     * @param kernel      the separable kernel
+     * @param horizontal  scratch array for the horizontal pass, area.width
+     *                    values per row of the plane
+     * @param response    receives the response for the area, without halo
+     */
+    private void convolveSeparable(float[] plane, int planeWidth, int planeHeight, ConvolutionKernel kernel,
+            float[] horizontal, float[] response) {
+        final float[] row = kernel.getRowVector();
+        final float[] column = kernel.getColumnVector();
+
+        // Horizontal pass over every row of the plane, halo rows included
+        for (int y = 0; y < planeHeight; y++) {
+            for (int x = 0; x < area.width; x++) {
+                final int start = y * planeWidth + x;
+                float sum = 0;
+                for (int k = 0; k < row.length; k++) {
+                    sum += row[k] * plane[start + k];
+                }
+                horizontal[y * area.width + x] = sum;
+            }
+        }
+
+        // Vertical pass producing the rows of the area
+        for (int y = 0; y < area.height; y++) {
+            for (int x = 0; x < area.width; x++) {
+                float sum = 0;
+                for (int k = 0; k < column.length; k++) {
+                    sum += column[k] * horizontal[(y + k) * area.width + x];
+                }
+                response[y * area.width + x] = sum;
+            }
+        }
+    }
+}
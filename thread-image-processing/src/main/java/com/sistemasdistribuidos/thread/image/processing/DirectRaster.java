@@ -0,0 +1,342 @@
+package com.sistemasdistribuidos.thread.image.processing;
+
+import java.awt.color.ColorSpace;
+import java.awt.image.BufferedImage;
+import java.awt.image.ColorModel;
+import java.awt.image.ComponentColorModel;
+import java.awt.image.ComponentSampleModel;
+import java.awt.image.DataBuffer;
+import java.awt.image.DataBufferByte;
+import java.awt.image.DataBufferInt;
+import java.awt.image.DirectColorModel;
+import java.awt.image.SampleModel;
+import java.awt.image.SinglePixelPackedSampleModel;
+import java.awt.image.WritableRaster;
+
+/**
+ * Direct view over the primitive array that backs a raster. Recognises the
+ * common 8-bit layouts (TYPE_3BYTE_BGR, TYPE_4BYTE_ABGR, TYPE_BYTE_GRAY,
+ * TYPE_INT_RGB, TYPE_INT_ARGB and TYPE_INT_BGR) so kernels can work on the
+ * array using the scanline stride and offsets instead of going through the
+ * generic SampleModel path one pixel at a time.
+ *
+ * Only the views created with {@link #ofArgb(BufferedImage)} read and write
+ * pixels as ARGB: the samples of a palette image are indexes and those of a
+ * premultiplied one are scaled by alpha, so neither can be taken as colors.
+ *
+ * @author mariovillacortagarcia
+ */
+final class DirectRaster {
+
+    /**
+     * Supported memory layouts.
+     */
+    enum Layout {
+        /**
+         * One byte per band, bands stored next to each other in a byte array.
+         */
+        INTERLEAVED_BYTE,
+        /**
+         * One int per pixel, each band stored in a whole byte of the int.
+         */
+        PACKED_INT
+    }
+
+    private static final int BITS_PER_BAND = 8;
+    private static final int BAND_MASK = 0xFF;
+
+    private final Layout layout;
+    private final byte[] bytes;
+    private final int[] ints;
+    private final int numBands;
+    private final int pixelStride;
+    private final int scanlineStride;
+    private final int originOffset;
+    private final int bandsMask;
+    private final int[] bandPositions;
+
+    /**
+     * Constructs a direct view. Use {@link #of(WritableRaster)} instead.
+     */
+    private DirectRaster(Layout layout, byte[] bytes, int[] ints, int numBands, int pixelStride,
+            int scanlineStride, int originOffset, int bandsMask, int[] bandPositions) {
+        this.layout = layout;
+        this.bytes = bytes;
+        this.ints = ints;
+        this.numBands = numBands;
+        this.pixelStride = pixelStride;
+        this.scanlineStride = scanlineStride;
+        this.originOffset = originOffset;
+        this.bandsMask = bandsMask;
+        this.bandPositions = bandPositions;
+    }
+
+    /**
+     * Creates a direct view of the raster if its layout is supported.
+     *
+     * @param raster the raster to inspect
+     * @return the direct view, or null if the layout is not supported
+     */
+    static DirectRaster of(WritableRaster raster) {
+        SampleModel sampleModel = raster.getSampleModel();
+        DataBuffer dataBuffer = raster.getDataBuffer();
+        if (dataBuffer.getNumBanks() != 1) {
+            return null;
+        }
+        if (dataBuffer instanceof DataBufferByte byteBuffer
+                && sampleModel instanceof ComponentSampleModel componentModel) {
+            return ofInterleavedBytes(raster, byteBuffer, componentModel);
+        }
+        if (dataBuffer instanceof DataBufferInt intBuffer
+                && sampleModel instanceof SinglePixelPackedSampleModel packedModel) {
+            return ofPackedInts(raster, intBuffer, packedModel);
+        }
+        return null;
+    }
+
+    /**
+     * Creates a direct view of the raster of an image whose samples are
+     * straight colors, so {@link #getArgb(int)} and {@link #setArgb(int, int)}
+     * can be used on it. Palette images, premultiplied images, color spaces
+     * other than RGB and gray and any other color model get no view and must
+     * go through getRGB and setRGB.
+     *
+     * @param image the image to inspect
+     * @return the direct view, or null if the layout or color model is not
+     *         supported
+     */
+    static DirectRaster ofArgb(BufferedImage image) {
+        ColorModel colorModel = image.getColorModel();
+        final int colorSpace = colorModel.getColorSpace().getType();
+        if (!(colorModel instanceof ComponentColorModel || colorModel instanceof DirectColorModel)
+                || colorModel.isAlphaPremultiplied()
+                || (colorSpace != ColorSpace.TYPE_RGB && colorSpace != ColorSpace.TYPE_GRAY)) {
+            return null;
+        }
+        return of(image.getRaster());
+    }
+
+    /**
+     * Creates the view of a byte raster whose bands are interleaved with no
+     * gaps, in any band order.
+     */
+    private static DirectRaster ofInterleavedBytes(WritableRaster raster, DataBufferByte dataBuffer,
+            ComponentSampleModel sampleModel) {
+        final int numBands = sampleModel.getNumBands();
+        if (sampleModel.getPixelStride() != numBands) {
+            return null;
+        }
+        int[] bandOffsets = sampleModel.getBandOffsets();
+        boolean[] seen = new boolean[numBands];
+        for (int offset : bandOffsets) {
+            if (offset < 0 || offset >= numBands || seen[offset]) {
+                return null;
+            }
+            seen[offset] = true;
+        }
+        for (int size : sampleModel.getSampleSize()) {
+            if (size != BITS_PER_BAND) {
+                return null;
+            }
+        }
+
+        final int scanlineStride = sampleModel.getScanlineStride();
+        final int originOffset = dataBuffer.getOffset()
+                - raster.getSampleModelTranslateY() * scanlineStride
+                - raster.getSampleModelTranslateX() * numBands;
+        return new DirectRaster(Layout.INTERLEAVED_BYTE, dataBuffer.getData(), null, numBands,
+                numBands, scanlineStride, originOffset, 0, bandOffsets);
+    }
+
+    /**
+     * Creates the view of an int raster whose bands each take a whole byte of
+     * the packed pixel.
+     */
+    private static DirectRaster ofPackedInts(WritableRaster raster, DataBufferInt dataBuffer,
+            SinglePixelPackedSampleModel sampleModel) {
+        int bandsMask = 0;
+        int[] masks = sampleModel.getBitMasks();
+        int[] bandShifts = new int[masks.length];
+        for (int band = 0; band < masks.length; band++) {
+            final int mask = masks[band];
+            boolean wholeByte = mask == BAND_MASK || mask == BAND_MASK << 8
+                    || mask == BAND_MASK << 16 || mask == BAND_MASK << 24;
+            if (!wholeByte || (bandsMask & mask) != 0) {
+                return null;
+            }
+            bandsMask |= mask;
+            bandShifts[band] = Integer.numberOfTrailingZeros(mask);
+        }
+
+        final int scanlineStride = sampleModel.getScanlineStride();
+        final int originOffset = dataBuffer.getOffset()
+                - raster.getSampleModelTranslateY() * scanlineStride
+                - raster.getSampleModelTranslateX();
+        return new DirectRaster(Layout.PACKED_INT, null, dataBuffer.getData(), sampleModel.getNumBands(),
+                1, scanlineStride, originOffset, bandsMask, bandShifts);
+    }
+
+    /**
+     * Gets the memory layout of the raster.
+     *
+     * @return the layout
+     */
+    Layout getLayout() {
+        return layout;
+    }
+
+    /**
+     * Gets the backing byte array of an {@link Layout#INTERLEAVED_BYTE} raster.
+     *
+     * @return the byte array, or null for other layouts
+     */
+    byte[] getBytes() {
+        return bytes;
+    }
+
+    /**
+     * Gets the backing int array of a {@link Layout#PACKED_INT} raster.
+     *
+     * @return the int array, or null for other layouts
+     */
+    int[] getInts() {
+        return ints;
+    }
+
+    /**
+     * Gets the number of bands of each pixel.
+     *
+     * @return the number of bands
+     */
+    int getNumBands() {
+        return numBands;
+    }
+
+    /**
+     * Gets the distance in array elements between two consecutive pixels.
+     *
+     * @return the pixel stride
+     */
+    int getPixelStride() {
+        return pixelStride;
+    }
+
+    /**
+     * Gets the distance in array elements between two consecutive rows.
+     *
+     * @return the scanline stride
+     */
+    int getScanlineStride() {
+        return scanlineStride;
+    }
+
+    /**
+     * Gets the bits used by the bands of a {@link Layout#PACKED_INT} pixel.
+     * The remaining bits must be preserved when a pixel is written.
+     *
+     * @return the union of the band masks, or 0 for other layouts
+     */
+    int getBandsMask() {
+        return bandsMask;
+    }
+
+    /**
+     * Gets where each band is stored inside a pixel: the offset from the first
+     * byte of the pixel for {@link Layout#INTERLEAVED_BYTE} rasters, or the bit
+     * shift of the band for {@link Layout#PACKED_INT} rasters. Bands follow the
+     * order of the color model (red, green, blue, alpha; or gray).
+     *
+     * @return the position of each band
+     */
+    int[] getBandPositions() {
+        return bandPositions;
+    }
+
+    /**
+     * Reads a pixel as a packed 0xAARRGGBB value. Gray rasters are replicated
+     * to the three color channels and rasters without alpha read as opaque.
+     * Only valid on views created with {@link #ofArgb(BufferedImage)}.
+     *
+     * @param index the array index of the pixel, as given by {@link #indexOf}
+     * @return the pixel as a packed ARGB value
+     */
+    int getArgb(int index) {
+        if (numBands < 3) {
+            final int gray = getSample(index, 0);
+            final int alpha = numBands == 2 ? getSample(index, 1) : BAND_MASK;
+            return alpha << 24 | gray * 0x010101;
+        }
+        final int alpha = numBands == 4 ? getSample(index, 3) : BAND_MASK;
+        return alpha << 24 | getSample(index, 0) << 16 | getSample(index, 1) << 8 | getSample(index, 2);
+    }
+
+    /**
+     * Writes a pixel from a packed 0xAARRGGBB value. Gray rasters store the
+     * average of the three color channels and rasters without alpha ignore it.
+     * Bits of a packed pixel that do not belong to any band are preserved.
+     * Only valid on views created with {@link #ofArgb(BufferedImage)}.
+     *
+     * @param index the array index of the pixel, as given by {@link #indexOf}
+     * @param argb  the pixel as a packed ARGB value
+     */
+    void setArgb(int index, int argb) {
+        final int alpha = argb >>> 24;
+        final int red = (argb >> 16) & BAND_MASK;
+        final int green = (argb >> 8) & BAND_MASK;
+        final int blue = argb & BAND_MASK;
+        if (numBands < 3) {
+            setSample(index, 0, (red + green + blue) / 3);
+            if (numBands == 2) {
+                setSample(index, 1, alpha);
+            }
+            return;
+        }
+        setSample(index, 0, red);
+        setSample(index, 1, green);
+        setSample(index, 2, blue);
+        if (numBands == 4) {
+            setSample(index, 3, alpha);
+        }
+    }
+
+    /**
+     * Reads one band of a pixel.
+     *
+     * @param index the array index of the pixel
+     * @param band  the band to read
+     * @return the 8-bit sample
+     */
+    private int getSample(int index, int band) {
+        if (layout == Layout.PACKED_INT) {
+            return (ints[index] >>> bandPositions[band]) & BAND_MASK;
+        }
+        return bytes[index + bandPositions[band]] & BAND_MASK;
+    }
+
+    /**
+     * Writes one band of a pixel.
+     *
+     * @param index the array index of the pixel
+     * @param band  the band to write
+     * @param value the 8-bit sample
+     */
+    private void setSample(int index, int band, int value) {
+        if (layout == Layout.PACKED_INT) {
+            final int shift = bandPositions[band];
+            ints[index] = (ints[index] & ~(BAND_MASK << shift)) | (value & BAND_MASK) << shift;
+        } else {
+            bytes[index + bandPositions[band]] = (byte) value;
+        }
+    }
+
+    /**
+     * Gets the index in the backing array of the first element of a pixel.
+     *
+     * @param x the x coordinate in the raster
+     * @param y the y coordinate in the raster
+     * @return the array index of the pixel
+     */
+    int indexOf(int x, int y) {
+        return originOffset + y * scanlineStride + x * pixelStride;
+    }
+}
@@ -0,0 +1,439 @@
+package com.sistemasdistribuidos.thread.image.processing;
+
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.awt.image.WritableRaster;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * Coordinator of the distributed mode. Splits an image into tiles, sends
+ * them to a set of {@link TileWorker} nodes over TCP and stitches the
+ * processed tiles back into the image.
+ *
+ * Each worker is served by a link thread that keeps a small window of
+ * requests in flight on its connection. The tiles are dealt round robin to
+ * one queue per worker; a link whose queue runs dry steals from the tail of
+ * the longest queue, so faster workers end up processing more tiles. A tile
+ * the worker reports as failed is retried on another worker, and the tiles
+ * of a worker that disconnects or stops answering are moved to the workers
+ * still alive. The image fails when a tile reaches the maximum number of
+ * attempts or no worker is left.
+ *
+ * @author mariovillacortagarcia
+ */
+public class DistributedCoordinator {
+
+    /**
+     * Side of the tiles sent to the workers, in pixels.
+     */
+    public static final int DEFAULT_TILE_SIZE = 256;
+    /**
+     * Number of times a tile is sent before giving up on the image.
+     */
+    public static final int DEFAULT_MAX_ATTEMPTS = 3;
+    /**
+     * Requests in flight on each connection, so a worker has the next tile
+     * at hand while the previous result travels back.
+     */
+    private static final int WINDOW = 2;
+    /**
+     * Time allowed to connect to a worker, in milliseconds.
+     */
+    private static final int CONNECT_TIMEOUT_MS = 5000;
+    /**
+     * Time allowed for a worker to answer, in milliseconds, after which it
+     * is considered dead.
+     */
+    private static final int READ_TIMEOUT_MS = 30000;
+
+    private final List<InetSocketAddress> workers;
+    private final int tileSize;
+    private final int maxAttempts;
+
+    /**
+     * Constructs a coordinator.
+     *
+     * @param workers     the addresses of the worker nodes
+     * @param tileSize    the side of the tiles, in pixels
+     * @param maxAttempts the number of times a tile is sent before failing
+     * @throws IllegalArgumentException if there are no workers or the tile
+     *                                  size or attempts are not positive
+     */
+    public DistributedCoordinator(List<InetSocketAddress> workers, int tileSize, int maxAttempts) {
+        if (workers.isEmpty()) {
+            throw new IllegalArgumentException("At least one worker is required");
+        }
+        if (tileSize <= 0) {
+            throw new IllegalArgumentException("Tile size must be positive: " + tileSize);
+        }
+        if (maxAttempts <= 0) {
+            throw new IllegalArgumentException("Attempts must be positive: " + maxAttempts);
+        }
+        this.workers = List.copyOf(workers);
+        this.tileSize = tileSize;
+        this.maxAttempts = maxAttempts;
+    }
+
+    /**
+     * Converts an image to grayscale in place on the worker nodes. Blocks
+     * until every tile has been stitched back.
+     *
+     * @param image      the image to process
+     * @param conversion "average" or the name of predefined luminance weights
+     * @throws IOException              if a tile could not be processed by
+     *                                  any worker
+     * @throws InterruptedException     if interrupted while waiting for the workers
+     * @throws IllegalArgumentException if the image has a custom layout, which
+     *                                  the workers cannot rebuild
+     */
+    public void process(BufferedImage image, String conversion) throws IOException, InterruptedException {
+        if (image.getType() == BufferedImage.TYPE_CUSTOM) {
+            throw new IllegalArgumentException("Custom image types cannot be processed remotely");
+        }
+        List<Tile> tiles = new ArrayList<>();
+        for (int y = 0; y < image.getHeight(); y += tileSize) {
+            for (int x = 0; x < image.getWidth(); x += tileSize) {
+                tiles.add(new Tile(tiles.size(), new Rectangle(x, y,
+                        Math.min(tileSize, image.getWidth() - x), Math.min(tileSize, image.getHeight() - y))));
+            }
+        }
+        TileQueues queues = new TileQueues(workers.size(), tiles);
+        int[] processed = new int[workers.size()];
+        Socket[] sockets = new Socket[workers.size()];
+
+        List<Thread> links = new ArrayList<>();
+        for (int worker = 0; worker < workers.size(); worker++) {
+            final int index = worker;
+            Thread link = new Thread(() -> runLink(index, image, conversion, queues, sockets, processed),
+                    "link-" + workers.get(worker));
+            links.add(link);
+            link.start();
+        }
+
+        String failure;
+        try {
+            failure = queues.awaitCompletion();
+        } finally {
+            // Unblocks the links still waiting for an answer after a failure
+            synchronized (sockets) {
+                for (Socket socket : sockets) {
+                    closeQuietly(socket);
+                }
+            }
+            for (Thread link : links) {
+                link.join();
+            }
+        }
+        if (failure != null) {
+            throw new IOException(failure);
+        }
+        for (int worker = 0; worker < workers.size(); worker++) {
+            System.out.println("[Coordinator] " + workers.get(worker) + " processed " + processed[worker] + " tiles");
+        }
+    }
+
+    /**
+     * Link thread: connects to a worker and exchanges tiles with it until
+     * there are none left or the worker fails.
+     */
+    private void runLink(int worker, BufferedImage image, String conversion, TileQueues queues,
+            Socket[] sockets, int[] processed) {
+        WritableRaster raster = image.getRaster();
+        Deque<Tile> inFlight = new ArrayDeque<>();
+        try (Socket socket = new Socket()) {
+            synchronized (sockets) {
+                sockets[worker] = socket;
+            }
+            socket.connect(workers.get(worker), CONNECT_TIMEOUT_MS);
+            socket.setSoTimeout(READ_TIMEOUT_MS);
+            socket.setTcpNoDelay(true);
+            DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+
+            while (true) {
+                while (inFlight.size() < WINDOW) {
+                    Tile tile = inFlight.isEmpty() ? queues.take(worker) : queues.poll(worker);
+                    if (tile == null) {
+                        break;
+                    }
+                    Rectangle area = tile.area;
+                    TileProtocol.writeTile(out, tile.id, image.getType(), conversion, area.width, area.height,
+                            raster.getDataElements(area.x, area.y, area.width, area.height, null));
+                    inFlight.addLast(tile);
+                }
+                if (inFlight.isEmpty()) {
+                    return;
+                }
+                out.flush();
+
+                TileProtocol.TileResponse response = TileProtocol.readResponse(in);
+                Tile tile = inFlight.peekFirst();
+                if (response.id() != tile.id) {
+                    throw new IOException("Expected tile " + tile.id + ", got " + response.id());
+                }
+                inFlight.removeFirst();
+                if (response.error() != null) {
+                    queues.retry(worker, tile, response.error());
+                    continue;
+                }
+                Rectangle area = tile.area;
+                raster.setDataElements(area.x, area.y, area.width, area.height, TileProtocol.decode(
+                        response.data(), raster.getTransferType(),
+                        area.width * area.height * raster.getNumDataElements()));
+                processed[worker]++;
+                queues.complete();
+            }
+        } catch (IOException e) {
+            final String reason = e instanceof EOFException ? "connection closed" : e.getMessage();
+            System.err.println("[Coordinator] Worker " + workers.get(worker) + " failed: " + reason);
+            queues.workerFailed(worker, inFlight, workers.get(worker) + ": " + reason);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            queues.workerFailed(worker, inFlight, "interrupted");
+        }
+    }
+
+    /**
+     * Closes a socket, ignoring errors.
+     */
+    private static void closeQuietly(Socket socket) {
+        if (socket == null) {
+            return;
+        }
+        try {
+            socket.close();
+        } catch (IOException e) {
+            // The link reports its own failure
+        }
+    }
+
+    /**
+     * Tile of the image and its delivery state, guarded by the queues.
+     */
+    private static final class Tile {
+
+        private final int id;
+        private final Rectangle area;
+        private int attempts;
+        /**
+         * Workers that answered the tile with an error or died with it in
+         * flight.
+         */
+        private final BitSet failedOn = new BitSet();
+
+        /**
+         * Constructs a tile.
+         *
+         * @param id   the id sent to the workers
+         * @param area the area of the image
+         */
+        private Tile(int id, Rectangle area) {
+            this.id = id;
+            this.area = area;
+        }
+    }
+
+    /**
+     * Pending tiles of every worker, with work stealing and retries. All
+     * methods are synchronized on the instance.
+     */
+    private final class TileQueues {
+
+        private final List<Deque<Tile>> pending = new ArrayList<>();
+        private final boolean[] alive;
+        private int remaining;
+        private String failure;
+
+        /**
+         * Deals the tiles round robin to the workers.
+         *
+         * @param workerCount the number of workers
+         * @param tiles       the tiles of the image
+         */
+        private TileQueues(int workerCount, List<Tile> tiles) {
+            alive = new boolean[workerCount];
+            for (int worker = 0; worker < workerCount; worker++) {
+                pending.add(new ArrayDeque<>());
+                alive[worker] = true;
+            }
+            for (Tile tile : tiles) {
+                pending.get(tile.id % workerCount).addLast(tile);
+            }
+            remaining = tiles.size();
+        }
+
+        /**
+         * Takes the next tile for a worker, waiting while other workers may
+         * still hand some back.
+         *
+         * @param worker the worker
+         * @return the tile, or null once the image is finished or has failed
+         * @throws InterruptedException if interrupted while waiting
+         */
+        private synchronized Tile take(int worker) throws InterruptedException {
+            while (true) {
+                if (failure != null || remaining == 0) {
+                    return null;
+                }
+                Tile tile = poll(worker);
+                if (tile != null) {
+                    return tile;
+                }
+                wait();
+            }
+        }
+
+        /**
+         * Takes the next tile of a worker's queue or, if it is empty, steals
+         * the last tile of the longest queue, skipping tiles that already
+         * failed on this worker.
+         *
+         * @param worker the worker
+         * @return the tile, or null if there is none available now
+         */
+        private synchronized Tile poll(int worker) {
+            if (failure != null) {
+                return null;
+            }
+            Tile tile = pending.get(worker).pollFirst();
+            if (tile != null) {
+                return tile;
+            }
+            Deque<Tile> victim = null;
+            for (Deque<Tile> queue : pending) {
+                if (!queue.isEmpty() && !queue.peekLast().failedOn.get(worker)
+                        && (victim == null || queue.size() > victim.size())) {
+                    victim = queue;
+                }
+            }
+            return victim == null ? null : victim.pollLast();
+        }
+
+        /**
+         * Records a stitched tile.
+         */
+        private synchronized void complete() {
+            remaining--;
+            notifyAll();
+        }
+
+        /**
+         * Hands a tile reported as failed to another worker.
+         *
+         * @param worker the worker that failed it
+         * @param tile   the tile
+         * @param reason the error reported by the worker
+         */
+        private synchronized void retry(int worker, Tile tile, String reason) {
+            requeue(worker, tile, reason, true);
+            notifyAll();
+        }
+
+        /**
+         * Marks a worker as dead and moves its tiles, including the ones it
+         * had in flight, to the workers still alive.
+         *
+         * @param worker   the worker
+         * @param inFlight the tiles sent but not answered
+         * @param reason   the cause of the failure
+         */
+        private synchronized void workerFailed(int worker, Deque<Tile> inFlight, String reason) {
+            alive[worker] = false;
+            Deque<Tile> queue = pending.get(worker);
+            while (!queue.isEmpty()) {
+                requeue(worker, queue.pollFirst(), reason, false);
+            }
+            for (Tile tile : inFlight) {
+                requeue(worker, tile, reason, true);
+            }
+            boolean anyAlive = false;
+            for (boolean live : alive) {
+                anyAlive |= live;
+            }
+            if (!anyAlive && remaining > 0 && failure == null) {
+                failure = "No worker left: " + reason;
+            }
+            notifyAll();
+        }
+
+        /**
+         * Waits until every tile is stitched or the image has failed.
+         *
+         * @return the failure, or null if every tile was processed
+         * @throws InterruptedException if interrupted while waiting
+         */
+        private synchronized String awaitCompletion() throws InterruptedException {
+            try {
+                while (failure == null && remaining > 0) {
+                    wait();
+                }
+            } catch (InterruptedException e) {
+                failure = "interrupted";
+                notifyAll();
+                throw e;
+            }
+            return failure;
+        }
+
+        /**
+         * Puts a tile in the shortest queue of the other live workers, leaving
+         * out the ones it already failed on unless no other is left, or back
+         * in the queue of the same worker if it is the only one left. A tile
+         * that was delivered counts as a failed attempt.
+         */
+        private void requeue(int worker, Tile tile, String reason, boolean delivered) {
+            if (failure != null) {
+                return;
+            }
+            if (delivered) {
+                tile.failedOn.set(worker);
+                if (++tile.attempts >= maxAttempts) {
+                    failure = "Tile " + tile.id + " at " + tile.area.x + "," + tile.area.y + " failed after "
+                            + tile.attempts + " attempts: " + reason;
+                    return;
+                }
+            }
+            int target = shortestQueue(worker, tile.failedOn);
+            if (target < 0) {
+                target = shortestQueue(worker, new BitSet());
+            }
+            if (target < 0 && alive[worker]) {
+                target = worker;
+            }
+            if (target < 0) {
+                failure = "No worker left to process tile " + tile.id + ": " + reason;
+                return;
+            }
+            pending.get(target).addLast(tile);
+        }
+
+        /**
+         * Finds the live worker with the shortest queue other than the given
+         * one and the excluded ones.
+         *
+         * @return the worker, or -1 if there is none
+         */
+        private int shortestQueue(int worker, BitSet excluded) {
+            int target = -1;
+            for (int other = 0; other < alive.length; other++) {
+                if (alive[other] && other != worker && !excluded.get(other)
+                        && (target < 0 || pending.get(other).size() < pending.get(target).size())) {
+                    target = other;
+                }
+            }
+            return target;
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package com.sistemasdistribuidos.thread.image.processing;
+
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+
+/**
+ * Image processor that halves the size of an image with a 2x2 area-average
+ * filter. Works on an area of the destination image, reading the matching
+ * area of twice the size from the source. When the source has an odd width
+ * or height, the last column or row of the destination averages the pixels
+ * that exist. Alpha is averaged, and the colors are weighted by the alpha of
+ * each pixel, as an average in premultiplied space would do, so the color
+ * of transparent pixels does not bleed into the visible ones.
+ *
+ * @author mariovillacortagarcia
+ */
+public class DownsampleProcessor implements Runnable {
+
+    private final BufferedImage source;
+    private final BufferedImage destination;
+    private final Rectangle area;
+
+    /**
+     * Constructs a new downsample processor for the specified area.
+     *
+     * @param source      the image to read
+     * @param destination the image to write, half the size of the source
+     *                    rounded up
+     * @param area        the rectangular area of the destination that will
+     *                    be processed
+     */
+    public DownsampleProcessor(BufferedImage source, BufferedImage destination, Rectangle area) {
+        this.source = source;
+        this.destination = destination;
+        this.area = area;
+    }
+
+    /**
+     * Averages the source pixels of every pixel of the assigned area and
+     * writes them to the destination image.
+     */
+    @Override
+    public void run() {
+        final Rectangle sourceArea = new Rectangle(2 * area.x, 2 * area.y,
+                Math.min(2 * area.width, source.getWidth() - 2 * area.x),
+                Math.min(2 * area.height, source.getHeight() - 2 * area.y));
+        final int[] input = TileBuffers.read(source, sourceArea);
+        final int[] output = new int[area.width * area.height];
+
+        for (int y = 0; y < area.height; y++) {
+            final int top = 2 * y * sourceArea.width;
+            final int bottom = 2 * y + 1 < sourceArea.height ? top + sourceArea.width : top;
+            for (int x = 0; x < area.width; x++) {
+                final int left = 2 * x;
+                final int right = left + 1 < sourceArea.width ? left + 1 : left;
+                output[y * area.width + x] = average(input[top + left], input[top + right],
+                        input[bottom + left], input[bottom + right]);
+            }
+        }
+        TileBuffers.write(destination, area, output);
+    }
+
+    /**
+     * Averages four packed ARGB pixels, weighting the colors by alpha. Edge
+     * pixels are passed twice, which gives the same result as averaging the
+     * ones that exist. For opaque pixels this is the plain rounded average.
+     *
+     * @return the rounded average as a packed ARGB value
+     */
+    private static int average(int a, int b, int c, int d) {
+        final int alphaA = a >>> 24;
+        final int alphaB = b >>> 24;
+        final int alphaC = c >>> 24;
+        final int alphaD = d >>> 24;
+        final int alphaSum = alphaA + alphaB + alphaC + alphaD;
+        if (alphaSum == 0) {
+            return 0;
+        }
+        int result = ((alphaSum + 2) >> 2) << 24;
+        for (int shift = 0; shift < 24; shift += 8) {
+            final int sum = ((a >>> shift) & 0xFF) * alphaA + ((b >>> shift) & 0xFF) * alphaB
+                    + ((c >>> shift) & 0xFF) * alphaC + ((d >>> shift) & 0xFF) * alphaD;
+            result |= ((sum + alphaSum / 2) / alphaSum) << shift;
+        }
+        return result;
+    }
+}
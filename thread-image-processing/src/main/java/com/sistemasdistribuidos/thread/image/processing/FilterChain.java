@@ -0,0 +1,229 @@
+package com.sistemasdistribuidos.thread.image.processing;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Ordered chain of per-pixel filters. The chain is fused before running it:
+ * consecutive lookup filters are merged into a single table, and all the
+ * stages are applied to each pixel in one pass, so a chain of several
+ * filters reads and writes the image memory only once.
+ *
+ * A chain can also be described with a comma separated specification such as
+ * {@code "brightness=20,contrast=1.2,gamma=2.2,invert,threshold=128,swap=BGR,grayscale"}.
+ *
+ * @author mariovillacortagarcia
+ */
+public class FilterChain {
+
+    private static final int MAX_LEVEL = 255;
+    private static final String CHANNELS = "RGB";
+
+    private final List<PixelFilter> filters = new ArrayList<>();
+    private final List<String> steps = new ArrayList<>();
+
+    /**
+     * Parses a chain specification.
+     *
+     * @param spec comma separated steps, each one {@code name} or {@code name=value}
+     * @return the chain
+     * @throws IllegalArgumentException if a step is unknown or malformed
+     */
+    public static FilterChain parse(String spec) {
+        FilterChain chain = new FilterChain();
+        for (String step : spec.split(",")) {
+            String trimmed = step.trim();
+            if (trimmed.isEmpty()) {
+                continue;
+            }
+            int equals = trimmed.indexOf('=');
+            String name = (equals < 0 ? trimmed : trimmed.substring(0, equals)).toLowerCase(Locale.ROOT);
+            String value = equals < 0 ? null : trimmed.substring(equals + 1);
+            try {
+                switch (name) {
+                    case "brightness" -> chain.brightness(Integer.parseInt(requireValue(name, value)));
+                    case "contrast" -> chain.contrast(Double.parseDouble(requireValue(name, value)));
+                    case "gamma" -> chain.gamma(Double.parseDouble(requireValue(name, value)));
+                    case "invert" -> chain.invert();
+                    case "threshold" -> chain.threshold(Integer.parseInt(requireValue(name, value)));
+                    case "swap" -> chain.swapChannels(requireValue(name, value));
+                    case "grayscale" -> chain.grayscale();
+                    default -> throw new IllegalArgumentException("Unknown filter: " + name);
+                }
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Invalid value for " + name + ": " + value, e);
+            }
+        }
+        return chain;
+    }
+
+    /**
+     * Adds a constant to every color channel.
+     *
+     * @param offset the value added, may be negative
+     * @return this chain
+     */
+    public FilterChain brightness(int offset) {
+        return add("brightness=" + offset, LookupFilter.brightness(offset));
+    }
+
+    /**
+     * Scales every color channel around the middle level.
+     *
+     * @param factor the contrast factor, 1 leaves the image unchanged
+     * @return this chain
+     */
+    public FilterChain contrast(double factor) {
+        return add("contrast=" + factor, LookupFilter.contrast(factor));
+    }
+
+    /**
+     * Applies a gamma correction to every color channel.
+     *
+     * @param gamma the gamma value, greater than 1 brightens the image
+     * @return this chain
+     */
+    public FilterChain gamma(double gamma) {
+        return add("gamma=" + gamma, LookupFilter.gamma(gamma));
+    }
+
+    /**
+     * Inverts every color channel.
+     *
+     * @return this chain
+     */
+    public FilterChain invert() {
+        return add("invert", LookupFilter.invert());
+    }
+
+    /**
+     * Turns pixels white when the average of their color channels reaches the
+     * level, and black otherwise.
+     *
+     * @param level the threshold level, from 0 to 255
+     * @return this chain
+     */
+    public FilterChain threshold(int level) {
+        return add("threshold=" + level, argb -> {
+            int sum = ((argb >> 16) & MAX_LEVEL) + ((argb >> 8) & MAX_LEVEL) + (argb & MAX_LEVEL);
+            return (argb & 0xFF000000) | (sum >= level * 3 ? 0xFFFFFF : 0);
+        });
+    }
+
+    /**
+     * Reorders the color channels. The order names the source channel of the
+     * red, green and blue output channels: "BGR" swaps red and blue.
+     *
+     * @param order a permutation of the letters R, G and B
+     * @return this chain
+     * @throws IllegalArgumentException if the order is not a permutation of RGB
+     */
+    public FilterChain swapChannels(String order) {
+        String upper = order.toUpperCase(Locale.ROOT);
+        if (upper.length() != 3 || upper.chars().distinct().count() != 3
+                || !upper.chars().allMatch(c -> CHANNELS.indexOf(c) >= 0)) {
+            throw new IllegalArgumentException("Channel order must be a permutation of RGB: " + order);
+        }
+        final int redShift = 16 - 8 * CHANNELS.indexOf(upper.charAt(0));
+        final int greenShift = 16 - 8 * CHANNELS.indexOf(upper.charAt(1));
+        final int blueShift = 16 - 8 * CHANNELS.indexOf(upper.charAt(2));
+        return add("swap=" + upper, argb -> (argb & 0xFF000000)
+                | ((argb >> redShift) & MAX_LEVEL) << 16
+                | ((argb >> greenShift) & MAX_LEVEL) << 8
+                | ((argb >> blueShift) & MAX_LEVEL));
+    }
+
+    /**
+     * Replaces the color channels with their average. Alpha is left untouched.
+     *
+     * @return this chain
+     */
+    public FilterChain grayscale() {
+        return add("grayscale", argb -> {
+            int gray = (((argb >> 16) & MAX_LEVEL) + ((argb >> 8) & MAX_LEVEL) + (argb & MAX_LEVEL)) / 3;
+            return (argb & 0xFF000000) | gray * 0x010101;
+        });
+    }
+
+    /**
+     * Adds a custom filter at the end of the chain.
+     *
+     * @param step   the description of the step, used by {@link #toString()}
+     * @param filter the filter
+     * @return this chain
+     */
+    public FilterChain add(String step, PixelFilter filter) {
+        steps.add(step);
+        filters.add(filter);
+        return this;
+    }
+
+    /**
+     * Checks whether the chain has no filters.
+     *
+     * @return true if the chain is empty
+     */
+    public boolean isEmpty() {
+        return filters.isEmpty();
+    }
+
+    /**
+     * Fuses the chain into a single filter. Consecutive lookup filters are
+     * merged into one table.
+     *
+     * @return the fused filter
+     */
+    public PixelFilter fuse() {
+        List<PixelFilter> stages = new ArrayList<>();
+        for (PixelFilter filter : filters) {
+            int last = stages.size() - 1;
+            if (filter instanceof LookupFilter lookup && last >= 0
+                    && stages.get(last) instanceof LookupFilter previous) {
+                stages.set(last, previous.andThen(lookup));
+            } else {
+                stages.add(filter);
+            }
+        }
+
+        if (stages.isEmpty()) {
+            return argb -> argb;
+        }
+        if (stages.size() == 1) {
+            return stages.get(0);
+        }
+        final PixelFilter[] fused = stages.toArray(new PixelFilter[0]);
+        return argb -> {
+            for (PixelFilter stage : fused) {
+                argb = stage.apply(argb);
+            }
+            return argb;
+        };
+    }
+
+    /**
+     * Gets the specification of the chain, which {@link #parse(String)}
+     * accepts back.
+     *
+     * @return the comma separated steps
+     */
+    @Override
+    public String toString() {
+        return String.join(",", steps);
+    }
+
+    /**
+     * Checks that a step has a value.
+     *
+     * @param name  the name of the step
+     * @param value the value of the step
+     * @return the value
+     * @throws IllegalArgumentException if the value is missing
+     */
+    private static String requireValue(String name, String value) {
+        if (value == null || value.isBlank()) {
+            throw new IllegalArgumentException("Filter " + name + " needs a value");
+        }
+        return value.trim();
+    }
+}
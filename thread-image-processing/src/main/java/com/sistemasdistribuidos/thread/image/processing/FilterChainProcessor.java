@@ -0,0 +1,122 @@
+package com.sistemasdistribuidos.thread.image.processing;
+
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+
+/**
+ * Image processor that applies a fused filter chain to a specific area of an
+ * image. Each pixel of the area is read once, goes through every stage of the
+ * chain and is written once. Works directly on the backing array for the
+ * common layouts and falls back to {@link BufferedImage#getRGB} otherwise.
+ *
+ * @author mariovillacortagarcia
+ */
+public class FilterChainProcessor implements Runnable {
+
+    private static final int STANDARD_RED_SHIFT = 16;
+    private static final int STANDARD_GREEN_SHIFT = 8;
+    private static final int STANDARD_BLUE_SHIFT = 0;
+
+    private final BufferedImage image;
+    private final Rectangle area;
+    private final PixelFilter filter;
+
+    /**
+     * Constructs a new filter chain processor for the specified area.
+     *
+     * @param image  the image to process
+     * @param area   the rectangular area of the image that will be processed
+     * @param filter the fused filter chain, see {@link FilterChain#fuse()}
+     */
+    public FilterChainProcessor(BufferedImage image, Rectangle area, PixelFilter filter) {
+        this.image = image;
+        this.area = area;
+        this.filter = filter;
+    }
+
+    /**
+     * Applies the filter to every pixel of the assigned area.
+     */
+    @Override
+    public void run() {
+        DirectRaster direct = DirectRaster.ofArgb(image);
+        if (direct == null) {
+            processWithColorModel();
+        } else if (isStandardPackedRgb(direct)) {
+            processStandardPacked(direct);
+        } else {
+            processDirect(direct);
+        }
+    }
+
+    /**
+     * Checks whether the raster stores 0x??RRGGBB ints, so pixels can be passed
+     * to the filter without unpacking them.
+     *
+     * @param direct the direct view of the raster
+     * @return true for TYPE_INT_RGB and TYPE_INT_ARGB layouts
+     */
+    private static boolean isStandardPackedRgb(DirectRaster direct) {
+        int[] shifts = direct.getBandPositions();
+        return direct.getLayout() == DirectRaster.Layout.PACKED_INT
+                && direct.getNumBands() >= 3
+                && shifts[0] == STANDARD_RED_SHIFT
+                && shifts[1] == STANDARD_GREEN_SHIFT
+                && shifts[2] == STANDARD_BLUE_SHIFT;
+    }
+
+    /**
+     * Processes an area of a TYPE_INT_RGB or TYPE_INT_ARGB raster.
+     *
+     * @param direct the direct view of the raster
+     */
+    private void processStandardPacked(DirectRaster direct) {
+        final int[] data = direct.getInts();
+        final int bandsMask = direct.getBandsMask();
+        final int opaque = direct.getNumBands() == 4 ? 0 : 0xFF000000;
+        final int maxY = area.y + area.height;
+
+        for (int y = area.y; y < maxY; y++) {
+            final int start = direct.indexOf(area.x, y);
+            final int end = start + area.width;
+            for (int i = start; i < end; i++) {
+                final int pixel = data[i];
+                data[i] = (pixel & ~bandsMask) | (filter.apply(pixel | opaque) & bandsMask);
+            }
+        }
+    }
+
+    /**
+     * Processes an area of any other directly accessible raster.
+     *
+     * @param direct the direct view of the raster
+     */
+    private void processDirect(DirectRaster direct) {
+        final int pixelStride = direct.getPixelStride();
+        final int maxY = area.y + area.height;
+
+        for (int y = area.y; y < maxY; y++) {
+            final int start = direct.indexOf(area.x, y);
+            final int end = start + area.width * pixelStride;
+            for (int i = start; i < end; i += pixelStride) {
+                direct.setArgb(i, filter.apply(direct.getArgb(i)));
+            }
+        }
+    }
+
+    /**
+     * Processes the area row by row through the color model of the image.
+     */
+    private void processWithColorModel() {
+        final int[] row = new int[area.width];
+        final int maxY = area.y + area.height;
+
+        for (int y = area.y; y < maxY; y++) {
+            image.getRGB(area.x, y, area.width, 1, row, 0, area.width);
+            for (int x = 0; x < row.length; x++) {
+                row[x] = filter.apply(row[x]);
+            }
+            image.setRGB(area.x, y, area.width, 1, row, 0, area.width);
+        }
+    }
+}
@@ -0,0 +1,271 @@
+package com.sistemasdistribuidos.thread.image.processing;
+
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Work-stealing scheduler that processes an image in small tiles using a
+ * {@link ForkJoinPool}. The image is split recursively in halves until every
+ * tile fits the configured tile size, so idle workers can steal the pending
+ * halves instead of waiting for a single slow area to finish.
+ *
+ * @author mariovillacortagarcia
+ */
+public class ForkJoinTileScheduler implements AutoCloseable {
+
+    /**
+     * Default maximum tile side in pixels. A 64x64 tile of 4-byte pixels is
+     * 16 KB, which fits comfortably in the L1 data cache of current cores.
+     */
+    public static final int DEFAULT_TILE_SIZE = 64;
+
+    private final ForkJoinPool pool;
+    private final int tileWidth;
+    private final int tileHeight;
+
+    /**
+     * Constructs a scheduler with one worker per available processor and the
+     * default tile size.
+     */
+    public ForkJoinTileScheduler() {
+        this(Runtime.getRuntime().availableProcessors(), DEFAULT_TILE_SIZE);
+    }
+
+    /**
+     * Constructs a scheduler with the given parallelism and tile size.
+     *
+     * @param parallelism the number of worker threads of the pool
+     * @param tileSize    the maximum width and height of a tile in pixels
+     * @throws IllegalArgumentException if any argument is not positive
+     */
+    public ForkJoinTileScheduler(int parallelism, int tileSize) {
+        this(parallelism, tileSize, tileSize);
+    }
+
+    /**
+     * Constructs a scheduler with the given parallelism and tile shape. A
+     * tile width of {@link Integer#MAX_VALUE} processes the image in full
+     * width strips of at most tileHeight rows.
+     *
+     * @param parallelism the number of worker threads of the pool
+     * @param tileWidth   the maximum width of a tile in pixels
+     * @param tileHeight  the maximum height of a tile in pixels
+     * @throws IllegalArgumentException if any argument is not positive
+     */
+    public ForkJoinTileScheduler(int parallelism, int tileWidth, int tileHeight) {
+        if (parallelism <= 0) {
+            throw new IllegalArgumentException("Parallelism must be positive: " + parallelism);
+        }
+        if (tileWidth <= 0 || tileHeight <= 0) {
+            throw new IllegalArgumentException("Tile sizes must be positive: " + tileWidth + "x" + tileHeight);
+        }
+        this.pool = new ForkJoinPool(parallelism);
+        this.tileWidth = tileWidth;
+        this.tileHeight = tileHeight;
+    }
+
+    /**
+     * Processes the whole image, running the processor created by the factory
+     * for every tile. Blocks until all the tiles have been processed.
+     *
+     * @param image            the image to process
+     * @param processorFactory creates the processor for a given tile
+     */
+    public void process(BufferedImage image, Function<Rectangle, Runnable> processorFactory) {
+        process(image.getWidth(), image.getHeight(), processorFactory);
+    }
+
+    /**
+     * Processes an area of the given size starting at the origin, running the
+     * processor created by the factory for every tile. Blocks until all the
+     * tiles have been processed.
+     *
+     * @param width            the width of the area
+     * @param height           the height of the area
+     * @param processorFactory creates the processor for a given tile
+     */
+    public void process(int width, int height, Function<Rectangle, Runnable> processorFactory) {
+        pool.invoke(new TileTask(new Rectangle(0, 0, width, height), processorFactory));
+    }
+
+    /**
+     * Processes several areas, splitting each one into tiles and running the
+     * processor created by the factory for every tile. The areas must not
+     * overlap if their processors write. Blocks until all the tiles have been
+     * processed.
+     *
+     * @param areas            the areas to process
+     * @param processorFactory creates the processor for a given tile
+     */
+    public void process(List<Rectangle> areas, Function<Rectangle, Runnable> processorFactory) {
+        List<TileTask> tasks = new ArrayList<>();
+        for (Rectangle area : areas) {
+            tasks.add(new TileTask(area, processorFactory));
+        }
+        pool.invoke(ForkJoinTask.adapt(() -> ForkJoinTask.invokeAll(tasks)));
+    }
+
+    /**
+     * Processes the whole image in the background, running the processor
+     * created by the factory for every tile. Returns at once with a future
+     * that completes with the image when every tile has been processed, or
+     * exceptionally if a processor or the listener fails.
+     *
+     * The tiles are queued in rows from the top of the image, so the first
+     * rows are finished first, and the listener is told about each one as
+     * soon as it is done, to render or save it before the rest of the image.
+     * Cancelling the future stops the job: the tiles not yet started are
+     * skipped and only the tiles already running, at most one per worker,
+     * are finished.
+     *
+     * @param image            the image to process
+     * @param processorFactory creates the processor for a given tile
+     * @param listener         receives every finished tile, on the worker
+     *                         that processed it; it must be thread-safe
+     * @return the future result, which may be cancelled
+     */
+    public CompletableFuture<BufferedImage> processAsync(BufferedImage image,
+            Function<Rectangle, Runnable> processorFactory, Consumer<Rectangle> listener) {
+        CompletableFuture<BufferedImage> result = new CompletableFuture<>();
+        List<Rectangle> tiles = new ArrayList<>();
+        for (int y = 0; y < image.getHeight(); y += tileHeight) {
+            final int height = Math.min(tileHeight, image.getHeight() - y);
+            for (int x = 0, width; x < image.getWidth(); x += width) {
+                width = Math.min(tileWidth, image.getWidth() - x);
+                tiles.add(new Rectangle(x, y, width, height));
+            }
+        }
+        if (tiles.isEmpty()) {
+            result.complete(image);
+            return result;
+        }
+
+        AtomicInteger remaining = new AtomicInteger(tiles.size());
+        for (Rectangle tile : tiles) {
+            pool.execute(() -> {
+                if (result.isDone()) {
+                    return;
+                }
+                try {
+                    processorFactory.apply(tile).run();
+                    listener.accept(tile);
+                } catch (Throwable t) {
+                    // Errors too, or the future would never complete
+                    result.completeExceptionally(t);
+                    return;
+                }
+                if (remaining.decrementAndGet() == 0) {
+                    result.complete(image);
+                }
+            });
+        }
+        return result;
+    }
+
+    /**
+     * Gets the number of worker threads of the pool.
+     *
+     * @return the parallelism level
+     */
+    public int getParallelism() {
+        return pool.getParallelism();
+    }
+
+    /**
+     * Gets the maximum height of a tile, which is also its maximum width when
+     * the tiles are square.
+     *
+     * @return the tile size in pixels
+     */
+    public int getTileSize() {
+        return tileHeight;
+    }
+
+    /**
+     * Gets the maximum width of a tile.
+     *
+     * @return the tile width in pixels
+     */
+    public int getTileWidth() {
+        return tileWidth;
+    }
+
+    /**
+     * Gets the maximum height of a tile.
+     *
+     * @return the tile height in pixels
+     */
+    public int getTileHeight() {
+        return tileHeight;
+    }
+
+    /**
+     * Shuts down the worker pool. Tasks already submitted are completed.
+     */
+    @Override
+    public void close() {
+        pool.shutdown();
+    }
+
+    /**
+     * Recursive task that splits its area along the longest side that exceeds
+     * the tile shape until it is small enough, then processes it directly.
+     * The processor of a leaf tile is created when the task is forked, so the
+     * time a tile waits in the work queues is visible to the processors.
+     */
+    private class TileTask extends RecursiveAction {
+
+        private final Rectangle area;
+        private final Function<Rectangle, Runnable> processorFactory;
+        private final Runnable processor;
+
+        /**
+         * Constructs a task for the specified area.
+         *
+         * @param area             the area covered by this task
+         * @param processorFactory creates the processor for a leaf tile
+         */
+        TileTask(Rectangle area, Function<Rectangle, Runnable> processorFactory) {
+            this.area = area;
+            this.processorFactory = processorFactory;
+            this.processor = area.width <= tileWidth && area.height <= tileHeight
+                    ? processorFactory.apply(area)
+                    : null;
+        }
+
+        /**
+         * Processes the area if it fits in a tile, otherwise forks two halves.
+         */
+        @Override
+        protected void compute() {
+            if (processor != null) {
+                processor.run();
+                return;
+            }
+
+            final boolean wide = area.width > tileWidth;
+            final boolean tall = area.height > tileHeight;
+            Rectangle first;
+            Rectangle second;
+            if (wide && (!tall || area.width >= area.height)) {
+                int half = area.width / 2;
+                first = new Rectangle(area.x, area.y, half, area.height);
+                second = new Rectangle(area.x + half, area.y, area.width - half, area.height);
+            } else {
+                int half = area.height / 2;
+                first = new Rectangle(area.x, area.y, area.width, half);
+                second = new Rectangle(area.x, area.y + half, area.width, area.height - half);
+            }
+            invokeAll(new TileTask(first, processorFactory), new TileTask(second, processorFactory));
+        }
+    }
+}
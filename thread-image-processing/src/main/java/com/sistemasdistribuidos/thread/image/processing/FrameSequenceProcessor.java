@@ -0,0 +1,290 @@
+package com.sistemasdistribuidos.thread.image.processing;
+
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageTypeSpecifier;
+
+/**
+ * Converts a numbered sequence of frames to grayscale, in name order, in a
+ * single run. A decoder thread reads the next frame while the current one is
+ * processed over a {@link ForkJoinTileScheduler}, and an encoder thread
+ * writes the previous result, so disk I/O overlaps with the CPU work.
+ *
+ * Consecutive frames of a sequence are mostly the same picture. Every tile
+ * of a frame is compared with the same tile of the previous frame, and when
+ * their pixels are byte-identical the previous result is copied instead of
+ * converting the tile again. Frames and results are borrowed from a
+ * {@link BufferPool}, so a sequence of same-sized frames allocates its
+ * buffers only for the first few frames.
+ *
+ * @author mariovillacortagarcia
+ */
+public class FrameSequenceProcessor {
+
+    /**
+     * Number of frames decoded ahead of the one being processed, and of
+     * results waiting to be encoded.
+     */
+    private static final int QUEUE_CAPACITY = 1;
+
+    /**
+     * Number of images of each kind that can be alive at once: the previous
+     * frame, the current one, the queued ones and the one being decoded or
+     * encoded.
+     */
+    private static final int FRAMES_IN_FLIGHT = QUEUE_CAPACITY + 3;
+
+    /**
+     * Marker that tells a worker that the sequence has ended.
+     */
+    private static final Frame END_OF_SEQUENCE = new Frame(null, null, null);
+
+    private final ForkJoinTileScheduler scheduler;
+    private final LuminanceWeights weights;
+    private final BufferPool pool = new BufferPool(2 * FRAMES_IN_FLIGHT);
+    private final AtomicInteger tiles = new AtomicInteger();
+    private final AtomicInteger skippedTiles = new AtomicInteger();
+
+    /**
+     * Constructs a processor that runs the tiles of every frame on a
+     * scheduler.
+     *
+     * @param scheduler the scheduler that converts the tiles
+     * @param weights   the luminance weights, or null to average all the bands
+     */
+    public FrameSequenceProcessor(ForkJoinTileScheduler scheduler, LuminanceWeights weights) {
+        this.scheduler = scheduler;
+        this.weights = weights;
+    }
+
+    /**
+     * Processes every readable image of the input directory in name order and
+     * writes the results to the output directory under the same names.
+     * Frames that fail are reported and skipped.
+     *
+     * @param inputDir  the directory with the frames
+     * @param outputDir the directory where the results are written
+     * @return the number of frames written
+     * @throws IOException          if the directories cannot be accessed
+     * @throws InterruptedException if interrupted while waiting for the workers
+     */
+    public int run(Path inputDir, Path outputDir) throws IOException, InterruptedException {
+        Files.createDirectories(outputDir);
+        List<Path> frames = BatchPipeline.listImages(inputDir);
+        System.out.println("Sequence of " + frames.size() + " frames, tiles of " + scheduler.getTileWidth()
+                + "x" + scheduler.getTileHeight() + " on " + scheduler.getParallelism() + " workers");
+
+        BlockingQueue<Frame> decoded = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+        BlockingQueue<Frame> processed = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+        AtomicInteger written = new AtomicInteger();
+        Thread decoder = BatchPipeline.startWorker("frame-decoder", () -> decode(frames, decoded));
+        Thread encoder = BatchPipeline.startWorker("frame-encoder",
+                () -> encode(processed, outputDir, written));
+
+        try {
+            process(decoded, processed);
+            decoder.join();
+            encoder.join();
+        } catch (Throwable e) {
+            // Neither stage would ever see the end of the sequence
+            decoder.interrupt();
+            encoder.interrupt();
+            throw e;
+        }
+        System.out.println("Tiles: " + skippedTiles.get() + " of " + tiles.get() + " unchanged and copied");
+        System.out.println("Buffer pool: " + pool.getAllocations() + " images allocated, "
+                + pool.getReuses() + " reused");
+        return written.get();
+    }
+
+    /**
+     * Gets the number of tiles processed so far, converted or copied.
+     *
+     * @return the number of tiles
+     */
+    public int getTiles() {
+        return tiles.get();
+    }
+
+    /**
+     * Gets the number of tiles copied from the previous result because the
+     * frame had not changed there.
+     *
+     * @return the number of unchanged tiles
+     */
+    public int getSkippedTiles() {
+        return skippedTiles.get();
+    }
+
+    /**
+     * Decoding stage: reads the frames in order into images borrowed from the
+     * pool. Failed frames are reported and skipped, and the end of the
+     * sequence is posted even if the decoder dies from an error, so the
+     * sequence always ends. An interrupted decoder posts nothing, since the
+     * processing stage is being stopped too.
+     */
+    private void decode(List<Path> frames, BlockingQueue<Frame> decoded) throws InterruptedException {
+        boolean interrupted = false;
+        try {
+            for (Path source : frames) {
+                try {
+                    BufferedImage image = BatchPipeline.read(Files.readAllBytes(source), pool);
+                    if (image == null) {
+                        System.err.println("Skipping unreadable frame " + source);
+                        continue;
+                    }
+                    decoded.put(new Frame(source, image, null));
+                } catch (IOException | RuntimeException e) {
+                    System.err.println("Error decoding " + source + ": " + e.getMessage());
+                }
+            }
+        } catch (InterruptedException e) {
+            interrupted = true;
+            throw e;
+        } finally {
+            if (!interrupted) {
+                decoded.put(END_OF_SEQUENCE);
+            }
+        }
+    }
+
+    /**
+     * Processing stage: converts each frame into a result borrowed from the
+     * pool, reusing the tiles of the previous result that did not change.
+     * Every frame and its result are kept until the next frame has been
+     * compared with them; the frame is then released here and the result by
+     * the encoder.
+     */
+    private void process(BlockingQueue<Frame> decoded, BlockingQueue<Frame> processed)
+            throws InterruptedException {
+        Frame previous = null;
+        Frame frame;
+        while ((frame = decoded.take()) != END_OF_SEQUENCE) {
+            final BufferedImage image = frame.image();
+            final BufferedImage output = pool.acquireImage(new ImageTypeSpecifier(image), image.getWidth(),
+                    image.getHeight());
+            final Frame reference = previous != null && sameLayout(previous.image(), image) ? previous : null;
+            try {
+                scheduler.process(image.getWidth(), image.getHeight(),
+                        area -> () -> processTile(image, output, reference, area));
+            } catch (RuntimeException e) {
+                System.err.println("Error processing " + frame.source() + ": " + e.getMessage());
+                pool.releaseImage(image);
+                pool.releaseImage(output);
+                continue;
+            }
+            processed.put(new Frame(frame.source(), output, null));
+            if (previous != null) {
+                pool.releaseImage(previous.image());
+            }
+            previous = new Frame(frame.source(), image, output);
+        }
+        if (previous != null) {
+            pool.releaseImage(previous.image());
+        }
+        processed.put(END_OF_SEQUENCE);
+    }
+
+    /**
+     * Converts a tile of a frame, or copies it from the previous result when
+     * the previous frame has the same pixels there.
+     *
+     * @param image     the frame
+     * @param output    the result of the frame
+     * @param reference the previous frame and its result, or null to convert
+     *                  every tile
+     * @param area      the tile
+     */
+    private void processTile(BufferedImage image, BufferedImage output, Frame reference, Rectangle area) {
+        tiles.incrementAndGet();
+        if (reference != null && sameTile(reference.image(), image, area)) {
+            TileBuffers.copy(reference.output(), output, area);
+            skippedTiles.incrementAndGet();
+            return;
+        }
+        TileBuffers.copy(image, output, area);
+        new ImageProcessor(output, area, weights).run();
+    }
+
+    /**
+     * Encoding stage: writes the results in order. Once a result is written,
+     * the one before it is no longer the reference of any frame being
+     * processed, so it goes back to the pool.
+     */
+    private void encode(BlockingQueue<Frame> processed, Path outputDir, AtomicInteger written)
+            throws InterruptedException {
+        BufferedImage last = null;
+        Frame result;
+        while ((result = processed.take()) != END_OF_SEQUENCE) {
+            String name = result.source().getFileName().toString();
+            Path target = outputDir.resolve(name);
+            try {
+                if (ImageIO.write(result.image(), ThreadImageProcessing.getFileExtension(name), target.toFile())) {
+                    written.incrementAndGet();
+                } else {
+                    System.err.println("No writer available for " + target);
+                }
+            } catch (IOException | RuntimeException e) {
+                System.err.println("Error encoding " + target + ": " + e.getMessage());
+            }
+            if (last != null) {
+                pool.releaseImage(last);
+            }
+            last = result.image();
+        }
+    }
+
+    /**
+     * Tells whether two images have the same size and memory layout, so their
+     * tiles can be compared and copied element by element.
+     */
+    private static boolean sameLayout(BufferedImage a, BufferedImage b) {
+        return a.getWidth() == b.getWidth() && a.getHeight() == b.getHeight()
+                && new ImageTypeSpecifier(a).equals(new ImageTypeSpecifier(b));
+    }
+
+    /**
+     * Compares a tile of two images of the same layout, row by row on the
+     * backing arrays when possible.
+     */
+    private static boolean sameTile(BufferedImage a, BufferedImage b, Rectangle area) {
+        DirectRaster first = DirectRaster.of(a.getRaster());
+        DirectRaster second = DirectRaster.of(b.getRaster());
+        if (first == null || second == null) {
+            return Objects.deepEquals(a.getRaster().getDataElements(area.x, area.y, area.width, area.height, null),
+                    b.getRaster().getDataElements(area.x, area.y, area.width, area.height, null));
+        }
+        final int length = area.width * first.getPixelStride();
+        for (int y = area.y; y < area.y + area.height; y++) {
+            final int i = first.indexOf(area.x, y);
+            final int j = second.indexOf(area.x, y);
+            final boolean equal = first.getLayout() == DirectRaster.Layout.PACKED_INT
+                    ? Arrays.equals(first.getInts(), i, i + length, second.getInts(), j, j + length)
+                    : Arrays.equals(first.getBytes(), i, i + length, second.getBytes(), j, j + length);
+            if (!equal) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Frame travelling through the stages.
+     *
+     * @param source the file the frame was read from
+     * @param image  the frame, or its result on the way to the encoder
+     * @param output the result of the frame, or null if not processed yet
+     */
+    private record Frame(Path source, BufferedImage image, BufferedImage output) {
+    }
+}
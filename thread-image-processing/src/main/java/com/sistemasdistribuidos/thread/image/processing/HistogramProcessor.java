@@ -0,0 +1,61 @@
+package com.sistemasdistribuidos.thread.image.processing;
+
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+
+/**
+ * Image processor that adds the pixels of a specific area of an image to a
+ * histogram. The histogram is chosen by the caller for the current worker
+ * thread, so workers never share counters.
+ *
+ * @author mariovillacortagarcia
+ */
+public class HistogramProcessor implements Runnable {
+
+    private final BufferedImage image;
+    private final Rectangle area;
+    private final ImageStatistics.Accumulator accumulator;
+
+    /**
+     * Constructs a new histogram processor for the specified area.
+     *
+     * @param image       the image to scan
+     * @param area        the rectangular area of the image that will be scanned
+     * @param accumulator provides the histogram of the current worker
+     */
+    public HistogramProcessor(BufferedImage image, Rectangle area, ImageStatistics.Accumulator accumulator) {
+        this.image = image;
+        this.area = area;
+        this.accumulator = accumulator;
+    }
+
+    /**
+     * Adds every pixel of the assigned area to the histogram of the worker.
+     */
+    @Override
+    public void run() {
+        final ImageHistogram histogram = accumulator.forCurrentThread();
+        final DirectRaster direct = DirectRaster.ofArgb(image);
+        final int maxY = area.y + area.height;
+
+        if (direct == null) {
+            final int[] row = new int[area.width];
+            for (int y = area.y; y < maxY; y++) {
+                image.getRGB(area.x, y, area.width, 1, row, 0, area.width);
+                for (int pixel : row) {
+                    histogram.add(pixel);
+                }
+            }
+            return;
+        }
+
+        final int pixelStride = direct.getPixelStride();
+        for (int y = area.y; y < maxY; y++) {
+            final int start = direct.indexOf(area.x, y);
+            final int end = start + area.width * pixelStride;
+            for (int i = start; i < end; i += pixelStride) {
+                histogram.add(direct.getArgb(i));
+            }
+        }
+    }
+}
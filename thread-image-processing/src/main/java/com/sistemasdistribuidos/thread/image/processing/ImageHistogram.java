@@ -0,0 +1,167 @@
+package com.sistemasdistribuidos.thread.image.processing;
+
+/**
+ * Per-channel histogram of the red, green and blue levels of an image, with
+ * the statistics derived from it. Counts are kept in a single primitive array
+ * of 256 entries per channel. A histogram is filled by a single thread;
+ * partial histograms are combined with {@link #merge(ImageHistogram)}.
+ *
+ * @author mariovillacortagarcia
+ */
+public final class ImageHistogram {
+
+    /**
+     * Index of the red channel.
+     */
+    public static final int RED = 0;
+    /**
+     * Index of the green channel.
+     */
+    public static final int GREEN = 1;
+    /**
+     * Index of the blue channel.
+     */
+    public static final int BLUE = 2;
+    /**
+     * Number of channels of the histogram.
+     */
+    public static final int CHANNELS = 3;
+    /**
+     * Number of levels of each channel.
+     */
+    public static final int LEVELS = 256;
+
+    private final int[] counts = new int[CHANNELS * LEVELS];
+    private long pixelCount;
+
+    /**
+     * Adds a pixel to the histogram.
+     *
+     * @param argb the pixel as a packed ARGB value
+     */
+    public void add(int argb) {
+        counts[RED * LEVELS + ((argb >> 16) & 0xFF)]++;
+        counts[GREEN * LEVELS + ((argb >> 8) & 0xFF)]++;
+        counts[BLUE * LEVELS + (argb & 0xFF)]++;
+        pixelCount++;
+    }
+
+    /**
+     * Adds the counts of another histogram to this one.
+     *
+     * @param other the histogram to add
+     */
+    public void merge(ImageHistogram other) {
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] += other.counts[i];
+        }
+        pixelCount += other.pixelCount;
+    }
+
+    /**
+     * Gets the number of pixels with a level in a channel.
+     *
+     * @param channel the channel index
+     * @param level   the level, from 0 to 255
+     * @return the number of pixels
+     */
+    public int getCount(int channel, int level) {
+        return counts[channel * LEVELS + level];
+    }
+
+    /**
+     * Gets the number of pixels added to the histogram.
+     *
+     * @return the number of pixels
+     */
+    public long getPixelCount() {
+        return pixelCount;
+    }
+
+    /**
+     * Gets the lowest level present in a channel.
+     *
+     * @param channel the channel index
+     * @return the minimum level, or 0 if the histogram is empty
+     */
+    public int getMin(int channel) {
+        for (int level = 0; level < LEVELS; level++) {
+            if (getCount(channel, level) > 0) {
+                return level;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Gets the highest level present in a channel.
+     *
+     * @param channel the channel index
+     * @return the maximum level, or 0 if the histogram is empty
+     */
+    public int getMax(int channel) {
+        for (int level = LEVELS - 1; level >= 0; level--) {
+            if (getCount(channel, level) > 0) {
+                return level;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Gets the mean level of a channel.
+     *
+     * @param channel the channel index
+     * @return the mean level, or 0 if the histogram is empty
+     */
+    public double getMean(int channel) {
+        if (pixelCount == 0) {
+            return 0;
+        }
+        long sum = 0;
+        for (int level = 0; level < LEVELS; level++) {
+            sum += (long) level * getCount(channel, level);
+        }
+        return (double) sum / pixelCount;
+    }
+
+    /**
+     * Gets the lowest level of a channel such that the given fraction of the
+     * pixels are at or below it.
+     *
+     * @param channel  the channel index
+     * @param fraction the fraction of pixels, from 0 to 1
+     * @return the percentile level, or 0 if the histogram is empty
+     * @throws IllegalArgumentException if the fraction is out of range
+     */
+    public int getPercentile(int channel, double fraction) {
+        if (fraction < 0 || fraction > 1) {
+            throw new IllegalArgumentException("Fraction must be between 0 and 1: " + fraction);
+        }
+        final long target = Math.max(1, (long) Math.ceil(fraction * pixelCount));
+        long accumulated = 0;
+        for (int level = 0; level < LEVELS; level++) {
+            accumulated += getCount(channel, level);
+            if (accumulated >= target) {
+                return level;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Gets the cumulative count of a channel up to every level.
+     *
+     * @param channel the channel index
+     * @return the number of pixels at or below each level
+     */
+    public long[] getCumulative(int channel) {
+        long[] cumulative = new long[LEVELS];
+        long accumulated = 0;
+        for (int level = 0; level < LEVELS; level++) {
+            accumulated += getCount(channel, level);
+            cumulative[level] = accumulated;
+        }
+        return cumulative;
+    }
+}
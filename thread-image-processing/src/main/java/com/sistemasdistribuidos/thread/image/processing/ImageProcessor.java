@@ -5,26 +5,53 @@ import java.awt.image.BufferedImage;
 import java.awt.image.WritableRaster;
 
 /**
- * Image processor that converts a specific area of an image to grayscale.
+ * Image processor that converts a specific area of an image to grayscale,
+ * either averaging all the bands or, when luminance weights are given,
+ * computing the weighted luminance of the color bands and keeping alpha.
  * Implements Runnable to allow execution in a separate thread. Optimized for
- * performance using direct pixels data access.
+ * performance using direct pixels data access: the common 8-bit layouts are
+ * processed straight on the backing array, while exotic layouts fall back to
+ * the generic per-pixel raster access. Packed int rasters use a SIMD kernel
+ * when the JVM runs with {@code --add-modules jdk.incubator.vector}.
  *
  * @author mariovillacortagarcia
  */
 public class ImageProcessor implements Runnable {
 
+    private static final String VECTOR_MODULE = "jdk.incubator.vector";
+    private static final String VECTOR_KERNEL_CLASS
+            = "com.sistemasdistribuidos.thread.image.processing.VectorGrayscaleKernel";
+    /**
+     * Kernel for packed int rasters, chosen once when the class is loaded.
+     */
+    private static final PackedGrayscaleKernel PACKED_KERNEL = selectPackedKernel();
+
     private final BufferedImage image;
     private final Rectangle area;
+    private final LuminanceWeights weights;
 
     /**
-     * Constructs a new image processor for the specified area.
+     * Constructs a new image processor for the specified area that averages
+     * all the bands of each pixel.
      *
      * @param image the image to process
      * @param area  the rectangular area of the image that will be processed
      */
     public ImageProcessor(BufferedImage image, Rectangle area) {
+        this(image, area, null);
+    }
+
+    /**
+     * Constructs a new image processor for the specified area.
+     *
+     * @param image   the image to process
+     * @param area    the rectangular area of the image that will be processed
+     * @param weights the luminance weights, or null to average all the bands
+     */
+    public ImageProcessor(BufferedImage image, Rectangle area, LuminanceWeights weights) {
         this.image = image;
         this.area = area;
+        this.weights = weights;
     }
 
     /**
@@ -35,6 +62,16 @@ public class ImageProcessor implements Runnable {
     @Override
     public void run() {
         WritableRaster raster = image.getRaster();
+        DirectRaster direct = DirectRaster.of(raster);
+        if (weights != null) {
+            processLuminance(raster, direct);
+            return;
+        }
+        if (direct != null) {
+            processDirect(direct);
+            return;
+        }
+
         final int numComponents = raster.getNumBands();
         final int[] pixels = new int[numComponents];
         final int maxY = area.y + area.height;
@@ -43,6 +80,168 @@ public class ImageProcessor implements Runnable {
         processPixels(raster, pixels, maxX, maxY);
     }
 
+    /**
+     * Replaces the color bands of every pixel of the area with its weighted
+     * luminance. Alpha is preserved and single band rasters are left as they
+     * are, since they are already gray.
+     *
+     * @param raster the writable raster of the image
+     * @param direct the direct view of the raster, or null if not supported
+     */
+    private void processLuminance(WritableRaster raster, DirectRaster direct) {
+        if (raster.getNumBands() < 3) {
+            return;
+        }
+        final int maxY = area.y + area.height;
+        if (direct == null) {
+            final int[] pixels = new int[raster.getNumBands()];
+            final int maxX = area.x + area.width;
+            for (int y = area.y; y < maxY; y++) {
+                for (int x = area.x; x < maxX; x++) {
+                    raster.getPixel(x, y, pixels);
+                    final int gray = weights.gray(pixels[0], pixels[1], pixels[2]);
+                    pixels[0] = gray;
+                    pixels[1] = gray;
+                    pixels[2] = gray;
+                    raster.setPixel(x, y, pixels);
+                }
+            }
+            return;
+        }
+
+        final int[] positions = direct.getBandPositions();
+        final int red = positions[0];
+        final int green = positions[1];
+        final int blue = positions[2];
+        if (direct.getLayout() == DirectRaster.Layout.PACKED_INT) {
+            final int[] data = direct.getInts();
+            final int colorMask = ~(0xFF << red | 0xFF << green | 0xFF << blue);
+            for (int y = area.y; y < maxY; y++) {
+                final int start = direct.indexOf(area.x, y);
+                final int end = start + area.width;
+                for (int i = start; i < end; i++) {
+                    final int pixel = data[i];
+                    final int gray = weights.gray((pixel >>> red) & 0xFF,
+                            (pixel >>> green) & 0xFF, (pixel >>> blue) & 0xFF);
+                    data[i] = (pixel & colorMask) | gray << red | gray << green | gray << blue;
+                }
+            }
+            return;
+        }
+
+        final byte[] data = direct.getBytes();
+        final int pixelStride = direct.getPixelStride();
+        for (int y = area.y; y < maxY; y++) {
+            final int start = direct.indexOf(area.x, y);
+            final int end = start + area.width * pixelStride;
+            for (int i = start; i < end; i += pixelStride) {
+                final byte gray = (byte) weights.gray(data[i + red] & 0xFF,
+                        data[i + green] & 0xFF, data[i + blue] & 0xFF);
+                data[i + red] = gray;
+                data[i + green] = gray;
+                data[i + blue] = gray;
+            }
+        }
+    }
+
+    /**
+     * Processes the area working directly on the primitive array that backs
+     * the raster. Produces exactly the same result as the per-pixel path.
+     *
+     * @param direct the direct view of the raster
+     */
+    private void processDirect(DirectRaster direct) {
+        switch (direct.getLayout()) {
+            case INTERLEAVED_BYTE -> processInterleavedBytes(direct);
+            case PACKED_INT -> processPackedInts(direct);
+        }
+    }
+
+    /**
+     * Processes an area of a raster with interleaved byte bands.
+     *
+     * @param direct the direct view of the raster
+     */
+    private void processInterleavedBytes(DirectRaster direct) {
+        final int numBands = direct.getNumBands();
+        if (numBands == 1) {
+            // The average of a single band is the band itself
+            return;
+        }
+        final byte[] data = direct.getBytes();
+        final int rowLength = area.width * numBands;
+        final int maxY = area.y + area.height;
+
+        for (int y = area.y; y < maxY; y++) {
+            final int start = direct.indexOf(area.x, y);
+            final int end = start + rowLength;
+            for (int i = start; i < end; i += numBands) {
+                int sum = 0;
+                for (int band = 0; band < numBands; band++) {
+                    sum += data[i + band] & 0xFF;
+                }
+                final byte gray = (byte) (sum / numBands);
+                for (int band = 0; band < numBands; band++) {
+                    data[i + band] = gray;
+                }
+            }
+        }
+    }
+
+    /**
+     * Processes an area of a raster with one packed int per pixel. Bits that
+     * do not belong to any band are preserved.
+     *
+     * @param direct the direct view of the raster
+     */
+    private void processPackedInts(DirectRaster direct) {
+        final int[] data = direct.getInts();
+        final int numBands = direct.getNumBands();
+        final int bandsMask = direct.getBandsMask();
+        final int maxY = area.y + area.height;
+
+        for (int y = area.y; y < maxY; y++) {
+            final int start = direct.indexOf(area.x, y);
+            PACKED_KERNEL.processRow(data, start, start + area.width, numBands, bandsMask);
+        }
+    }
+
+    /**
+     * Converts a row of packed int pixels to grayscale one pixel at a time.
+     * Used when the Vector API is not available.
+     *
+     * @param data      the packed pixels array
+     * @param start     the index of the first pixel of the row
+     * @param end       the index after the last pixel of the row
+     * @param numBands  the number of bands of each pixel
+     * @param bandsMask the bits used by the bands
+     */
+    private static void processPackedRow(int[] data, int start, int end, int numBands, int bandsMask) {
+        for (int i = start; i < end; i++) {
+            data[i] = PackedGrayscaleKernel.toGray(data[i], numBands, bandsMask);
+        }
+    }
+
+    /**
+     * Selects the kernel for packed int rasters. The SIMD kernel is used when
+     * the jdk.incubator.vector module has been added to the JVM, otherwise
+     * the scalar kernel is used.
+     *
+     * @return the kernel for packed int rasters
+     */
+    private static PackedGrayscaleKernel selectPackedKernel() {
+        if (ModuleLayer.boot().findModule(VECTOR_MODULE).isPresent()) {
+            try {
+                return (PackedGrayscaleKernel) Class.forName(VECTOR_KERNEL_CLASS)
+                        .getDeclaredConstructor()
+                        .newInstance();
+            } catch (ReflectiveOperationException | LinkageError e) {
+                System.err.println("Vector API unavailable, using scalar kernel: " + e.getMessage());
+            }
+        }
+        return ImageProcessor::processPackedRow;
+    }
+
     /**
      * Processes pixels for images with fewer than 3 color components.
      *
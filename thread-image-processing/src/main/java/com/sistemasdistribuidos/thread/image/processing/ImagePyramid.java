@@ -0,0 +1,160 @@
+package com.sistemasdistribuidos.thread.image.processing;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Generator of downscaled renditions of an image. Each level halves the
+ * previous one with a 2x2 area-average filter, computed tile by tile on a
+ * work-stealing pool, until the longest side reaches the thumbnail size.
+ *
+ * Finished levels are handed to a consumer running on its own thread
+ * through a small bounded queue, so a level is encoded while the smaller
+ * ones are still being built.
+ *
+ * @author mariovillacortagarcia
+ */
+public class ImagePyramid {
+
+    /**
+     * Number of finished levels that may wait for the consumer.
+     */
+    private static final int QUEUE_CAPACITY = 2;
+
+    /**
+     * Marker that tells the consumer that no more levels will come.
+     */
+    private static final Level END_OF_STREAM = new Level(0, null);
+
+    private final ForkJoinTileScheduler scheduler;
+
+    /**
+     * Receives the levels of the pyramid as they are finished.
+     */
+    @FunctionalInterface
+    public interface LevelConsumer {
+
+        /**
+         * Consumes a finished level, for instance encoding it.
+         *
+         * @param level the level, 1 for half the size of the source
+         * @param image the downscaled image
+         * @throws IOException if the level cannot be written
+         */
+        void accept(int level, BufferedImage image) throws IOException;
+    }
+
+    /**
+     * Constructs a pyramid generator.
+     *
+     * @param scheduler the scheduler that computes the tiles of each level
+     */
+    public ImagePyramid(ForkJoinTileScheduler scheduler) {
+        this.scheduler = scheduler;
+    }
+
+    /**
+     * Builds every level of the pyramid of an image, halving it until its
+     * longest side is at most the given size, and hands each level to the
+     * consumer as soon as it is finished. Blocks until every level has been
+     * consumed.
+     *
+     * @param source   the image to downscale; it is not modified
+     * @param minSide  the longest side of the smallest level, in pixels
+     * @param consumer receives the levels, from the largest to the smallest
+     * @return the number of levels built
+     * @throws IOException              if the consumer failed on any level; a
+     *                                  runtime exception or error of the
+     *                                  consumer is rethrown as is
+     * @throws InterruptedException     if interrupted while waiting for the consumer
+     * @throws IllegalArgumentException if the minimum side is not positive
+     */
+    public int build(BufferedImage source, int minSide, LevelConsumer consumer)
+            throws IOException, InterruptedException {
+        if (minSide <= 0) {
+            throw new IllegalArgumentException("Minimum side must be positive: " + minSide);
+        }
+        BlockingQueue<Level> finished = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+        Throwable[] failure = new Throwable[1];
+        Thread consumerThread = new Thread(() -> consume(finished, consumer, failure), "pyramid-consumer");
+        consumerThread.start();
+
+        int levels = 0;
+        boolean completed = false;
+        try {
+            BufferedImage current = source;
+            while (Math.max(current.getWidth(), current.getHeight()) > minSide) {
+                current = downsample(current);
+                finished.put(new Level(++levels, current));
+            }
+            finished.put(END_OF_STREAM);
+            consumerThread.join();
+            completed = true;
+        } finally {
+            // If a level failed or the wait was interrupted, the end of the
+            // stream never came, so the consumer is stopped instead
+            if (!completed) {
+                consumerThread.interrupt();
+            }
+        }
+
+        if (failure[0] instanceof IOException e) {
+            throw e;
+        }
+        if (failure[0] instanceof RuntimeException e) {
+            throw e;
+        }
+        if (failure[0] instanceof Error e) {
+            throw e;
+        }
+        return levels;
+    }
+
+    /**
+     * Halves an image with the area-average filter, one tile per task.
+     *
+     * @param source the image to downscale
+     * @return the image with half the width and height, rounded up
+     */
+    BufferedImage downsample(BufferedImage source) {
+        BufferedImage destination = ThreadImageProcessing.createCompatibleImage(source,
+                (source.getWidth() + 1) / 2, (source.getHeight() + 1) / 2);
+        scheduler.process(destination, area -> new DownsampleProcessor(source, destination, area));
+        return destination;
+    }
+
+    /**
+     * Consumer thread: hands every finished level to the consumer. After a
+     * failure the remaining levels are still drained, so the builder never
+     * blocks on a full queue, but no longer consumed.
+     */
+    private static void consume(BlockingQueue<Level> finished, LevelConsumer consumer, Throwable[] failure) {
+        try {
+            Level level;
+            while ((level = finished.take()) != END_OF_STREAM) {
+                if (failure[0] != null) {
+                    continue;
+                }
+                try {
+                    consumer.accept(level.index(), level.image());
+                } catch (Throwable t) {
+                    // Errors too, or the builder would block on the full queue
+                    failure[0] = t;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Finished level travelling to the consumer.
+     *
+     * @param index the level, 1 for half the size of the source
+     * @param image the downscaled image
+     */
+    private record Level(int index, BufferedImage image) {
+    }
+}
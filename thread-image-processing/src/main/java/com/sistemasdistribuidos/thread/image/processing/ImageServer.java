@@ -0,0 +1,525 @@
+package com.sistemasdistribuidos.thread.image.processing;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import javax.imageio.ImageIO;
+
+/**
+ * Long-lived image processing service. Clients send an encoded image and the
+ * operation to apply over TCP and receive the processed image, encoded in
+ * the same format, on the same connection.
+ *
+ * A single selector thread does all the network I/O without blocking. Each
+ * complete request is handed to a small pool of job threads that decode the
+ * image, process it tile by tile on the shared work-stealing pool and encode
+ * the result, which the selector thread then writes back. The job pool has a
+ * bounded queue: when it is full the request is answered at once with a
+ * busy status instead of piling up, so the latency of the admitted requests
+ * stays bounded and the client can retry later or elsewhere.
+ *
+ * Requests are admitted as soon as their length is read, before their body
+ * is buffered: a request is rejected if every job thread and queue slot is
+ * already taken by the admitted requests, or if its body would exceed the
+ * budget of bytes buffered for all of them. The body of a rejected request
+ * is read and discarded without keeping it, so memory stays bounded however
+ * many clients send large images at once.
+ *
+ * Every frame is an int with the length of the rest of the frame followed by
+ * its body, all big-endian. A request body is the operation as a short
+ * length and its UTF-8 bytes, followed by the encoded image. A response
+ * body is a status byte followed by the encoded image, or by the error
+ * message if the status is not {@link #STATUS_OK}. A connection may send any
+ * number of requests, one after the other.
+ *
+ * @author mariovillacortagarcia
+ */
+public class ImageServer implements AutoCloseable {
+
+    /**
+     * Port the server listens on when none is given.
+     */
+    public static final int DEFAULT_PORT = 6000;
+    /**
+     * Status of a processed image.
+     */
+    static final byte STATUS_OK = 0;
+    /**
+     * Status of a request rejected because the server is saturated.
+     */
+    static final byte STATUS_BUSY = 1;
+    /**
+     * Status of a request that could not be processed.
+     */
+    static final byte STATUS_ERROR = 2;
+    /**
+     * Largest accepted request when none is given, to reject corrupt lengths
+     * before allocating.
+     */
+    public static final int DEFAULT_MAX_FRAME_LENGTH = 64 * 1024 * 1024;
+    /**
+     * Bytes of request bodies that may be buffered at once when no budget is
+     * given.
+     */
+    public static final long DEFAULT_MAX_BUFFERED_BYTES = 256L * 1024 * 1024;
+    /**
+     * Size of the buffer the bodies of rejected requests are read into.
+     */
+    private static final int DISCARD_BUFFER_SIZE = 64 * 1024;
+
+    private final ForkJoinTileScheduler scheduler;
+    private final ThreadPoolExecutor jobs;
+    private final BufferPool pool;
+    private final Selector selector;
+    private final ServerSocketChannel serverChannel;
+    private final int maxFrameLength;
+    private final long maxBufferedBytes;
+    private final int maxAdmitted;
+    private final ByteBuffer discard = ByteBuffer.allocate(DISCARD_BUFFER_SIZE);
+    private final Queue<Connection> finished = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger admitted = new AtomicInteger();
+    private final AtomicLong bufferedBytes = new AtomicLong();
+    private final AtomicLong served = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+
+    /**
+     * Constructs a server with the default limits of request size and
+     * buffered bytes and binds it to a port. Requests are served once
+     * {@link #run()} is called.
+     *
+     * @param port          the TCP port to listen on, 0 for any free port
+     * @param scheduler     the work-stealing pool that processes the tiles
+     * @param jobThreads    the number of requests decoded, processed and
+     *                      encoded at the same time
+     * @param queueCapacity the number of admitted requests that may wait for
+     *                      a job thread; further requests are rejected
+     * @throws IOException              if the port cannot be bound
+     * @throws IllegalArgumentException if the job threads are not positive or
+     *                                  the capacity is negative
+     */
+    public ImageServer(int port, ForkJoinTileScheduler scheduler, int jobThreads, int queueCapacity)
+            throws IOException {
+        this(port, scheduler, jobThreads, queueCapacity, DEFAULT_MAX_FRAME_LENGTH, DEFAULT_MAX_BUFFERED_BYTES);
+    }
+
+    /**
+     * Constructs a server and binds it to a port. Requests are served once
+     * {@link #run()} is called.
+     *
+     * @param port             the TCP port to listen on, 0 for any free port
+     * @param scheduler        the work-stealing pool that processes the tiles
+     * @param jobThreads       the number of requests decoded, processed and
+     *                         encoded at the same time
+     * @param queueCapacity    the number of admitted requests that may wait
+     *                         for a job thread; further requests are rejected
+     * @param maxFrameLength   the largest request accepted; longer ones close
+     *                         the connection
+     * @param maxBufferedBytes the bytes of request bodies that may be held at
+     *                         once; further requests are rejected. Also the
+     *                         bytes of decoded images kept for reuse
+     * @throws IOException              if the port cannot be bound
+     * @throws IllegalArgumentException if the job threads are not positive,
+     *                                  the capacity is negative, or the limits
+     *                                  cannot hold a request
+     */
+    public ImageServer(int port, ForkJoinTileScheduler scheduler, int jobThreads, int queueCapacity,
+            int maxFrameLength, long maxBufferedBytes) throws IOException {
+        if (jobThreads <= 0) {
+            throw new IllegalArgumentException("Job threads must be positive: " + jobThreads);
+        }
+        if (queueCapacity < 0) {
+            throw new IllegalArgumentException("Queue capacity must not be negative: " + queueCapacity);
+        }
+        if (maxFrameLength < 2) {
+            throw new IllegalArgumentException("Max frame length must be at least 2: " + maxFrameLength);
+        }
+        if (maxBufferedBytes < maxFrameLength) {
+            throw new IllegalArgumentException("Max buffered bytes must hold a frame of " + maxFrameLength
+                    + " bytes: " + maxBufferedBytes);
+        }
+        this.scheduler = scheduler;
+        this.maxFrameLength = maxFrameLength;
+        this.maxBufferedBytes = maxBufferedBytes;
+        this.maxAdmitted = jobThreads + queueCapacity;
+        this.jobs = new ThreadPoolExecutor(jobThreads, jobThreads, 0, TimeUnit.MILLISECONDS,
+                queueCapacity == 0 ? new SynchronousQueue<>() : new ArrayBlockingQueue<>(queueCapacity));
+        this.pool = new BufferPool(jobThreads + queueCapacity, maxBufferedBytes);
+        this.selector = Selector.open();
+        this.serverChannel = ServerSocketChannel.open();
+        serverChannel.bind(new InetSocketAddress(port));
+        serverChannel.configureBlocking(false);
+        serverChannel.register(selector, SelectionKey.OP_ACCEPT);
+    }
+
+    /**
+     * Gets the port the server is bound to.
+     *
+     * @return the local port
+     * @throws IOException if the port cannot be read
+     */
+    public int getPort() throws IOException {
+        return ((InetSocketAddress) serverChannel.getLocalAddress()).getPort();
+    }
+
+    /**
+     * Gets the number of requests answered with a processed image.
+     *
+     * @return the number of served requests
+     */
+    public long getServed() {
+        return served.get();
+    }
+
+    /**
+     * Gets the number of requests rejected because the server was saturated.
+     *
+     * @return the number of rejected requests
+     */
+    public long getRejected() {
+        return rejected.get();
+    }
+
+    /**
+     * Runs the selector loop on the calling thread until the server is
+     * closed.
+     *
+     * @throws IOException if the selector fails
+     */
+    public void run() throws IOException {
+        System.out.println("[Server] Listening on port " + getPort() + " with " + jobs.getMaximumPoolSize()
+                + " job threads and " + scheduler.getParallelism() + " tile workers");
+        try {
+            while (selector.isOpen()) {
+                selector.select();
+                Connection connection;
+                while ((connection = finished.poll()) != null) {
+                    if (connection.response == null) {
+                        closeConnection(connection.key);
+                    } else if (connection.key.isValid()) {
+                        connection.key.interestOps(SelectionKey.OP_WRITE);
+                    }
+                }
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    try {
+                        if (key.isAcceptable()) {
+                            accept();
+                        } else if (key.isReadable()) {
+                            read((Connection) key.attachment());
+                        } else if (key.isWritable()) {
+                            write((Connection) key.attachment());
+                        }
+                    } catch (IOException e) {
+                        System.err.println("[Server] Closing connection: " + e.getMessage());
+                        closeConnection(key);
+                    }
+                }
+            }
+        } catch (ClosedSelectorException e) {
+            // Closed by another thread
+        }
+    }
+
+    /**
+     * Stops accepting requests, closes every connection and waits for the
+     * job threads to finish. Closing a closed server has no effect.
+     */
+    @Override
+    public synchronized void close() {
+        if (!selector.isOpen()) {
+            return;
+        }
+        jobs.shutdown();
+        try {
+            for (SelectionKey key : selector.keys()) {
+                key.channel().close();
+            }
+            selector.close();
+            jobs.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (IOException e) {
+            System.err.println("[Server] Error closing: " + e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        System.out.println("[Server] " + served.get() + " requests served, " + rejected.get() + " rejected");
+    }
+
+    /**
+     * Accepts a pending connection and starts reading its first request.
+     */
+    private void accept() throws IOException {
+        SocketChannel channel = serverChannel.accept();
+        if (channel == null) {
+            return;
+        }
+        channel.configureBlocking(false);
+        channel.socket().setTcpNoDelay(true);
+        Connection connection = new Connection();
+        connection.key = channel.register(selector, SelectionKey.OP_READ, connection);
+    }
+
+    /**
+     * Reads what is available of the current request. Once its length is
+     * known the request is admitted and its body buffered, or rejected and
+     * its body discarded; an admitted request is dispatched once complete.
+     */
+    private void read(Connection connection) throws IOException {
+        SocketChannel channel = (SocketChannel) connection.key.channel();
+        if (connection.body == null && connection.skip == 0) {
+            if (channel.read(connection.header) < 0) {
+                closeConnection(connection.key);
+                return;
+            }
+            if (connection.header.hasRemaining()) {
+                return;
+            }
+            final int length = connection.header.getInt(0);
+            if (length < 2 || length > maxFrameLength) {
+                throw new IOException("Invalid frame length: " + length);
+            }
+            if (admit(length)) {
+                connection.reserved = length;
+                connection.body = ByteBuffer.allocate(length);
+            } else {
+                rejected.incrementAndGet();
+                connection.skip = length;
+            }
+        }
+        if (connection.skip > 0) {
+            discard(connection, channel);
+            return;
+        }
+        if (channel.read(connection.body) < 0) {
+            throw new IOException("Connection closed in the middle of a request");
+        }
+        if (!connection.body.hasRemaining()) {
+            dispatch(connection);
+        }
+    }
+
+    /**
+     * Reserves a job and the bytes of a request body, unless every job
+     * thread and queue slot is taken or the body does not fit in the budget.
+     * Only the selector thread reserves, so the limits cannot be overrun
+     * between the check and the reservation.
+     *
+     * @param length the length of the request body
+     * @return true if the request is admitted
+     */
+    private boolean admit(int length) {
+        if (admitted.get() >= maxAdmitted || bufferedBytes.get() + length > maxBufferedBytes) {
+            return false;
+        }
+        admitted.incrementAndGet();
+        bufferedBytes.addAndGet(length);
+        return true;
+    }
+
+    /**
+     * Gives back the job and the bytes reserved by an admitted request.
+     *
+     * @param length the length of the request body, or 0 if nothing was
+     *               reserved
+     */
+    private void release(int length) {
+        if (length > 0) {
+            admitted.decrementAndGet();
+            bufferedBytes.addAndGet(-length);
+        }
+    }
+
+    /**
+     * Reads and drops what is available of the body of a rejected request,
+     * and answers it as busy once the whole body has been read, so the next
+     * request of the connection starts where the client expects.
+     */
+    private void discard(Connection connection, SocketChannel channel) throws IOException {
+        discard.clear().limit(Math.min(DISCARD_BUFFER_SIZE, connection.skip));
+        final int read = channel.read(discard);
+        if (read < 0) {
+            throw new IOException("Connection closed in the middle of a request");
+        }
+        connection.skip -= read;
+        if (connection.skip == 0) {
+            answerBusy(connection);
+        }
+    }
+
+    /**
+     * Hands a complete request to the job threads, or answers it as busy if
+     * they do not take it. The connection is not read until it is answered.
+     */
+    private void dispatch(Connection connection) {
+        connection.key.interestOps(0);
+        ByteBuffer request = connection.body.flip();
+        final int reserved = connection.reserved;
+        connection.reserved = 0;
+        try {
+            jobs.execute(() -> {
+                try {
+                    connection.response = handle(request);
+                } finally {
+                    // Always handed back, or the connection would never be
+                    // answered nor read again
+                    release(reserved);
+                    finished.add(connection);
+                    selector.wakeup();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            release(reserved);
+            rejected.incrementAndGet();
+            answerBusy(connection);
+        }
+    }
+
+    /**
+     * Answers the current request of a connection with the busy status.
+     */
+    private static void answerBusy(Connection connection) {
+        connection.response = frame(STATUS_BUSY, "Server busy, retry later".getBytes(StandardCharsets.UTF_8));
+        connection.key.interestOps(SelectionKey.OP_WRITE);
+    }
+
+    /**
+     * Closes a connection, giving back what its request had reserved. Errors
+     * are only reported, so a failing connection cannot stop the selector
+     * loop.
+     */
+    private void closeConnection(SelectionKey key) {
+        key.cancel();
+        if (key.attachment() instanceof Connection connection) {
+            release(connection.reserved);
+            connection.reserved = 0;
+        }
+        try {
+            key.channel().close();
+        } catch (IOException e) {
+            System.err.println("[Server] Error closing connection: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Writes what the socket accepts of the response and, once it is sent,
+     * goes back to reading the next request.
+     */
+    private void write(Connection connection) throws IOException {
+        ((SocketChannel) connection.key.channel()).write(connection.response);
+        if (!connection.response.hasRemaining()) {
+            connection.response = null;
+            connection.body = null;
+            connection.header.clear();
+            connection.key.interestOps(SelectionKey.OP_READ);
+        }
+    }
+
+    /**
+     * Job thread: decodes, processes and encodes the image of a request.
+     *
+     * @param request the body of the request
+     * @return the response frame
+     */
+    private ByteBuffer handle(ByteBuffer request) {
+        final long startTime = System.nanoTime();
+        try {
+            byte[] name = new byte[request.getShort() & 0xFFFF];
+            request.get(name);
+            final String operation = new String(name, StandardCharsets.UTF_8);
+            Consumer<BufferedImage> processing = createOperation(operation);
+            final String[] format = new String[1];
+
+            BufferedImage image = BatchPipeline.read(request.array(), request.arrayOffset() + request.position(),
+                    request.remaining(), pool, format);
+            if (image == null) {
+                throw new IOException("Unsupported image format");
+            }
+            try {
+                processing.accept(image);
+                ByteArrayOutputStream encoded = new ByteArrayOutputStream(request.capacity());
+                if (!ImageIO.write(image, format[0], encoded)) {
+                    throw new IOException("No writer available for " + format[0]);
+                }
+                served.incrementAndGet();
+                System.out.printf("[Server] %dx%d %s %s in %.1f ms%n", image.getWidth(), image.getHeight(),
+                        format[0], operation, (System.nanoTime() - startTime) / 1e6);
+                return frame(STATUS_OK, encoded.toByteArray());
+            } finally {
+                pool.releaseImage(image);
+            }
+        } catch (Throwable t) {
+            // Errors too, most likely running out of memory on a large image
+            System.err.println("[Server] Request failed: " + t);
+            return frame(STATUS_ERROR, String.valueOf(t.getMessage()).getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    /**
+     * Creates the processing of an operation: a grayscale conversion
+     * ("average", "rec601" or "rec709") run with the {@link ImageProcessor}
+     * kernel, or any other filter chain specification.
+     *
+     * @param operation the operation requested
+     * @return the processing of an image in place, run on the calling thread
+     * @throws IllegalArgumentException if the operation is not valid
+     */
+    private Consumer<BufferedImage> createOperation(String operation) {
+        if (operation.equalsIgnoreCase("average")) {
+            return image -> scheduler.process(image, area -> new ImageProcessor(image, area, null));
+        }
+        LuminanceWeights weights = LuminanceWeights.fromName(operation);
+        if (weights != null) {
+            return image -> scheduler.process(image, area -> new ImageProcessor(image, area, weights));
+        }
+        final PixelFilter filter = FilterChain.parse(operation).fuse();
+        return image -> scheduler.process(image, area -> new FilterChainProcessor(image, area, filter));
+    }
+
+    /**
+     * Builds a response frame.
+     *
+     * @param status the status byte
+     * @param body   the image or the error message
+     * @return the frame, ready to be written
+     */
+    private static ByteBuffer frame(byte status, byte[] body) {
+        ByteBuffer frame = ByteBuffer.allocate(4 + 1 + body.length);
+        frame.putInt(1 + body.length).put(status).put(body);
+        return frame.flip();
+    }
+
+    /**
+     * State of a client connection, owned by the selector thread except for
+     * the response, which a job thread sets before handing the connection
+     * back.
+     */
+    private static final class Connection {
+
+        private final ByteBuffer header = ByteBuffer.allocate(4);
+        private SelectionKey key;
+        private ByteBuffer body;
+        private int reserved;
+        private int skip;
+        private volatile ByteBuffer response;
+    }
+}
@@ -0,0 +1,108 @@
+package com.sistemasdistribuidos.thread.image.processing;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Blocking client of the {@link ImageServer}. Keeps one connection open and
+ * sends the requests one after the other.
+ *
+ * @author mariovillacortagarcia
+ */
+public class ImageServiceClient implements AutoCloseable {
+
+    /**
+     * Largest accepted response, to reject corrupt lengths before allocating.
+     * Responses may be larger than the requests the server accepts, since
+     * the processed image is encoded again.
+     */
+    private static final int MAX_RESPONSE_LENGTH = 256 * 1024 * 1024;
+
+    private final Socket socket;
+    private final DataInputStream in;
+    private final DataOutputStream out;
+
+    /**
+     * Thrown when the server rejects a request because it is saturated. The
+     * same request may succeed if sent again later.
+     */
+    public static class ServerBusyException extends IOException {
+
+        /**
+         * Constructs the exception.
+         *
+         * @param message the message sent by the server
+         */
+        public ServerBusyException(String message) {
+            super(message);
+        }
+    }
+
+    /**
+     * Connects to a server.
+     *
+     * @param address the address of the server
+     * @throws IOException if the connection cannot be established
+     */
+    public ImageServiceClient(InetSocketAddress address) throws IOException {
+        socket = new Socket();
+        socket.connect(address);
+        socket.setTcpNoDelay(true);
+        in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+        out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+    }
+
+    /**
+     * Sends an encoded image and waits for the processed image.
+     *
+     * @param image     the encoded image, in any format ImageIO can read
+     * @param operation "average", "rec601", "rec709" or a filter chain
+     *                  specification
+     * @return the processed image, encoded in the format of the request
+     * @throws ServerBusyException if the server rejected the request
+     * @throws IOException         if the server could not process the image
+     *                             or the connection failed
+     */
+    public byte[] process(byte[] image, String operation) throws IOException {
+        byte[] name = operation.getBytes(StandardCharsets.UTF_8);
+        if (name.length > 0xFFFF) {
+            throw new IllegalArgumentException("Operation too long: " + name.length + " bytes");
+        }
+        out.writeInt(2 + name.length + image.length);
+        out.writeShort(name.length);
+        out.write(name);
+        out.write(image);
+        out.flush();
+
+        final int length = in.readInt();
+        if (length < 1 || length > MAX_RESPONSE_LENGTH) {
+            throw new IOException("Invalid frame length: " + length);
+        }
+        final byte status = in.readByte();
+        byte[] body = new byte[length - 1];
+        in.readFully(body);
+        return switch (status) {
+            case ImageServer.STATUS_OK -> body;
+            case ImageServer.STATUS_BUSY -> throw new ServerBusyException(new String(body, StandardCharsets.UTF_8));
+            case ImageServer.STATUS_ERROR -> throw new IOException("Server error: "
+                    + new String(body, StandardCharsets.UTF_8));
+            default -> throw new IOException("Unexpected status: " + status);
+        };
+    }
+
+    /**
+     * Closes the connection.
+     *
+     * @throws IOException if the socket cannot be closed
+     */
+    @Override
+    public void close() throws IOException {
+        socket.close();
+    }
+}
@@ -0,0 +1,130 @@
+package com.sistemasdistribuidos.thread.image.processing;
+
+import java.awt.image.BufferedImage;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.IntUnaryOperator;
+
+/**
+ * Parallel statistics pass and the adjustments built on it. The histogram is
+ * computed on the tile scheduler: every worker thread fills its own
+ * {@link ImageHistogram}, with no shared counters, and the partial
+ * histograms are merged once all the tiles are done.
+ *
+ * @author mariovillacortagarcia
+ */
+public final class ImageStatistics {
+
+    private static final int MAX_LEVEL = ImageHistogram.LEVELS - 1;
+
+    /**
+     * Utility class, not instantiable.
+     */
+    private ImageStatistics() {
+    }
+
+    /**
+     * Computes the histogram of the whole image in parallel.
+     *
+     * @param scheduler the scheduler that runs the tiles
+     * @param image     the image to scan
+     * @return the merged histogram
+     */
+    public static ImageHistogram computeHistogram(ForkJoinTileScheduler scheduler, BufferedImage image) {
+        Accumulator accumulator = new Accumulator();
+        scheduler.process(image, area -> new HistogramProcessor(image, area, accumulator));
+        return accumulator.merge();
+    }
+
+    /**
+     * Creates a filter that stretches each channel so the given fraction of
+     * the darkest and of the brightest pixels are clipped to 0 and 255.
+     *
+     * @param histogram the histogram of the image
+     * @param clip      the fraction clipped at each end, from 0 to 0.5
+     * @return the auto-contrast filter
+     * @throws IllegalArgumentException if the clip fraction is out of range
+     */
+    public static LookupFilter autoContrast(ImageHistogram histogram, double clip) {
+        if (clip < 0 || clip >= 0.5) {
+            throw new IllegalArgumentException("Clip fraction must be in [0, 0.5): " + clip);
+        }
+        return LookupFilter.perChannel(
+                stretch(histogram, ImageHistogram.RED, clip),
+                stretch(histogram, ImageHistogram.GREEN, clip),
+                stretch(histogram, ImageHistogram.BLUE, clip));
+    }
+
+    /**
+     * Creates a filter that equalises the histogram of each channel, mapping
+     * every level to its cumulative frequency.
+     *
+     * @param histogram the histogram of the image
+     * @return the equalisation filter
+     */
+    public static LookupFilter equalize(ImageHistogram histogram) {
+        return LookupFilter.perChannel(
+                equalization(histogram, ImageHistogram.RED),
+                equalization(histogram, ImageHistogram.GREEN),
+                equalization(histogram, ImageHistogram.BLUE));
+    }
+
+    /**
+     * Creates the linear stretch of a channel.
+     */
+    private static IntUnaryOperator stretch(ImageHistogram histogram, int channel,
+            double clip) {
+        final int low = histogram.getPercentile(channel, clip);
+        final int high = histogram.getPercentile(channel, 1 - clip);
+        if (high <= low) {
+            return level -> level;
+        }
+        return level -> (int) Math.round((double) (level - low) * MAX_LEVEL / (high - low));
+    }
+
+    /**
+     * Creates the equalisation mapping of a channel.
+     */
+    private static IntUnaryOperator equalization(ImageHistogram histogram, int channel) {
+        final long[] cumulative = histogram.getCumulative(channel);
+        final long first = cumulative[histogram.getMin(channel)];
+        final long total = histogram.getPixelCount();
+        if (total <= first) {
+            return level -> level;
+        }
+        return level -> (int) Math.round((double) Math.max(0, cumulative[level] - first) * MAX_LEVEL
+                / (total - first));
+    }
+
+    /**
+     * Hands out one histogram per worker thread and merges them at the end.
+     * The map is only touched once per tile, never in the per-pixel loop.
+     */
+    public static final class Accumulator {
+
+        private final Map<Thread, ImageHistogram> histograms = new ConcurrentHashMap<>();
+
+        /**
+         * Gets the histogram of the calling thread, creating it if needed.
+         *
+         * @return the histogram owned by the current thread
+         */
+        public ImageHistogram forCurrentThread() {
+            return histograms.computeIfAbsent(Thread.currentThread(), thread -> new ImageHistogram());
+        }
+
+        /**
+         * Merges the histograms of every worker. Must be called once all the
+         * tiles have been processed.
+         *
+         * @return the merged histogram
+         */
+        public ImageHistogram merge() {
+            ImageHistogram merged = new ImageHistogram();
+            for (ImageHistogram histogram : histograms.values()) {
+                merged.merge(histogram);
+            }
+            return merged;
+        }
+    }
+}
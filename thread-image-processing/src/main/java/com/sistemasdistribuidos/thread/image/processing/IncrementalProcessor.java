@@ -0,0 +1,157 @@
+package com.sistemasdistribuidos.thread.image.processing;
+
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Keeps the output of a processing pass up to date with a source image that
+ * is edited in small areas. Callers mark the rectangles they change as dirty
+ * and {@link #update()} reprocesses only the tiles of the output that
+ * overlap them, leaving the rest of the existing output as it is.
+ *
+ * Dirty areas are tracked on the tile grid of a {@link ForkJoinTileScheduler}
+ * and the dirty tiles are run through its pool, each one with a processor
+ * created for its {@link Rectangle}, the same way a full pass creates one per
+ * tile. For neighbourhood filters every dirty rectangle is grown by the halo
+ * of the filter, the distance at which a changed source pixel still affects
+ * the output. Every tile starts dirty, so the first update is the full pass.
+ *
+ * @author mariovillacortagarcia
+ */
+public class IncrementalProcessor {
+
+    private final ForkJoinTileScheduler scheduler;
+    private final int width;
+    private final int height;
+    private final int halo;
+    private final Function<Rectangle, Runnable> processorFactory;
+    private final int columns;
+    private final int rows;
+    private final BitSet dirty;
+
+    /**
+     * Constructs a processor for an image of the given size with every tile
+     * dirty.
+     *
+     * @param scheduler        the scheduler that runs the dirty tiles and
+     *                         whose tile shape sets the grid
+     * @param width            the width of the image
+     * @param height           the height of the image
+     * @param halo             the distance at which a source pixel affects the
+     *                         output, 0 for pixel by pixel operations
+     * @param processorFactory creates the processor that writes the output of
+     *                         a given tile
+     * @throws IllegalArgumentException if the halo is negative
+     */
+    public IncrementalProcessor(ForkJoinTileScheduler scheduler, int width, int height, int halo,
+            Function<Rectangle, Runnable> processorFactory) {
+        if (halo < 0) {
+            throw new IllegalArgumentException("Halo must not be negative: " + halo);
+        }
+        this.scheduler = scheduler;
+        this.width = width;
+        this.height = height;
+        this.halo = halo;
+        this.processorFactory = processorFactory;
+        this.columns = Math.ceilDiv(width, scheduler.getTileWidth());
+        this.rows = Math.ceilDiv(height, scheduler.getTileHeight());
+        this.dirty = new BitSet(columns * rows);
+        dirty.set(0, columns * rows);
+    }
+
+    /**
+     * Creates a processor that keeps a grayscale copy of an image.
+     *
+     * @param scheduler the scheduler that runs the dirty tiles
+     * @param source    the image that is edited
+     * @param output    the grayscale copy, of the size and layout of the source
+     * @param weights   the luminance weights, or null to average all the bands
+     * @return the processor
+     */
+    public static IncrementalProcessor grayscale(ForkJoinTileScheduler scheduler, BufferedImage source,
+            BufferedImage output, LuminanceWeights weights) {
+        return new IncrementalProcessor(scheduler, source.getWidth(), source.getHeight(), 0, area -> () -> {
+            TileBuffers.copy(source, output, area);
+            new ImageProcessor(output, area, weights).run();
+        });
+    }
+
+    /**
+     * Marks an area of the source as changed. The area is grown by the halo
+     * and clipped to the image.
+     *
+     * @param area the changed area
+     */
+    public synchronized void markDirty(Rectangle area) {
+        final int x0 = Math.max(0, area.x - halo);
+        final int y0 = Math.max(0, area.y - halo);
+        final int x1 = Math.min(width, area.x + area.width + halo);
+        final int y1 = Math.min(height, area.y + area.height + halo);
+        if (x0 >= x1 || y0 >= y1) {
+            return;
+        }
+        final int firstColumn = x0 / scheduler.getTileWidth();
+        final int lastColumn = (x1 - 1) / scheduler.getTileWidth();
+        for (int row = y0 / scheduler.getTileHeight(); row <= (y1 - 1) / scheduler.getTileHeight(); row++) {
+            dirty.set(row * columns + firstColumn, row * columns + lastColumn + 1);
+        }
+    }
+
+    /**
+     * Marks the whole image as changed.
+     */
+    public synchronized void markAllDirty() {
+        dirty.set(0, columns * rows);
+    }
+
+    /**
+     * Gets the number of tiles the next update will reprocess.
+     *
+     * @return the number of dirty tiles
+     */
+    public synchronized int getDirtyTiles() {
+        return dirty.cardinality();
+    }
+
+    /**
+     * Reprocesses the dirty tiles into the output and marks them clean. Areas
+     * marked dirty while the update runs are left for the next one. If a
+     * processor fails, the tiles of the update are marked dirty again.
+     *
+     * @return the number of tiles reprocessed
+     */
+    public int update() {
+        BitSet pending;
+        synchronized (this) {
+            pending = (BitSet) dirty.clone();
+            dirty.clear();
+        }
+        List<Rectangle> tiles = new ArrayList<>();
+        for (int tile = pending.nextSetBit(0); tile >= 0; tile = pending.nextSetBit(tile + 1)) {
+            tiles.add(tileBounds(tile));
+        }
+        try {
+            scheduler.process(tiles, processorFactory);
+        } catch (RuntimeException e) {
+            synchronized (this) {
+                dirty.or(pending);
+            }
+            throw e;
+        }
+        return tiles.size();
+    }
+
+    /**
+     * Gets the area of a tile of the grid, clipped to the image.
+     */
+    private Rectangle tileBounds(int tile) {
+        final int x = (tile % columns) * scheduler.getTileWidth();
+        final int y = (tile / columns) * scheduler.getTileHeight();
+        return new Rectangle(x, y, Math.min(scheduler.getTileWidth(), width - x),
+                Math.min(scheduler.getTileHeight(), height - y));
+    }
+}
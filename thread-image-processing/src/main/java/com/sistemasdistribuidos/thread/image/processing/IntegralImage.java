@@ -0,0 +1,281 @@
+package com.sistemasdistribuidos.thread.image.processing;
+
+import java.awt.image.BufferedImage;
+
+/**
+ * Summed-area table of an image. Entry (x, y) of a table holds the sum of
+ * every sample above and to the left of pixel (x, y), so the sum over any
+ * rectangle takes four reads whatever its size, and box filters and local
+ * statistics cost the same for a 3x3 window as for a 301x301 one.
+ *
+ * The tables have one more row and column than the image, all zero, so no
+ * query needs a bounds check. They are built in two parallel passes over a
+ * {@link ForkJoinTileScheduler}: every worker first computes the prefix sums
+ * of a band of rows, reading the pixels, and then accumulates a band of
+ * columns from top to bottom, walking each row of the band contiguously.
+ * Sums are kept in longs, which hold the squares of a 100-megapixel image.
+ *
+ * @author mariovillacortagarcia
+ */
+public final class IntegralImage {
+
+    private final int width;
+    private final int height;
+    private final int stride;
+    private final int channels;
+    private final long[][] sums;
+    private final long[] squares;
+
+    /**
+     * Constructs empty tables.
+     *
+     * @param width       the width of the image
+     * @param height      the height of the image
+     * @param channels    the number of channels summed
+     * @param withSquares whether the squares of the first channel are summed
+     */
+    private IntegralImage(int width, int height, int channels, boolean withSquares) {
+        this.width = width;
+        this.height = height;
+        this.stride = width + 1;
+        this.channels = channels;
+        final int length = Math.multiplyExact(width + 1, height + 1);
+        this.sums = new long[channels][length];
+        this.squares = withSquares ? new long[length] : null;
+    }
+
+    /**
+     * Builds the tables of the color channels of an image: red, green and
+     * blue, followed by alpha if the image has it.
+     *
+     * @param scheduler the scheduler that runs both passes
+     * @param image     the image to sum
+     * @return the tables, one channel per color band
+     */
+    public static IntegralImage ofColor(ForkJoinTileScheduler scheduler, BufferedImage image) {
+        final boolean alpha = image.getColorModel().hasAlpha();
+        IntegralImage integral = new IntegralImage(image.getWidth(), image.getHeight(), alpha ? 4 : 3, false);
+        scheduler.process(1, image.getHeight(), area -> () -> integral.sumColorRows(image, area.y,
+                area.y + area.height));
+        integral.sumColumns(scheduler);
+        return integral;
+    }
+
+    /**
+     * Builds the table of the luminance of an image and of its square, the
+     * input of the local mean and variance.
+     *
+     * @param scheduler the scheduler that runs both passes
+     * @param image     the image to sum
+     * @param weights   the luminance weights, or null to average the bands
+     * @return the tables, with a single channel and its squares
+     */
+    public static IntegralImage ofLuminance(ForkJoinTileScheduler scheduler, BufferedImage image,
+            LuminanceWeights weights) {
+        IntegralImage integral = new IntegralImage(image.getWidth(), image.getHeight(), 1, true);
+        scheduler.process(1, image.getHeight(), area -> () -> integral.sumLuminanceRows(image, weights,
+                area.y, area.y + area.height));
+        integral.sumColumns(scheduler);
+        return integral;
+    }
+
+    /**
+     * Gets the width of the image.
+     *
+     * @return the width in pixels
+     */
+    public int getWidth() {
+        return width;
+    }
+
+    /**
+     * Gets the height of the image.
+     *
+     * @return the height in pixels
+     */
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * Gets the number of channels summed.
+     *
+     * @return the number of channels
+     */
+    public int getChannels() {
+        return channels;
+    }
+
+    /**
+     * Sums a channel over a rectangle. The rectangle is clipped to the image.
+     *
+     * @param channel the channel
+     * @param x0      the first column, inclusive
+     * @param y0      the first row, inclusive
+     * @param x1      the last column, exclusive
+     * @param y1      the last row, exclusive
+     * @return the sum of the samples
+     */
+    public long sum(int channel, int x0, int y0, int x1, int y1) {
+        return rectangle(sums[channel], x0, y0, x1, y1);
+    }
+
+    /**
+     * Sums the squares of the first channel over a rectangle. The rectangle
+     * is clipped to the image.
+     *
+     * @param x0 the first column, inclusive
+     * @param y0 the first row, inclusive
+     * @param x1 the last column, exclusive
+     * @param y1 the last row, exclusive
+     * @return the sum of the squared samples
+     * @throws IllegalStateException if the squares were not summed
+     */
+    public long sumOfSquares(int x0, int y0, int x1, int y1) {
+        if (squares == null) {
+            throw new IllegalStateException("Squares are only summed for the luminance");
+        }
+        return rectangle(squares, x0, y0, x1, y1);
+    }
+
+    /**
+     * Gets the table of a channel, for the processors that walk it directly.
+     * Entry (x, y) is at index y * stride + x, for x up to the width and y up
+     * to the height, both inclusive.
+     *
+     * @param channel the channel
+     * @return the table, which must not be modified
+     */
+    long[] getTable(int channel) {
+        return sums[channel];
+    }
+
+    /**
+     * Gets the table of the squares of the first channel, with the same
+     * layout as {@link #getTable(int)}.
+     *
+     * @return the table, or null if the squares were not summed
+     */
+    long[] getSquaresTable() {
+        return squares;
+    }
+
+    /**
+     * Gets the distance between the rows of the tables.
+     *
+     * @return the width plus one
+     */
+    int getStride() {
+        return stride;
+    }
+
+    /**
+     * Reads a rectangle of a table.
+     */
+    private long rectangle(long[] table, int x0, int y0, int x1, int y1) {
+        x0 = Math.clamp(x0, 0, width);
+        x1 = Math.clamp(x1, 0, width);
+        y0 = Math.clamp(y0, 0, height) * stride;
+        y1 = Math.clamp(y1, 0, height) * stride;
+        return table[y1 + x1] - table[y0 + x1] - table[y1 + x0] + table[y0 + x0];
+    }
+
+    /**
+     * First pass for the color channels: prefix sums of a band of rows.
+     */
+    private void sumColorRows(BufferedImage image, int firstRow, int endRow) {
+        final int[] row = new int[width];
+        final DirectRaster direct = DirectRaster.ofArgb(image);
+        for (int y = firstRow; y < endRow; y++) {
+            readRow(image, direct, y, row);
+            final int start = (y + 1) * stride + 1;
+            long red = 0;
+            long green = 0;
+            long blue = 0;
+            long alpha = 0;
+            for (int x = 0; x < width; x++) {
+                final int pixel = row[x];
+                red += (pixel >> 16) & 0xFF;
+                green += (pixel >> 8) & 0xFF;
+                blue += pixel & 0xFF;
+                sums[0][start + x] = red;
+                sums[1][start + x] = green;
+                sums[2][start + x] = blue;
+                if (channels == 4) {
+                    alpha += pixel >>> 24;
+                    sums[3][start + x] = alpha;
+                }
+            }
+        }
+    }
+
+    /**
+     * First pass for the luminance: prefix sums of a band of rows, and of
+     * their squares.
+     */
+    private void sumLuminanceRows(BufferedImage image, LuminanceWeights weights, int firstRow, int endRow) {
+        final int[] row = new int[width];
+        final long[] table = sums[0];
+        final DirectRaster direct = DirectRaster.ofArgb(image);
+        for (int y = firstRow; y < endRow; y++) {
+            readRow(image, direct, y, row);
+            final int start = (y + 1) * stride + 1;
+            long sum = 0;
+            long sumOfSquares = 0;
+            for (int x = 0; x < width; x++) {
+                final int pixel = row[x];
+                final int red = (pixel >> 16) & 0xFF;
+                final int green = (pixel >> 8) & 0xFF;
+                final int blue = pixel & 0xFF;
+                final int gray = weights == null ? (red + green + blue) / 3 : weights.gray(red, green, blue);
+                sum += gray;
+                sumOfSquares += gray * gray;
+                table[start + x] = sum;
+                squares[start + x] = sumOfSquares;
+            }
+        }
+    }
+
+    /**
+     * Second pass: accumulates every table down the columns, one band of
+     * columns per task.
+     */
+    private void sumColumns(ForkJoinTileScheduler scheduler) {
+        scheduler.process(width, 1, area -> () -> {
+            for (long[] table : sums) {
+                sumColumns(table, area.x + 1, area.x + 1 + area.width);
+            }
+            if (squares != null) {
+                sumColumns(squares, area.x + 1, area.x + 1 + area.width);
+            }
+        });
+    }
+
+    /**
+     * Accumulates a band of columns of a table from top to bottom.
+     */
+    private void sumColumns(long[] table, int firstColumn, int endColumn) {
+        for (int y = 2; y <= height; y++) {
+            final int row = y * stride;
+            final int previous = row - stride;
+            for (int x = firstColumn; x < endColumn; x++) {
+                table[row + x] += table[previous + x];
+            }
+        }
+    }
+
+    /**
+     * Reads a row of the image as packed ARGB pixels.
+     */
+    private static void readRow(BufferedImage image, DirectRaster direct, int y, int[] row) {
+        if (direct == null) {
+            image.getRGB(0, y, row.length, 1, row, 0, row.length);
+            return;
+        }
+        final int pixelStride = direct.getPixelStride();
+        int index = direct.indexOf(0, y);
+        for (int x = 0; x < row.length; x++, index += pixelStride) {
+            row[x] = direct.getArgb(index);
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package com.sistemasdistribuidos.thread.image.processing;
+
+/**
+ * Enum representing the neighbourhood filters computed from an
+ * {@link IntegralImage}. All of them look at a square window centred on each
+ * pixel, clipped to the image, and cost the same whatever its size.
+ *
+ * @author mariovillacortagarcia
+ */
+public enum LocalFilter {
+    BOX_BLUR("blur", "Mean color of the window"),
+    MEAN("mean", "Mean luminance of the window"),
+    VARIANCE("variance", "Variance of the luminance of the window, shown as twice its standard deviation"),
+    THRESHOLD("threshold", "Sauvola threshold: white where the luminance exceeds a level derived from the "
+            + "local mean and standard deviation");
+
+    private final String value;
+    private final String description;
+
+    /**
+     * Constructs a LocalFilter with the specified value and description.
+     *
+     * @param value       the command line value for this filter
+     * @param description the description text for this filter
+     */
+    LocalFilter(String value, String description) {
+        this.value = value;
+        this.description = description;
+    }
+
+    /**
+     * Gets the command line value of this filter.
+     *
+     * @return the command line value
+     */
+    public String getValue() {
+        return value;
+    }
+
+    /**
+     * Gets the description of this filter.
+     *
+     * @return the description text
+     */
+    public String getDescription() {
+        return description;
+    }
+
+    /**
+     * Tells whether the filter works on the color channels, and so needs the
+     * color tables, or on the luminance and its squares.
+     *
+     * @return true for the color filters
+     */
+    public boolean isColor() {
+        return this == BOX_BLUR;
+    }
+
+    /**
+     * Finds a LocalFilter by its command line value.
+     *
+     * @param value the command line value to search for
+     * @return the LocalFilter with the matching value, or null if not found
+     */
+    public static LocalFilter fromValue(String value) {
+        for (LocalFilter filter : LocalFilter.values()) {
+            if (filter.value.equalsIgnoreCase(value)) {
+                return filter;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,164 @@
+package com.sistemasdistribuidos.thread.image.processing;
+
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+
+/**
+ * Runnable that applies a {@link LocalFilter} to an area of an image, reading
+ * the window sums from an {@link IntegralImage} and writing the result to
+ * another image. Every pixel takes a handful of table reads, whatever the
+ * radius of the window.
+ *
+ * @author mariovillacortagarcia
+ */
+public class LocalFilterProcessor implements Runnable {
+
+    /**
+     * Dynamic range of the standard deviation in the Sauvola threshold, half
+     * the range of an 8-bit channel.
+     */
+    private static final double SAUVOLA_RANGE = 128.0;
+
+    private final IntegralImage integral;
+    private final BufferedImage destination;
+    private final Rectangle area;
+    private final LocalFilter filter;
+    private final int radius;
+    private final double sensitivity;
+
+    /**
+     * Constructs a LocalFilterProcessor for the specified area.
+     *
+     * @param integral    the tables of the source image: the color tables for
+     *                    the box blur, the luminance tables otherwise
+     * @param destination the image to write, of the size of the source
+     * @param area        the area to process
+     * @param filter      the filter to apply
+     * @param radius      the distance from the centre to the edge of the window
+     * @param sensitivity the Sauvola k parameter; higher values darken more
+     *                    low-contrast pixels. Only used by the threshold
+     * @throws IllegalArgumentException if the radius is negative or the tables
+     *                                  do not suit the filter
+     */
+    public LocalFilterProcessor(IntegralImage integral, BufferedImage destination, Rectangle area,
+            LocalFilter filter, int radius, double sensitivity) {
+        if (radius < 0) {
+            throw new IllegalArgumentException("Radius must not be negative: " + radius);
+        }
+        if (filter.isColor() != (integral.getChannels() >= 3)) {
+            throw new IllegalArgumentException("The " + filter.getValue() + " filter needs the "
+                    + (filter.isColor() ? "color" : "luminance") + " tables");
+        }
+        this.integral = integral;
+        this.destination = destination;
+        this.area = area;
+        this.filter = filter;
+        this.radius = radius;
+        this.sensitivity = sensitivity;
+    }
+
+    /**
+     * Filters every pixel of the assigned area.
+     */
+    @Override
+    public void run() {
+        final int[] pixels = new int[area.width * area.height];
+        final int width = integral.getWidth();
+        final int height = integral.getHeight();
+        final int stride = integral.getStride();
+        int i = 0;
+        for (int y = area.y; y < area.y + area.height; y++) {
+            final int top = Math.max(0, y - radius);
+            final int bottom = Math.min(height, y + radius + 1);
+            final int topRow = top * stride;
+            final int bottomRow = bottom * stride;
+            final int rows = bottom - top;
+            for (int x = area.x; x < area.x + area.width; x++) {
+                final int left = Math.max(0, x - radius);
+                final int right = Math.min(width, x + radius + 1);
+                final Window window = new Window(topRow + left, topRow + right, bottomRow + left,
+                        bottomRow + right, (right - left) * rows);
+                pixels[i++] = switch (filter) {
+                    case BOX_BLUR -> blur(window);
+                    case MEAN -> gray(mean(integral.getTable(0), window));
+                    case VARIANCE -> gray(Math.min(255, (int) Math.round(2 * Math.sqrt(variance(window)))));
+                    case THRESHOLD -> threshold(window, (y + 1) * stride + x + 1);
+                };
+            }
+        }
+        TileBuffers.write(destination, area, pixels);
+    }
+
+    /**
+     * Averages every channel over the window.
+     */
+    private int blur(Window window) {
+        final int alpha = integral.getChannels() == 4 ? mean(integral.getTable(3), window) : 0xFF;
+        return alpha << 24 | mean(integral.getTable(0), window) << 16 | mean(integral.getTable(1), window) << 8
+                | mean(integral.getTable(2), window);
+    }
+
+    /**
+     * Compares the luminance of a pixel with its Sauvola threshold,
+     * mean * (1 + k * (deviation / 128 - 1)).
+     *
+     * @param window the window of the pixel
+     * @param corner the index of the bottom right corner of the pixel
+     */
+    private int threshold(Window window, int corner) {
+        final long[] table = integral.getTable(0);
+        final double mean = (double) window.sum(table) / window.count();
+        final double deviation = Math.sqrt(variance(window));
+        final double level = mean * (1 + sensitivity * (deviation / SAUVOLA_RANGE - 1));
+        final int stride = integral.getStride();
+        final long luminance = table[corner] - table[corner - 1] - table[corner - stride]
+                + table[corner - stride - 1];
+        return gray(luminance > level ? 255 : 0);
+    }
+
+    /**
+     * Computes the rounded mean of a table over the window.
+     */
+    private static int mean(long[] table, Window window) {
+        return (int) ((window.sum(table) + window.count() / 2) / window.count());
+    }
+
+    /**
+     * Computes the variance of the luminance over the window, as the mean of
+     * the squares minus the square of the mean.
+     */
+    private double variance(Window window) {
+        final double mean = (double) window.sum(integral.getTable(0)) / window.count();
+        return Math.max(0, (double) window.sum(integral.getSquaresTable()) / window.count() - mean * mean);
+    }
+
+    /**
+     * Packs a level as an opaque gray pixel.
+     */
+    private static int gray(int level) {
+        return 0xFF000000 | level * 0x010101;
+    }
+
+    /**
+     * Window of a pixel: the indexes of its four corners in the tables and
+     * the number of pixels it covers.
+     *
+     * @param topLeft     the index of the top left corner
+     * @param topRight    the index of the top right corner
+     * @param bottomLeft  the index of the bottom left corner
+     * @param bottomRight the index of the bottom right corner
+     * @param count       the number of pixels
+     */
+    private record Window(int topLeft, int topRight, int bottomLeft, int bottomRight, int count) {
+
+        /**
+         * Sums a table over the window.
+         *
+         * @param table the table
+         * @return the sum
+         */
+        long sum(long[] table) {
+            return table[bottomRight] - table[topRight] - table[bottomLeft] + table[topLeft];
+        }
+    }
+}
@@ -0,0 +1,164 @@
+package com.sistemasdistribuidos.thread.image.processing;
+
+import java.util.function.IntUnaryOperator;
+
+/**
+ * Filter that maps each color channel through a 256 entry table, leaving
+ * alpha untouched. Brightness, contrast, gamma and invert use the same table
+ * for every channel, while histogram based adjustments use one per channel.
+ * Consecutive lookup filters are fused into a single set of tables by
+ * {@link #andThen(LookupFilter)}.
+ *
+ * @author mariovillacortagarcia
+ */
+public final class LookupFilter implements PixelFilter {
+
+    private static final int LEVELS = 256;
+    private static final int MAX_LEVEL = LEVELS - 1;
+
+    private final int[] redTable;
+    private final int[] greenTable;
+    private final int[] blueTable;
+
+    /**
+     * Constructs a lookup filter from a table per channel.
+     *
+     * @param redTable   the output red level of each input level
+     * @param greenTable the output green level of each input level
+     * @param blueTable  the output blue level of each input level
+     */
+    private LookupFilter(int[] redTable, int[] greenTable, int[] blueTable) {
+        this.redTable = redTable;
+        this.greenTable = greenTable;
+        this.blueTable = blueTable;
+    }
+
+    /**
+     * Creates a lookup filter from a function of the channel level. The
+     * results are rounded and clamped to the 0-255 range.
+     *
+     * @param function the function applied to each level
+     * @return the lookup filter
+     */
+    public static LookupFilter of(IntUnaryOperator function) {
+        int[] table = tableOf(function);
+        return new LookupFilter(table, table, table);
+    }
+
+    /**
+     * Creates a lookup filter with a different function per channel. The
+     * results are rounded and clamped to the 0-255 range.
+     *
+     * @param red   the function applied to the red level
+     * @param green the function applied to the green level
+     * @param blue  the function applied to the blue level
+     * @return the lookup filter
+     */
+    public static LookupFilter perChannel(IntUnaryOperator red, IntUnaryOperator green, IntUnaryOperator blue) {
+        return new LookupFilter(tableOf(red), tableOf(green), tableOf(blue));
+    }
+
+    /**
+     * Creates a filter that adds a constant to every channel.
+     *
+     * @param offset the value added, may be negative
+     * @return the brightness filter
+     */
+    public static LookupFilter brightness(int offset) {
+        return of(level -> level + offset);
+    }
+
+    /**
+     * Creates a filter that scales every channel around the middle level.
+     *
+     * @param factor the contrast factor, 1 leaves the image unchanged
+     * @return the contrast filter
+     */
+    public static LookupFilter contrast(double factor) {
+        return of(level -> (int) Math.round((level - LEVELS / 2) * factor + LEVELS / 2));
+    }
+
+    /**
+     * Creates a gamma correction filter.
+     *
+     * @param gamma the gamma value, greater than 1 brightens the image
+     * @return the gamma filter
+     * @throws IllegalArgumentException if gamma is not positive
+     */
+    public static LookupFilter gamma(double gamma) {
+        if (gamma <= 0) {
+            throw new IllegalArgumentException("Gamma must be positive: " + gamma);
+        }
+        return of(level -> (int) Math.round(MAX_LEVEL * Math.pow((double) level / MAX_LEVEL, 1 / gamma)));
+    }
+
+    /**
+     * Creates a filter that inverts every channel.
+     *
+     * @return the invert filter
+     */
+    public static LookupFilter invert() {
+        return of(level -> MAX_LEVEL - level);
+    }
+
+    /**
+     * Fuses this filter with the next one into a single table.
+     *
+     * @param next the filter applied after this one
+     * @return the fused filter
+     */
+    public LookupFilter andThen(LookupFilter next) {
+        return new LookupFilter(compose(redTable, next.redTable), compose(greenTable, next.greenTable),
+                compose(blueTable, next.blueTable));
+    }
+
+    /**
+     * Applies the table to the red, green and blue channels of a pixel.
+     */
+    @Override
+    public int apply(int argb) {
+        return (argb & 0xFF000000)
+                | redTable[(argb >> 16) & MAX_LEVEL] << 16
+                | greenTable[(argb >> 8) & MAX_LEVEL] << 8
+                | blueTable[argb & MAX_LEVEL];
+    }
+
+    /**
+     * Tabulates a function of the level.
+     *
+     * @param function the function
+     * @return the table of rounded and clamped results
+     */
+    private static int[] tableOf(IntUnaryOperator function) {
+        int[] table = new int[LEVELS];
+        for (int level = 0; level < LEVELS; level++) {
+            table[level] = clamp(function.applyAsInt(level));
+        }
+        return table;
+    }
+
+    /**
+     * Composes two tables.
+     *
+     * @param first  the table applied first
+     * @param second the table applied second
+     * @return the composed table
+     */
+    private static int[] compose(int[] first, int[] second) {
+        int[] composed = new int[LEVELS];
+        for (int level = 0; level < LEVELS; level++) {
+            composed[level] = second[first[level]];
+        }
+        return composed;
+    }
+
+    /**
+     * Clamps a value to the 0-255 range.
+     *
+     * @param value the value to clamp
+     * @return the clamped value
+     */
+    private static int clamp(int value) {
+        return Math.max(0, Math.min(MAX_LEVEL, value));
+    }
+}
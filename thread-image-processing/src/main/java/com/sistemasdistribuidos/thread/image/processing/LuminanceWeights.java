@@ -0,0 +1,116 @@
+package com.sistemasdistribuidos.thread.image.processing;
+
+import java.util.Locale;
+
+/**
+ * Weights of the red, green and blue channels used to compute the luminance
+ * of a pixel. The weights are stored as 16-bit fixed-point values that add up
+ * exactly to one, expanded into a lookup table per channel, so the gray level
+ * is three table reads, two additions and a shift: no floating point and no
+ * division in the hot loop.
+ *
+ * @author mariovillacortagarcia
+ */
+public final class LuminanceWeights {
+
+    /**
+     * ITU-R BT.601 luma weights (standard definition video, JPEG).
+     */
+    public static final LuminanceWeights REC_601 = of("rec601", 0.299, 0.587, 0.114);
+    /**
+     * ITU-R BT.709 luma weights (HD video, sRGB).
+     */
+    public static final LuminanceWeights REC_709 = of("rec709", 0.2126, 0.7152, 0.0722);
+
+    private static final int FIXED_POINT_SHIFT = 16;
+    private static final int FIXED_POINT_ONE = 1 << FIXED_POINT_SHIFT;
+    private static final int ROUNDING = FIXED_POINT_ONE / 2;
+    private static final int LEVELS = 256;
+
+    private final String name;
+    private final int[] redTable;
+    private final int[] greenTable;
+    private final int[] blueTable;
+
+    /**
+     * Constructs the weights from their fixed-point values.
+     */
+    private LuminanceWeights(String name, int red, int green, int blue) {
+        this.name = name;
+        this.redTable = table(red);
+        this.greenTable = table(green);
+        this.blueTable = table(blue);
+    }
+
+    /**
+     * Creates custom weights. They are normalised so they add up to one.
+     *
+     * @param name  the name of the weights, used by {@link #toString()}
+     * @param red   the weight of the red channel
+     * @param green the weight of the green channel
+     * @param blue  the weight of the blue channel
+     * @return the weights
+     * @throws IllegalArgumentException if a weight is negative or all are zero
+     */
+    public static LuminanceWeights of(String name, double red, double green, double blue) {
+        final double sum = red + green + blue;
+        if (red < 0 || green < 0 || blue < 0 || sum <= 0) {
+            throw new IllegalArgumentException("Weights must be non-negative and not all zero");
+        }
+        final int fixedRed = (int) Math.round(red / sum * FIXED_POINT_ONE);
+        final int fixedGreen = (int) Math.round(green / sum * FIXED_POINT_ONE);
+        // Blue takes the rounding remainder so a white pixel stays at 255
+        final int fixedBlue = FIXED_POINT_ONE - fixedRed - fixedGreen;
+        return new LuminanceWeights(name, fixedRed, fixedGreen, fixedBlue);
+    }
+
+    /**
+     * Finds predefined weights by name.
+     *
+     * @param name "rec601" or "rec709"
+     * @return the weights, or null if not found
+     */
+    public static LuminanceWeights fromName(String name) {
+        return switch (name.toLowerCase(Locale.ROOT)) {
+            case "rec601" -> REC_601;
+            case "rec709" -> REC_709;
+            default -> null;
+        };
+    }
+
+    /**
+     * Computes the luminance of a color.
+     *
+     * @param red   the red level, from 0 to 255
+     * @param green the green level, from 0 to 255
+     * @param blue  the blue level, from 0 to 255
+     * @return the luminance, from 0 to 255
+     */
+    public int gray(int red, int green, int blue) {
+        return (redTable[red] + greenTable[green] + blueTable[blue] + ROUNDING) >>> FIXED_POINT_SHIFT;
+    }
+
+    /**
+     * Gets the name of the weights.
+     *
+     * @return the name
+     */
+    @Override
+    public String toString() {
+        return name;
+    }
+
+    /**
+     * Expands a fixed-point weight into the product with every level.
+     *
+     * @param weight the fixed-point weight
+     * @return the table of products
+     */
+    private static int[] table(int weight) {
+        int[] table = new int[LEVELS];
+        for (int level = 0; level < LEVELS; level++) {
+            table[level] = weight * level;
+        }
+        return table;
+    }
+}
@@ -0,0 +1,82 @@
+package com.sistemasdistribuidos.thread.image.processing;
+
+import java.awt.Rectangle;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+
+/**
+ * Image processor that converts a specific area of an {@link OffHeapRaster}
+ * to grayscale. Works on a slice of the segment covering the rows of the
+ * area, with the same averaging or weighted luminance as
+ * {@link ImageProcessor}.
+ *
+ * @author mariovillacortagarcia
+ */
+public class OffHeapImageProcessor implements Runnable {
+
+    private final OffHeapRaster raster;
+    private final Rectangle area;
+    private final LuminanceWeights weights;
+
+    /**
+     * Constructs a new off-heap image processor for the specified area that
+     * averages all the bands of each pixel.
+     *
+     * @param raster the raster to process
+     * @param area   the rectangular area of the raster that will be processed
+     */
+    public OffHeapImageProcessor(OffHeapRaster raster, Rectangle area) {
+        this(raster, area, null);
+    }
+
+    /**
+     * Constructs a new off-heap image processor for the specified area.
+     *
+     * @param raster  the raster to process
+     * @param area    the rectangular area of the raster that will be processed
+     * @param weights the luminance weights, or null to average all the bands
+     */
+    public OffHeapImageProcessor(OffHeapRaster raster, Rectangle area, LuminanceWeights weights) {
+        this.raster = raster;
+        this.area = area;
+        this.weights = weights;
+    }
+
+    /**
+     * Processes the assigned area of the raster, converting each pixel to
+     * grayscale. With luminance weights the color bands are replaced by the
+     * weighted luminance and alpha is preserved.
+     */
+    @Override
+    public void run() {
+        final MemorySegment slice = raster.rows(area.y, area.height);
+        final ValueLayout.OfInt layout = raster.getPixelLayout();
+        final int numBands = raster.getNumBands();
+        final int bandsMask = raster.getBandsMask();
+        final long rowStart = raster.offsetOf(area.x, 0);
+        final long rowBytes = raster.offsetOf(0, 1);
+        final long pixelBytes = layout.byteSize();
+
+        for (int row = 0; row < area.height; row++) {
+            final long start = rowStart + row * rowBytes;
+            final long end = start + area.width * pixelBytes;
+            for (long offset = start; offset < end; offset += pixelBytes) {
+                final int pixel = slice.get(layout, offset);
+                slice.set(layout, offset, weights == null
+                        ? PackedGrayscaleKernel.toGray(pixel, numBands, bandsMask)
+                        : toLuminance(pixel));
+            }
+        }
+    }
+
+    /**
+     * Replaces the color bytes of a packed pixel with its weighted luminance.
+     *
+     * @param pixel the packed pixel (0xAARRGGBB)
+     * @return the pixel with its color bytes set to the luminance
+     */
+    private int toLuminance(int pixel) {
+        final int gray = weights.gray((pixel >>> 16) & 0xFF, (pixel >>> 8) & 0xFF, pixel & 0xFF);
+        return (pixel & 0xFF000000) | gray * 0x010101;
+    }
+}
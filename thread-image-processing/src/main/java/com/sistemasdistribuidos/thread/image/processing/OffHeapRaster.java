@@ -0,0 +1,179 @@
+package com.sistemasdistribuidos.thread.image.processing;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+
+/**
+ * Raster that keeps its pixels outside the Java heap in a
+ * {@link MemorySegment} allocated off-heap. Pixels are stored as packed ints
+ * (0xAARRGGBB) in native byte order, row after row, so huge images do not put
+ * pressure on the garbage collector.
+ *
+ * The segment is shared between threads: workers may process disjoint areas
+ * concurrently through {@link #rows(int, int)} slices.
+ *
+ * @author mariovillacortagarcia
+ */
+public class OffHeapRaster implements AutoCloseable {
+
+    private static final ValueLayout.OfInt PIXEL = ValueLayout.JAVA_INT;
+    private static final int OPAQUE_BANDS_MASK = 0x00FFFFFF;
+    private static final int ALPHA_BANDS_MASK = 0xFFFFFFFF;
+
+    private final Arena arena;
+    private final MemorySegment pixels;
+    private final int width;
+    private final int height;
+    private final boolean hasAlpha;
+
+    /**
+     * Constructs a raster over an existing segment.
+     */
+    private OffHeapRaster(Arena arena, MemorySegment pixels, int width, int height, boolean hasAlpha) {
+        this.arena = arena;
+        this.pixels = pixels;
+        this.width = width;
+        this.height = height;
+        this.hasAlpha = hasAlpha;
+    }
+
+    /**
+     * Allocates an off-heap raster filled with zeros.
+     *
+     * @param width    the width in pixels
+     * @param height   the height in pixels
+     * @param hasAlpha whether the alpha byte of each pixel is a band
+     * @return the new raster
+     * @throws IllegalArgumentException if the size is not positive
+     */
+    public static OffHeapRaster allocate(int width, int height, boolean hasAlpha) {
+        final long size = byteSize(width, height);
+        Arena arena = Arena.ofShared();
+        return new OffHeapRaster(arena, arena.allocate(size, PIXEL.byteAlignment()), width, height, hasAlpha);
+    }
+
+    /**
+     * Copies an image into a new off-heap raster.
+     *
+     * @param image the image to copy
+     * @return the new raster
+     */
+    public static OffHeapRaster fromImage(BufferedImage image) {
+        final int w = image.getWidth();
+        final int h = image.getHeight();
+        OffHeapRaster raster = allocate(w, h, image.getColorModel().hasAlpha());
+        final int[] row = new int[w];
+        for (int y = 0; y < h; y++) {
+            image.getRGB(0, y, w, 1, row, 0, w);
+            MemorySegment.copy(row, 0, raster.pixels, PIXEL, raster.offsetOf(0, y), w);
+        }
+        return raster;
+    }
+
+    /**
+     * Copies the raster into a new on-heap image of type TYPE_INT_ARGB, or
+     * TYPE_INT_RGB if the raster has no alpha.
+     *
+     * @return the new image
+     */
+    public BufferedImage toImage() {
+        BufferedImage image = new BufferedImage(width, height,
+                hasAlpha ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB);
+        final int[] data = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+        MemorySegment.copy(pixels, PIXEL, 0, data, 0, width * height);
+        return image;
+    }
+
+    /**
+     * Gets a slice of the segment with the given full-width rows.
+     *
+     * @param y    the first row
+     * @param rows the number of rows
+     * @return the slice of the rows
+     */
+    public MemorySegment rows(int y, int rows) {
+        return pixels.asSlice(offsetOf(0, y), (long) rows * width * PIXEL.byteSize());
+    }
+
+    /**
+     * Gets the byte offset of a pixel in the segment.
+     *
+     * @param x the x coordinate
+     * @param y the y coordinate
+     * @return the byte offset of the pixel
+     */
+    public long offsetOf(int x, int y) {
+        return ((long) y * width + x) * PIXEL.byteSize();
+    }
+
+    /**
+     * Gets the layout of each pixel in the segment.
+     *
+     * @return the pixel layout
+     */
+    public ValueLayout.OfInt getPixelLayout() {
+        return PIXEL;
+    }
+
+    /**
+     * Gets the width of the raster.
+     *
+     * @return the width in pixels
+     */
+    public int getWidth() {
+        return width;
+    }
+
+    /**
+     * Gets the height of the raster.
+     *
+     * @return the height in pixels
+     */
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * Gets the number of bands of each pixel.
+     *
+     * @return 4 if the raster has alpha, 3 otherwise
+     */
+    public int getNumBands() {
+        return hasAlpha ? 4 : 3;
+    }
+
+    /**
+     * Gets the bits of a pixel used by its bands.
+     *
+     * @return the union of the band masks
+     */
+    public int getBandsMask() {
+        return hasAlpha ? ALPHA_BANDS_MASK : OPAQUE_BANDS_MASK;
+    }
+
+    /**
+     * Releases the off-heap memory. The raster must not be used afterwards.
+     */
+    @Override
+    public void close() {
+        arena.close();
+    }
+
+    /**
+     * Computes the size in bytes of a raster.
+     *
+     * @param width  the width in pixels
+     * @param height the height in pixels
+     * @return the size in bytes
+     * @throws IllegalArgumentException if the size is not positive
+     */
+    private static long byteSize(int width, int height) {
+        if (width <= 0 || height <= 0) {
+            throw new IllegalArgumentException("Invalid raster size: " + width + "x" + height);
+        }
+        return (long) width * height * PIXEL.byteSize();
+    }
+}
@@ -0,0 +1,37 @@
+package com.sistemasdistribuidos.thread.image.processing;
+
+/**
+ * Kernel that converts a row of packed int pixels to grayscale, averaging
+ * the bytes selected by the bands mask and preserving the remaining bits.
+ *
+ * @author mariovillacortagarcia
+ */
+interface PackedGrayscaleKernel {
+
+    /**
+     * Converts the pixels of a row to grayscale in place.
+     *
+     * @param data      the packed pixels array
+     * @param start     the index of the first pixel of the row
+     * @param end       the index after the last pixel of the row
+     * @param numBands  the number of bands of each pixel
+     * @param bandsMask the bits used by the bands
+     */
+    void processRow(int[] data, int start, int end, int numBands, int bandsMask);
+
+    /**
+     * Converts a single packed pixel to grayscale.
+     *
+     * @param pixel     the packed pixel
+     * @param numBands  the number of bands of the pixel
+     * @param bandsMask the bits used by the bands
+     * @return the grayscale packed pixel
+     */
+    static int toGray(int pixel, int numBands, int bandsMask) {
+        final int masked = pixel & bandsMask;
+        final int sum = (masked >>> 24) + ((masked >> 16) & 0xFF)
+                + ((masked >> 8) & 0xFF) + (masked & 0xFF);
+        final int gray = sum / numBands;
+        return (pixel & ~bandsMask) | (gray * 0x01010101 & bandsMask);
+    }
+}
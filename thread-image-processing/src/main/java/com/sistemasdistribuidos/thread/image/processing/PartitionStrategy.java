@@ -0,0 +1,212 @@
+package com.sistemasdistribuidos.thread.image.processing;
+
+import java.awt.Rectangle;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Enum representing the ways of cutting an image into areas for threads that
+ * take them in list order, as
+ * {@link ThreadImageProcessing#runOnThreads(List, int, java.util.function.Function)}
+ * does. Strips walk the image along its rows or its columns; tiles are square
+ * and differ only in the order they are handed out.
+ *
+ * Row-major tiles jump a full image row of memory at the end of every tile
+ * row, so the tiles taken at about the same time by different threads are
+ * far apart. The Morton (Z) and Hilbert orders follow space-filling curves
+ * instead: consecutive tiles are mostly neighbours, and the threads work on
+ * the same few blocks of rows at once, which keeps the caches and the TLB
+ * warm for the neighbourhood filters that read the rows around every tile.
+ * The Morton curve jumps at the end of every quadrant, the Hilbert curve
+ * only where the grid of tiles is not a square, but the Morton index is
+ * cheaper to compute.
+ *
+ * @author mariovillacortagarcia
+ */
+public enum PartitionStrategy {
+    ROW_STRIPS("rows", "Full width strips of the given height, from top to bottom") {
+        @Override
+        public List<Rectangle> partition(int width, int height, int size) {
+            checkSize(size);
+            List<Rectangle> areas = new ArrayList<>();
+            for (int y = 0; y < height; y += size) {
+                areas.add(new Rectangle(0, y, width, Math.min(size, height - y)));
+            }
+            return areas;
+        }
+    },
+    COLUMN_STRIPS("columns", "Full height strips of the given width, from left to right") {
+        @Override
+        public List<Rectangle> partition(int width, int height, int size) {
+            checkSize(size);
+            List<Rectangle> areas = new ArrayList<>();
+            for (int x = 0; x < width; x += size) {
+                areas.add(new Rectangle(x, 0, Math.min(size, width - x), height));
+            }
+            return areas;
+        }
+    },
+    SQUARE_TILES("tiles", "Square tiles of the given side in row-major order") {
+        @Override
+        public List<Rectangle> partition(int width, int height, int size) {
+            checkSize(size);
+            return tiles(width, height, size);
+        }
+    },
+    MORTON("morton", "Square tiles of the given side in Morton (Z) order") {
+        @Override
+        public List<Rectangle> partition(int width, int height, int size) {
+            checkSize(size);
+            List<Rectangle> areas = tiles(width, height, size);
+            areas.sort(Comparator.comparingLong(area -> mortonIndex(area.x / size, area.y / size)));
+            return areas;
+        }
+    },
+    HILBERT("hilbert", "Square tiles of the given side along a Hilbert curve") {
+        @Override
+        public List<Rectangle> partition(int width, int height, int size) {
+            checkSize(size);
+            List<Rectangle> areas = tiles(width, height, size);
+            // Smallest power of two that holds every column and row of tiles
+            final int side = Integer.highestOneBit(Math.max(1, Math.max(Math.ceilDiv(width, size),
+                    Math.ceilDiv(height, size)) - 1)) << 1;
+            areas.sort(Comparator.comparingLong(area -> hilbertIndex(side, area.x / size, area.y / size)));
+            return areas;
+        }
+    };
+
+    private final String value;
+    private final String description;
+
+    /**
+     * Constructs a PartitionStrategy with the specified value and description.
+     *
+     * @param value       the command line value for this strategy
+     * @param description the description text for this strategy
+     */
+    PartitionStrategy(String value, String description) {
+        this.value = value;
+        this.description = description;
+    }
+
+    /**
+     * Cuts an area of the given size starting at the origin. The areas cover
+     * it exactly, without overlapping, and are listed in the order they
+     * should be handed out.
+     *
+     * @param width  the width of the area to divide
+     * @param height the height of the area to divide
+     * @param size   the height of the row strips, the width of the column
+     *               strips or the side of the tiles
+     * @return the areas, in processing order
+     * @throws IllegalArgumentException if the size is not positive
+     */
+    public abstract List<Rectangle> partition(int width, int height, int size);
+
+    /**
+     * Gets the command line value of this strategy.
+     *
+     * @return the command line value
+     */
+    public String getValue() {
+        return value;
+    }
+
+    /**
+     * Gets the description of this strategy.
+     *
+     * @return the description text
+     */
+    public String getDescription() {
+        return description;
+    }
+
+    /**
+     * Finds a PartitionStrategy by its command line value.
+     *
+     * @param value the command line value to search for
+     * @return the PartitionStrategy with the matching value, or null if not found
+     */
+    public static PartitionStrategy fromValue(String value) {
+        for (PartitionStrategy strategy : PartitionStrategy.values()) {
+            if (strategy.value.equalsIgnoreCase(value)) {
+                return strategy;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Rejects sizes that would never advance.
+     */
+    private static void checkSize(int size) {
+        if (size <= 0) {
+            throw new IllegalArgumentException("Partition size must be positive: " + size);
+        }
+    }
+
+    /**
+     * Cuts an area into square tiles in row-major order, the last row and
+     * column clipped to the area.
+     */
+    private static List<Rectangle> tiles(int width, int height, int size) {
+        List<Rectangle> areas = new ArrayList<>();
+        for (int y = 0; y < height; y += size) {
+            for (int x = 0; x < width; x += size) {
+                areas.add(new Rectangle(x, y, Math.min(size, width - x), Math.min(size, height - y)));
+            }
+        }
+        return areas;
+    }
+
+    /**
+     * Computes the position of a tile along the Morton curve by interleaving
+     * the bits of its column and row.
+     */
+    private static long mortonIndex(int column, int row) {
+        return spreadBits(column) | spreadBits(row) << 1;
+    }
+
+    /**
+     * Moves every bit of a value to twice its position.
+     */
+    private static long spreadBits(int value) {
+        long bits = value & 0xFFFFFFFFL;
+        bits = (bits | bits << 16) & 0x0000FFFF0000FFFFL;
+        bits = (bits | bits << 8) & 0x00FF00FF00FF00FFL;
+        bits = (bits | bits << 4) & 0x0F0F0F0F0F0F0F0FL;
+        bits = (bits | bits << 2) & 0x3333333333333333L;
+        bits = (bits | bits << 1) & 0x5555555555555555L;
+        return bits;
+    }
+
+    /**
+     * Computes the position of a tile along the Hilbert curve that fills a
+     * square grid, descending one quadrant per bit and rotating the
+     * coordinates so every quadrant is walked in the orientation the curve
+     * enters it.
+     *
+     * @param side   the side of the grid, a power of two
+     * @param column the column of the tile
+     * @param row    the row of the tile
+     */
+    private static long hilbertIndex(int side, int column, int row) {
+        long index = 0;
+        for (int half = side / 2; half > 0; half /= 2) {
+            final int right = (column & half) > 0 ? 1 : 0;
+            final int bottom = (row & half) > 0 ? 1 : 0;
+            index += (long) half * half * ((3 * right) ^ bottom);
+            if (bottom == 0) {
+                if (right == 1) {
+                    column = side - 1 - column;
+                    row = side - 1 - row;
+                }
+                final int swap = column;
+                column = row;
+                row = swap;
+            }
+        }
+        return index;
+    }
+}
@@ -0,0 +1,19 @@
+package com.sistemasdistribuidos.thread.image.processing;
+
+/**
+ * Operation applied to every pixel independently of its neighbours. Pixels
+ * are packed 0xAARRGGBB values.
+ *
+ * @author mariovillacortagarcia
+ */
+@FunctionalInterface
+public interface PixelFilter {
+
+    /**
+     * Applies the filter to a pixel.
+     *
+     * @param argb the pixel as a packed ARGB value
+     * @return the filtered pixel as a packed ARGB value
+     */
+    int apply(int argb);
+}
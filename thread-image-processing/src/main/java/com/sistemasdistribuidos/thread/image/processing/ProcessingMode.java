@@ -0,0 +1,79 @@
+package com.sistemasdistribuidos.thread.image.processing;
+
+/**
+ * Enum representing the available strategies to process an image. The mode is
+ * selected with the first command line argument.
+ *
+ * @author mariovillacortagarcia
+ */
+public enum ProcessingMode {
+    FIXED_THREADS("fixed", "One thread per area of a fixed grid (baseline): fixed [average|rec601|rec709]"),
+    PARTITION("partition", "Fixed threads taking areas in order: partition [rows|columns|tiles|morton|hilbert] [size] [average|rec601|rec709]"),
+    FORK_JOIN("forkjoin", "Work-stealing pool over small tiles: forkjoin [average|rec601|rec709]"),
+    BATCH("batch", "Decode/process/encode pipeline over a directory: batch [inputDir] [outputDir] [nocache]"),
+    SEQUENCE("sequence", "Numbered frames in one run, decoding ahead and copying unchanged tiles: sequence [inputDir] [outputDir] [average|rec601|rec709]"),
+    STREAM("stream", "Band by band processing of images larger than the heap: stream [input] [output.tif]"),
+    OFF_HEAP("offheap", "Work-stealing pool over an off-heap copy of the image"),
+    AUTOTUNE("autotune", "Work-stealing pool with the tile shape and threads tuned for this host: autotune [average|rec601|rec709]"),
+    FILTER("filter", "Fused filter chain over small tiles: filter [brightness=20,contrast=1.2,gamma=2.2,...]"),
+    CONVOLVE("convolve", "Tiled convolution with halos: convolve [blur=R|gaussian=SIGMA|sharpen|sobel]"),
+    EDIT("edit", "Full pass, then only the tiles around simulated edits: edit [average|rec601|rec709|blur=R|gaussian=SIGMA|sharpen|sobel] [edits]"),
+    INTEGRAL("integral", "Box filters and local statistics over a summed-area table: integral [blur|mean|variance|threshold] [radius] [k]"),
+    MEDIAN("median", "Median or percentile filter with running histograms, one strip per thread: median [radius] [percentile]"),
+    RESIZE("resize", "Separable parallel resampling: resize [WIDTHxHEIGHT] [bilinear|bicubic|lanczos]"),
+    PYRAMID("pyramid", "Halved renditions down to a thumbnail, encoded while the next is built: pyramid [thumbnailSide]"),
+    ASYNC("async", "Background processing reporting every finished tile, optionally cancelled: async [average|rec601|rec709] [cancelAfterMs]"),
+    PROFILE("profile", "Per-tile timing of the fixed grid and the work-stealing pool: profile [average|rec601|rec709]"),
+    STATS("stats", "Parallel histogram and statistics, optionally adjusting the image: stats [none|autocontrast|equalize]"),
+    WORKER("worker", "Worker node that processes tiles sent by a coordinator: worker [port]"),
+    DISTRIBUTED("distributed", "Tiles sent to worker nodes over TCP: distributed host:port[,host:port...] [average|rec601|rec709]"),
+    SERVE("serve", "Long-lived image service over TCP with admission control: serve [port]"),
+    CLIENT("client", "Sends the input image to an image service: client host:port [average|rec601|rec709|filter chain]");
+
+    private final String value;
+    private final String description;
+
+    /**
+     * Constructs a ProcessingMode with the specified value and description.
+     *
+     * @param value       the command line value for this mode
+     * @param description the description text for this mode
+     */
+    ProcessingMode(String value, String description) {
+        this.value = value;
+        this.description = description;
+    }
+
+    /**
+     * Gets the command line value of this mode.
+     *
+     * @return the command line value
+     */
+    public String getValue() {
+        return value;
+    }
+
+    /**
+     * Gets the description of this mode.
+     *
+     * @return the description text
+     */
+    public String getDescription() {
+        return description;
+    }
+
+    /**
+     * Finds a ProcessingMode by its command line value.
+     *
+     * @param value the command line value to search for
+     * @return the ProcessingMode with the matching value, or null if not found
+     */
+    public static ProcessingMode fromValue(String value) {
+        for (ProcessingMode mode : ProcessingMode.values()) {
+            if (mode.value.equalsIgnoreCase(value)) {
+                return mode;
+            }
+        }
+        return null;
+    }
+}
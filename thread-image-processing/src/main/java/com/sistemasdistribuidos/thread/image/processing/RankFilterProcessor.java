@@ -0,0 +1,257 @@
+package com.sistemasdistribuidos.thread.image.processing;
+
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.util.Arrays;
+
+/**
+ * Runnable that applies a median or any other percentile filter to a full
+ * width strip of an image, writing the result to another image. Each color
+ * channel of the output is the given percentile of that channel in the
+ * square window centred on the pixel; alpha is copied. Pixels outside the
+ * image repeat the nearest edge pixel.
+ *
+ * The cost per pixel does not depend on the radius (Perreault and Hebert,
+ * "Median Filtering in Constant Time"). Every column of the strip keeps the
+ * histogram of its pixels in the window rows, updated with one removal and
+ * one addition when the window moves down a row. The histogram of the window
+ * is the sum of its column histograms: moving right adds the entering
+ * column and subtracts the leaving one. Histograms are split in 16 coarse
+ * bins of 16 levels each; the coarse window histogram is always up to date,
+ * while each segment of 16 fine bins is only brought up to date when the
+ * percentile falls in it, so most moves touch 16 counters instead of 256.
+ *
+ * @author mariovillacortagarcia
+ */
+public class RankFilterProcessor implements Runnable {
+
+    /**
+     * Number of levels of an 8-bit channel.
+     */
+    private static final int LEVELS = 256;
+    /**
+     * Number of levels of a coarse bin, as a power of two.
+     */
+    private static final int SEGMENT_BITS = 4;
+    /**
+     * Number of levels of a coarse bin.
+     */
+    private static final int SEGMENT_SIZE = 1 << SEGMENT_BITS;
+    /**
+     * Number of coarse bins.
+     */
+    private static final int SEGMENTS = LEVELS / SEGMENT_SIZE;
+    /**
+     * Bit position of the red, green and blue channels in an ARGB pixel.
+     */
+    private static final int[] CHANNEL_SHIFTS = {16, 8, 0};
+
+    private final BufferedImage source;
+    private final BufferedImage destination;
+    private final Rectangle area;
+    private final int radius;
+    private final double percentile;
+
+    /**
+     * Constructs a RankFilterProcessor for the specified area.
+     *
+     * @param source      the image to read
+     * @param destination the image to write, of the size of the source
+     * @param area        the area to process, usually a full width strip
+     * @param radius      the distance from the centre to the edge of the window
+     * @param percentile  the percentile of each window, from 0 (minimum) to
+     *                    100 (maximum); 50 is the median
+     * @throws IllegalArgumentException if the radius is negative or the
+     *                                  percentile is out of range
+     */
+    public RankFilterProcessor(BufferedImage source, BufferedImage destination, Rectangle area, int radius,
+            double percentile) {
+        if (radius < 0) {
+            throw new IllegalArgumentException("Radius must not be negative: " + radius);
+        }
+        if (percentile < 0 || percentile > 100) {
+            throw new IllegalArgumentException("Percentile must be between 0 and 100: " + percentile);
+        }
+        this.source = source;
+        this.destination = destination;
+        this.area = area;
+        this.radius = radius;
+        this.percentile = percentile;
+    }
+
+    /**
+     * Filters every pixel of the assigned area.
+     */
+    @Override
+    public void run() {
+        final int diameter = 2 * radius + 1;
+        final int inputWidth = area.width + 2 * radius;
+        final int[] input = TileBuffers.readWithHalo(source, area, radius, radius);
+        final int[] output = new int[area.width * area.height];
+        final int rank = (int) Math.round(percentile / 100 * ((long) diameter * diameter - 1));
+
+        ColumnHistograms[] channels = new ColumnHistograms[CHANNEL_SHIFTS.length];
+        for (int channel = 0; channel < channels.length; channel++) {
+            channels[channel] = new ColumnHistograms(inputWidth, diameter, CHANNEL_SHIFTS[channel]);
+        }
+        for (int row = 0; row < diameter; row++) {
+            for (ColumnHistograms histograms : channels) {
+                histograms.addRow(input, row * inputWidth, 1);
+            }
+        }
+
+        for (int y = 0; y < area.height; y++) {
+            if (y > 0) {
+                for (ColumnHistograms histograms : channels) {
+                    histograms.addRow(input, (y - 1) * inputWidth, -1);
+                    histograms.addRow(input, (y + diameter - 1) * inputWidth, 1);
+                }
+            }
+            for (ColumnHistograms histograms : channels) {
+                histograms.startRow();
+            }
+            final int centreRow = (y + radius) * inputWidth + radius;
+            for (int x = 0; x < area.width; x++) {
+                int pixel = input[centreRow + x] & 0xFF000000;
+                for (ColumnHistograms histograms : channels) {
+                    if (x > 0) {
+                        histograms.moveRight(x);
+                    }
+                    pixel |= histograms.select(x, rank) << histograms.shift;
+                }
+                output[y * area.width + x] = pixel;
+            }
+        }
+        TileBuffers.write(destination, area, output);
+    }
+
+    /**
+     * Column histograms of one channel and the histogram of the current
+     * window, which covers the columns x to x + diameter - 1 of the input.
+     */
+    private static final class ColumnHistograms {
+
+        /**
+         * Marks a fine segment of the window histogram that must be rebuilt.
+         */
+        private static final int STALE = Integer.MIN_VALUE / 2;
+
+        private final int diameter;
+        private final int shift;
+        private final int[] columnFine;
+        private final int[] columnCoarse;
+        private final int[] windowFine = new int[LEVELS];
+        private final int[] windowCoarse = new int[SEGMENTS];
+        private final int[] segmentPosition = new int[SEGMENTS];
+
+        /**
+         * Constructs empty histograms.
+         *
+         * @param columns  the number of columns of the input
+         * @param diameter the side of the window
+         * @param shift    the bit position of the channel in an ARGB pixel
+         */
+        private ColumnHistograms(int columns, int diameter, int shift) {
+            this.diameter = diameter;
+            this.shift = shift;
+            this.columnFine = new int[columns * LEVELS];
+            this.columnCoarse = new int[columns * SEGMENTS];
+        }
+
+        /**
+         * Adds or removes a row of the input to the column histograms.
+         *
+         * @param input  the input pixels
+         * @param start  the index of the first pixel of the row
+         * @param amount 1 to add the row, -1 to remove it
+         */
+        private void addRow(int[] input, int start, int amount) {
+            final int columns = columnCoarse.length / SEGMENTS;
+            for (int column = 0; column < columns; column++) {
+                final int level = (input[start + column] >> shift) & 0xFF;
+                columnFine[column * LEVELS + level] += amount;
+                columnCoarse[column * SEGMENTS + (level >> SEGMENT_BITS)] += amount;
+            }
+        }
+
+        /**
+         * Places the window at the first column of a row: rebuilds the coarse
+         * window histogram and marks every fine segment as stale.
+         */
+        private void startRow() {
+            Arrays.fill(windowCoarse, 0);
+            for (int column = 0; column < diameter; column++) {
+                final int offset = column * SEGMENTS;
+                for (int segment = 0; segment < SEGMENTS; segment++) {
+                    windowCoarse[segment] += columnCoarse[offset + segment];
+                }
+            }
+            Arrays.fill(segmentPosition, STALE);
+        }
+
+        /**
+         * Moves the coarse window histogram one column to the right.
+         *
+         * @param x the new first column of the window
+         */
+        private void moveRight(int x) {
+            final int entering = (x + diameter - 1) * SEGMENTS;
+            final int leaving = (x - 1) * SEGMENTS;
+            for (int segment = 0; segment < SEGMENTS; segment++) {
+                windowCoarse[segment] += columnCoarse[entering + segment] - columnCoarse[leaving + segment];
+            }
+        }
+
+        /**
+         * Finds the level of the given rank in the window.
+         *
+         * @param x    the first column of the window
+         * @param rank the zero-based rank, in ascending order
+         * @return the level
+         */
+        private int select(int x, int rank) {
+            int count = 0;
+            int segment = 0;
+            while (count + windowCoarse[segment] <= rank) {
+                count += windowCoarse[segment];
+                segment++;
+            }
+            updateSegment(segment, x);
+            int level = segment << SEGMENT_BITS;
+            while (count + windowFine[level] <= rank) {
+                count += windowFine[level];
+                level++;
+            }
+            return level;
+        }
+
+        /**
+         * Brings a fine segment of the window histogram to the window at x,
+         * either replaying the column moves since it was last used or, when
+         * that takes longer, summing it again from the column histograms.
+         */
+        private void updateSegment(int segment, int x) {
+            final int first = segment << SEGMENT_BITS;
+            final int last = first + SEGMENT_SIZE;
+            final int moves = x - segmentPosition[segment];
+            if (moves > diameter / 2) {
+                Arrays.fill(windowFine, first, last, 0);
+                for (int column = x; column < x + diameter; column++) {
+                    final int offset = column * LEVELS;
+                    for (int level = first; level < last; level++) {
+                        windowFine[level] += columnFine[offset + level];
+                    }
+                }
+            } else {
+                for (int column = x - moves + 1; column <= x; column++) {
+                    final int entering = (column + diameter - 1) * LEVELS;
+                    final int leaving = (column - 1) * LEVELS;
+                    for (int level = first; level < last; level++) {
+                        windowFine[level] += columnFine[entering + level] - columnFine[leaving + level];
+                    }
+                }
+            }
+            segmentPosition[segment] = x;
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package com.sistemasdistribuidos.thread.image.processing;
+
+/**
+ * Filter weights of a 1-D resampling, computed once for every output column
+ * or row and shared by all the rows or columns of the image. Each output
+ * position reads a contiguous run of source positions; its weights are
+ * normalised so they add up to one and stored as fixed-point integers with
+ * {@link #PRECISION_BITS} fractional bits, so the passes only need integer
+ * multiply-adds.
+ *
+ * @author mariovillacortagarcia
+ */
+final class ResampleCoefficients {
+
+    /**
+     * Fractional bits of the fixed-point weights. With 8-bit samples and the
+     * largest Lanczos overshoot the sums stay well inside an int.
+     */
+    static final int PRECISION_BITS = 16;
+
+    private final int[] starts;
+    private final int[] counts;
+    private final int[] weights;
+    private final int taps;
+
+    /**
+     * Computes the weights of a resampling.
+     *
+     * @param filter       the interpolation filter
+     * @param sourceLength the number of source positions
+     * @param targetLength the number of output positions
+     */
+    ResampleCoefficients(ResampleFilter filter, int sourceLength, int targetLength) {
+        final double scale = (double) sourceLength / targetLength;
+        final double filterScale = Math.max(1, scale);
+        final double support = filter.getSupport() * filterScale;
+        this.taps = (int) Math.ceil(support) * 2 + 1;
+        this.starts = new int[targetLength];
+        this.counts = new int[targetLength];
+        this.weights = new int[targetLength * taps];
+
+        double[] row = new double[taps];
+        for (int i = 0; i < targetLength; i++) {
+            final double center = (i + 0.5) * scale;
+            final int first = Math.max(0, (int) (center - support + 0.5));
+            final int last = Math.min(sourceLength, (int) (center + support + 0.5));
+            final int count = Math.min(taps, last - first);
+            double sum = 0;
+            for (int k = 0; k < count; k++) {
+                row[k] = filter.weight((first + k - center + 0.5) / filterScale);
+                sum += row[k];
+            }
+            for (int k = 0; k < count; k++) {
+                weights[i * taps + k] = (int) Math.round((sum == 0 ? 0 : row[k] / sum) * (1 << PRECISION_BITS));
+            }
+            starts[i] = first;
+            counts[i] = count;
+        }
+    }
+
+    /**
+     * Gets the first source position read by an output position.
+     *
+     * @param i the output position
+     * @return the source position
+     */
+    int getStart(int i) {
+        return starts[i];
+    }
+
+    /**
+     * Gets the number of source positions read by an output position.
+     *
+     * @param i the output position
+     * @return the number of weights
+     */
+    int getCount(int i) {
+        return counts[i];
+    }
+
+    /**
+     * Gets the fixed-point weights of every output position,
+     * {@link #getTaps()} per position starting at i * taps.
+     *
+     * @return the weights
+     */
+    int[] getWeights() {
+        return weights;
+    }
+
+    /**
+     * Gets the number of weights reserved for each output position.
+     *
+     * @return the stride of the weights
+     */
+    int getTaps() {
+        return taps;
+    }
+}
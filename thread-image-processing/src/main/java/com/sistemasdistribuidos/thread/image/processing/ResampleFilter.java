@@ -0,0 +1,110 @@
+package com.sistemasdistribuidos.thread.image.processing;
+
+/**
+ * Enum representing the interpolation filters of the {@link Resampler}. Each
+ * filter is a symmetric weight function with a limited support, in source
+ * pixels, when the image is enlarged. When it is reduced the support grows
+ * with the reduction factor, so every source pixel contributes to the result.
+ *
+ * @author mariovillacortagarcia
+ */
+public enum ResampleFilter {
+    BILINEAR("bilinear", 1) {
+        @Override
+        double weight(double x) {
+            x = Math.abs(x);
+            return x < 1 ? 1 - x : 0;
+        }
+    },
+    BICUBIC("bicubic", 2) {
+        @Override
+        double weight(double x) {
+            x = Math.abs(x);
+            if (x < 1) {
+                return ((CUBIC_A + 2) * x - (CUBIC_A + 3)) * x * x + 1;
+            }
+            if (x < 2) {
+                return ((CUBIC_A * x - 5 * CUBIC_A) * x + 8 * CUBIC_A) * x - 4 * CUBIC_A;
+            }
+            return 0;
+        }
+    },
+    LANCZOS("lanczos", 3) {
+        @Override
+        double weight(double x) {
+            x = Math.abs(x);
+            return x < 3 ? sinc(x) * sinc(x / 3) : 0;
+        }
+    };
+
+    /**
+     * Parameter of the cubic convolution, -0.5 gives the Catmull-Rom spline.
+     */
+    private static final double CUBIC_A = -0.5;
+
+    private final String value;
+    private final double support;
+
+    /**
+     * Constructs a ResampleFilter with the specified value and support.
+     *
+     * @param value   the command line value for this filter
+     * @param support the radius of the filter in source pixels
+     */
+    ResampleFilter(String value, double support) {
+        this.value = value;
+        this.support = support;
+    }
+
+    /**
+     * Evaluates the filter.
+     *
+     * @param x the distance to the centre, in source pixels
+     * @return the weight
+     */
+    abstract double weight(double x);
+
+    /**
+     * Gets the command line value of this filter.
+     *
+     * @return the command line value
+     */
+    public String getValue() {
+        return value;
+    }
+
+    /**
+     * Gets the radius outside which the filter is zero.
+     *
+     * @return the support in source pixels
+     */
+    public double getSupport() {
+        return support;
+    }
+
+    /**
+     * Finds a ResampleFilter by its command line value.
+     *
+     * @param value the command line value to search for
+     * @return the ResampleFilter with the matching value, or null if not found
+     */
+    public static ResampleFilter fromValue(String value) {
+        for (ResampleFilter filter : ResampleFilter.values()) {
+            if (filter.value.equalsIgnoreCase(value)) {
+                return filter;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Normalised sinc function.
+     */
+    private static double sinc(double x) {
+        if (x == 0) {
+            return 1;
+        }
+        x *= Math.PI;
+        return Math.sin(x) / x;
+    }
+}
@@ -0,0 +1,270 @@
+package com.sistemasdistribuidos.thread.image.processing;
+
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.util.Arrays;
+
+/**
+ * Resize engine that resamples an image with an interpolation filter as two
+ * separate 1-D passes: a horizontal pass from the source to an intermediate
+ * buffer with the new width and the old height, then a vertical pass from
+ * that buffer to the result. The filter weights of every output column and
+ * row are computed once per resize and shared by all the rows and columns.
+ *
+ * Both passes are split into areas run on the given scheduler, which should
+ * use full width strips so every worker reads whole rows. A pass is skipped
+ * when its dimension does not change, and the source is copied as it is when
+ * neither does.
+ *
+ * The colors are filtered premultiplied by their alpha, so the colors of
+ * transparent pixels, which are not visible, do not bleed into their opaque
+ * neighbours. The intermediate buffer holds premultiplied 8-bit samples and
+ * the vertical pass divides the alpha out again; opaque images give the same
+ * result as filtering the colors straight.
+ *
+ * @author mariovillacortagarcia
+ */
+public class Resampler {
+
+    private static final int MAX_LEVEL = 255;
+    private static final int PRECISION_BITS = ResampleCoefficients.PRECISION_BITS;
+    private static final int ROUNDING = 1 << (PRECISION_BITS - 1);
+
+    private final ForkJoinTileScheduler scheduler;
+    private final ResampleFilter filter;
+
+    /**
+     * Constructs a resampler.
+     *
+     * @param scheduler the scheduler that runs the areas of each pass
+     * @param filter    the interpolation filter
+     */
+    public Resampler(ForkJoinTileScheduler scheduler, ResampleFilter filter) {
+        this.scheduler = scheduler;
+        this.filter = filter;
+    }
+
+    /**
+     * Resizes an image.
+     *
+     * @param source the image to resize; it is not modified
+     * @param width  the width of the result
+     * @param height the height of the result
+     * @return the resized image
+     * @throws IllegalArgumentException if a size is not positive
+     */
+    public BufferedImage resize(BufferedImage source, int width, int height) {
+        if (width <= 0 || height <= 0) {
+            throw new IllegalArgumentException("Sizes must be positive: " + width + "x" + height);
+        }
+        final int sourceHeight = source.getHeight();
+        if (width == source.getWidth() && height == sourceHeight) {
+            BufferedImage destination = ThreadImageProcessing.createCompatibleImage(source, width, height);
+            scheduler.process(destination, area -> () -> TileBuffers.write(destination, area,
+                    TileBuffers.read(source, area)));
+            return destination;
+        }
+        final int[] intermediate = new int[width * sourceHeight];
+        if (width == source.getWidth()) {
+            scheduler.process(width, sourceHeight, area -> () -> copyRows(source, area, intermediate));
+        } else {
+            final ResampleCoefficients columns = new ResampleCoefficients(filter, source.getWidth(), width);
+            scheduler.process(width, sourceHeight,
+                    area -> () -> resampleRows(source, area, columns, intermediate));
+        }
+
+        BufferedImage destination = ThreadImageProcessing.createCompatibleImage(source, width, height);
+        if (height == sourceHeight) {
+            scheduler.process(destination, area -> () -> TileBuffers.write(destination, area,
+                    copyArea(intermediate, width, area)));
+        } else {
+            final ResampleCoefficients rows = new ResampleCoefficients(filter, sourceHeight, height);
+            scheduler.process(destination, area -> () -> TileBuffers.write(destination, area,
+                    resampleColumns(intermediate, width, area, rows)));
+        }
+        return destination;
+    }
+
+    /**
+     * Horizontal pass over an area of the intermediate buffer. Reads and
+     * premultiplies the source columns used by the area once and filters
+     * every row of it.
+     */
+    private static void resampleRows(BufferedImage source, Rectangle area, ResampleCoefficients columns,
+            int[] intermediate) {
+        final int lastColumn = area.x + area.width - 1;
+        final int first = columns.getStart(area.x);
+        final int readWidth = columns.getStart(lastColumn) + columns.getCount(lastColumn) - first;
+        final int[] input = TileBuffers.read(source, new Rectangle(first, area.y, readWidth, area.height));
+        for (int i = 0; i < input.length; i++) {
+            input[i] = premultiply(input[i]);
+        }
+        final int[] weights = columns.getWeights();
+        final int taps = columns.getTaps();
+        final int width = intermediate.length / source.getHeight();
+
+        for (int row = 0; row < area.height; row++) {
+            final int inputRow = row * readWidth - first;
+            final int outputRow = (area.y + row) * width;
+            for (int x = area.x; x <= lastColumn; x++) {
+                final int start = inputRow + columns.getStart(x);
+                final int count = columns.getCount(x);
+                final int offset = x * taps;
+                int alpha = ROUNDING;
+                int red = ROUNDING;
+                int green = ROUNDING;
+                int blue = ROUNDING;
+                for (int k = 0; k < count; k++) {
+                    final int weight = weights[offset + k];
+                    final int pixel = input[start + k];
+                    alpha += weight * (pixel >>> 24);
+                    red += weight * ((pixel >> 16) & MAX_LEVEL);
+                    green += weight * ((pixel >> 8) & MAX_LEVEL);
+                    blue += weight * (pixel & MAX_LEVEL);
+                }
+                intermediate[outputRow + x] = packPremultiplied(alpha, red, green, blue);
+            }
+        }
+    }
+
+    /**
+     * Vertical pass over an area of the result. Accumulates whole rows of the
+     * intermediate buffer, one source row at a time, so it is read in order.
+     *
+     * @return the pixels of the area in row-major order
+     */
+    private static int[] resampleColumns(int[] intermediate, int width, Rectangle area,
+            ResampleCoefficients rows) {
+        final int[] weights = rows.getWeights();
+        final int taps = rows.getTaps();
+        final int[] sums = new int[4 * area.width];
+        final int[] output = new int[area.width * area.height];
+
+        for (int y = area.y; y < area.y + area.height; y++) {
+            Arrays.fill(sums, ROUNDING);
+            final int start = rows.getStart(y);
+            final int count = rows.getCount(y);
+            for (int k = 0; k < count; k++) {
+                final int weight = weights[y * taps + k];
+                final int inputRow = (start + k) * width + area.x;
+                for (int x = 0, s = 0; x < area.width; x++, s += 4) {
+                    final int pixel = intermediate[inputRow + x];
+                    sums[s] += weight * (pixel >>> 24);
+                    sums[s + 1] += weight * ((pixel >> 16) & MAX_LEVEL);
+                    sums[s + 2] += weight * ((pixel >> 8) & MAX_LEVEL);
+                    sums[s + 3] += weight * (pixel & MAX_LEVEL);
+                }
+            }
+            final int outputRow = (y - area.y) * area.width;
+            for (int x = 0, s = 0; x < area.width; x++, s += 4) {
+                output[outputRow + x] = pack(sums[s], sums[s + 1], sums[s + 2], sums[s + 3]);
+            }
+        }
+        return output;
+    }
+
+    /**
+     * Copies an area of the source to the intermediate buffer premultiplied,
+     * used when the width does not change.
+     */
+    private static void copyRows(BufferedImage source, Rectangle area, int[] intermediate) {
+        final int[] pixels = TileBuffers.read(source, area);
+        for (int row = 0; row < area.height; row++) {
+            final int inputRow = row * area.width;
+            final int outputRow = (area.y + row) * source.getWidth() + area.x;
+            for (int x = 0; x < area.width; x++) {
+                intermediate[outputRow + x] = premultiply(pixels[inputRow + x]);
+            }
+        }
+    }
+
+    /**
+     * Copies an area of the intermediate buffer with the alpha divided out,
+     * used when the height does not change.
+     *
+     * @return the pixels of the area in row-major order
+     */
+    private static int[] copyArea(int[] intermediate, int width, Rectangle area) {
+        final int[] output = new int[area.width * area.height];
+        for (int row = 0; row < area.height; row++) {
+            final int inputRow = (area.y + row) * width + area.x;
+            final int outputRow = row * area.width;
+            for (int x = 0; x < area.width; x++) {
+                final int pixel = intermediate[inputRow + x];
+                output[outputRow + x] = pack(toSum(pixel >>> 24), toSum((pixel >> 16) & MAX_LEVEL),
+                        toSum((pixel >> 8) & MAX_LEVEL), toSum(pixel & MAX_LEVEL));
+            }
+        }
+        return output;
+    }
+
+    /**
+     * Multiplies the colors of a straight ARGB pixel by its alpha.
+     */
+    private static int premultiply(int pixel) {
+        final int alpha = pixel >>> 24;
+        if (alpha == MAX_LEVEL) {
+            return pixel;
+        }
+        return alpha << 24 | scale((pixel >> 16) & MAX_LEVEL, alpha) << 16
+                | scale((pixel >> 8) & MAX_LEVEL, alpha) << 8 | scale(pixel & MAX_LEVEL, alpha);
+    }
+
+    /**
+     * Scales an 8-bit level by an 8-bit alpha, rounding to the nearest level.
+     */
+    private static int scale(int level, int alpha) {
+        return (level * alpha + MAX_LEVEL / 2) / MAX_LEVEL;
+    }
+
+    /**
+     * Clamps the filtered premultiplied channels into a packed premultiplied
+     * ARGB value, where no color may exceed the alpha.
+     */
+    private static int packPremultiplied(int alpha, int red, int green, int blue) {
+        final int level = toLevel(alpha);
+        return level << 24 | Math.min(toLevel(red), level) << 16 | Math.min(toLevel(green), level) << 8
+                | Math.min(toLevel(blue), level);
+    }
+
+    /**
+     * Divides the alpha out of the filtered premultiplied channels, which may
+     * overshoot with the bicubic and Lanczos filters, and clamps them into a
+     * packed straight ARGB value. The colors are divided by the clamped
+     * alpha, as fixed-point sums so they keep their fractional bits.
+     */
+    private static int pack(int alpha, int red, int green, int blue) {
+        final int level = toLevel(alpha);
+        if (level == 0) {
+            return 0;
+        }
+        final long divisor = Math.min(alpha - ROUNDING, MAX_LEVEL << PRECISION_BITS);
+        return level << 24 | unpremultiply(red, divisor) << 16 | unpremultiply(green, divisor) << 8
+                | unpremultiply(blue, divisor);
+    }
+
+    /**
+     * Divides a fixed-point premultiplied color by a fixed-point alpha,
+     * rounding to the nearest 8-bit level.
+     */
+    private static int unpremultiply(int sum, long alpha) {
+        final long color = Math.max(0, sum - ROUNDING);
+        return (int) Math.min(MAX_LEVEL, (color * MAX_LEVEL + alpha / 2) / alpha);
+    }
+
+    /**
+     * Converts an 8-bit level to a fixed-point sum with the rounding term,
+     * as the passes produce them.
+     */
+    private static int toSum(int level) {
+        return (level << PRECISION_BITS) + ROUNDING;
+    }
+
+    /**
+     * Converts a fixed-point sum, which already includes the rounding term,
+     * to an 8-bit level.
+     */
+    private static int toLevel(int sum) {
+        return Math.clamp(sum >> PRECISION_BITS, 0, MAX_LEVEL);
+    }
+}
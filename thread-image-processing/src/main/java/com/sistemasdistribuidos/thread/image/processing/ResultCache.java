@@ -0,0 +1,220 @@
+package com.sistemasdistribuidos.thread.image.processing;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+import java.util.zip.CRC32C;
+
+/**
+ * On-disk cache of encoded results, keyed by the content of the input file
+ * and the configuration that produced the output. A hit is served by copying
+ * the cached file, so unchanged inputs are neither decoded, processed nor
+ * encoded again.
+ *
+ * The key is a 64-bit checksum of the configuration and the input bytes,
+ * made of a CRC32C and a CRC32, which the JVM computes with dedicated
+ * instructions at several gigabytes per second, plus the input length. An
+ * in-memory index keeps the most recently used entries up to a maximum
+ * count; entries evicted from it are deleted from disk, so the cache
+ * directory never grows beyond that count. The index is rebuilt from the
+ * directory on start, ordered by the last time each entry was used.
+ *
+ * @author mariovillacortagarcia
+ */
+public final class ResultCache {
+
+    /**
+     * Suffix of the files being written, which are ignored when the index is
+     * rebuilt.
+     */
+    private static final String TEMPORARY_SUFFIX = ".tmp";
+
+    private final Path directory;
+    private final int maxEntries;
+    private final LinkedHashMap<String, Path> index = new LinkedHashMap<>(16, 0.75f, true);
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    /**
+     * Opens a cache directory, creating it if needed.
+     *
+     * @param directory  the directory holding the cached files
+     * @param maxEntries the maximum number of cached results
+     * @throws IOException              if the directory cannot be created or listed
+     * @throws IllegalArgumentException if the maximum is not positive
+     */
+    public ResultCache(Path directory, int maxEntries) throws IOException {
+        if (maxEntries <= 0) {
+            throw new IllegalArgumentException("Maximum entries must be positive: " + maxEntries);
+        }
+        this.directory = directory;
+        this.maxEntries = maxEntries;
+        Files.createDirectories(directory);
+
+        List<Path> files;
+        try (Stream<Path> listing = Files.list(directory)) {
+            files = new ArrayList<>(listing.filter(Files::isRegularFile).toList());
+        }
+        Map<Path, FileTime> lastUsed = new LinkedHashMap<>();
+        for (Path file : files) {
+            lastUsed.put(file, Files.getLastModifiedTime(file));
+        }
+        files.sort(Comparator.comparing(lastUsed::get));
+        for (Path file : files) {
+            String name = file.getFileName().toString();
+            if (name.endsWith(TEMPORARY_SUFFIX)) {
+                Files.deleteIfExists(file);
+                continue;
+            }
+            for (Path evicted : insert(keyOf(name), file)) {
+                Files.deleteIfExists(evicted);
+            }
+        }
+    }
+
+    /**
+     * Computes the key of an input processed with a configuration.
+     *
+     * @param data          the bytes of the input file
+     * @param configuration a description of everything that affects the
+     *                      output, such as the operation and the output format
+     * @return the key
+     */
+    public static String key(byte[] data, String configuration) {
+        byte[] config = configuration.getBytes(StandardCharsets.UTF_8);
+        CRC32C crc32c = new CRC32C();
+        crc32c.update(config);
+        crc32c.update(data);
+        CRC32 crc32 = new CRC32();
+        crc32.update(config);
+        crc32.update(data);
+        return String.format("%08x%08x%x", crc32c.getValue(), crc32.getValue(), data.length);
+    }
+
+    /**
+     * Copies the cached result of a key to a file.
+     *
+     * @param key    the key of the input
+     * @param target the file to write
+     * @return true if the result was cached and copied, false otherwise
+     * @throws IOException if the target cannot be written
+     */
+    public boolean copyTo(String key, Path target) throws IOException {
+        Path cached;
+        synchronized (this) {
+            cached = index.get(key);
+        }
+        if (cached != null) {
+            try {
+                Files.copy(cached, target, StandardCopyOption.REPLACE_EXISTING);
+                Files.setLastModifiedTime(cached, FileTime.fromMillis(System.currentTimeMillis()));
+                hits.incrementAndGet();
+                return true;
+            } catch (NoSuchFileException e) {
+                // Evicted by another thread after the lookup
+            }
+        }
+        misses.incrementAndGet();
+        return false;
+    }
+
+    /**
+     * Stores a copy of a result file under a key.
+     *
+     * @param key    the key of the input
+     * @param result the encoded result
+     * @throws IOException if the result cannot be copied
+     */
+    public void put(String key, Path result) throws IOException {
+        Path entry = directory.resolve(key + extensionOf(result));
+        Path temporary = Files.createTempFile(directory, key, TEMPORARY_SUFFIX);
+        try {
+            Files.copy(result, temporary, StandardCopyOption.REPLACE_EXISTING);
+            Files.move(temporary, entry, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+        List<Path> evicted;
+        synchronized (this) {
+            evicted = insert(key, entry);
+        }
+        for (Path file : evicted) {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    /**
+     * Gets the number of lookups served from the cache.
+     *
+     * @return the number of hits
+     */
+    public long getHits() {
+        return hits.get();
+    }
+
+    /**
+     * Gets the number of lookups that found nothing.
+     *
+     * @return the number of misses
+     */
+    public long getMisses() {
+        return misses.get();
+    }
+
+    /**
+     * Gets the number of cached results.
+     *
+     * @return the number of entries
+     */
+    public synchronized int size() {
+        return index.size();
+    }
+
+    /**
+     * Adds an entry as the most recently used one and removes the least
+     * recently used entries beyond the maximum.
+     *
+     * @return the files of the removed entries, to be deleted by the caller
+     */
+    private List<Path> insert(String key, Path file) {
+        List<Path> evicted = new ArrayList<>();
+        Path previous = index.put(key, file);
+        if (previous != null && !previous.equals(file)) {
+            evicted.add(previous);
+        }
+        while (index.size() > maxEntries) {
+            Map.Entry<String, Path> eldest = index.entrySet().iterator().next();
+            index.remove(eldest.getKey());
+            evicted.add(eldest.getValue());
+        }
+        return evicted;
+    }
+
+    /**
+     * Gets the key of a cached file from its name.
+     */
+    private static String keyOf(String name) {
+        final int dot = name.indexOf('.');
+        return dot < 0 ? name : name.substring(0, dot);
+    }
+
+    /**
+     * Gets the extension of a file, with its dot, or an empty string.
+     */
+    private static String extensionOf(Path file) {
+        String extension = ThreadImageProcessing.getFileExtension(file.getFileName().toString());
+        return extension.isEmpty() ? "" : "." + extension;
+    }
+}
@@ -4,9 +4,21 @@ import java.awt.Rectangle;
 import java.awt.image.BufferedImage;
 import java.io.File;
 import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
 import javax.imageio.ImageIO;
+import javax.imageio.ImageTypeSpecifier;
 
 /**
  * Main application for processing images in grayscale using multiple threads.
@@ -29,14 +41,207 @@ public class ThreadImageProcessing {
      */
     private static final String OUTPUT_PATH = "output/grayscale_Christ_Carrying_the_Cross,_ca._1505-07.jpg";
 
+    /**
+     * The path to the output image of the streaming mode, which needs a
+     * format that can be written band by band.
+     */
+    private static final String STREAM_OUTPUT_PATH = "output/grayscale_Christ_Carrying_the_Cross,_ca._1505-07.tif";
+    /**
+     * The path to the output image of the filter mode.
+     */
+    private static final String FILTER_OUTPUT_PATH = "output/filtered_Christ_Carrying_the_Cross,_ca._1505-07.jpg";
+    /**
+     * The filter chain applied when none is given on the command line.
+     */
+    private static final String DEFAULT_FILTER_SPEC = "grayscale";
+    /**
+     * The path to the output image of the convolution mode.
+     */
+    private static final String CONVOLVE_OUTPUT_PATH = "output/convolved_Christ_Carrying_the_Cross,_ca._1505-07.jpg";
+    /**
+     * The convolution applied when none is given on the command line.
+     */
+    private static final String DEFAULT_CONVOLUTION = "gaussian=2";
+    /**
+     * The path to the output image of the edit mode.
+     */
+    private static final String EDIT_OUTPUT_PATH = "output/edited_Christ_Carrying_the_Cross,_ca._1505-07.jpg";
+    /**
+     * The number of simulated edits of the edit mode when none is given.
+     */
+    private static final int DEFAULT_EDITS = 20;
+    /**
+     * The partition strategy of the partition mode when none is given.
+     */
+    private static final PartitionStrategy DEFAULT_PARTITION = PartitionStrategy.HILBERT;
+    /**
+     * The strip height, strip width or tile side of the partition mode when
+     * none is given.
+     */
+    private static final int DEFAULT_PARTITION_SIZE = 128;
+    /**
+     * The side of the square painted by each simulated edit.
+     */
+    private static final int EDIT_SIZE = 48;
+    /**
+     * The path to the output image of the statistics mode.
+     */
+    private static final String STATS_OUTPUT_PATH = "output/adjusted_Christ_Carrying_the_Cross,_ca._1505-07.jpg";
+    /**
+     * The fraction of pixels clipped at each end by the auto-contrast.
+     */
+    private static final double AUTO_CONTRAST_CLIP = 0.005;
+    /**
+     * The file where the autotuning mode remembers its choices.
+     */
+    private static final String AUTOTUNE_CACHE_PATH = "output/autotune.properties";
+    /**
+     * The path to the output image of the integral mode.
+     */
+    private static final String INTEGRAL_OUTPUT_PATH = "output/integral_Christ_Carrying_the_Cross,_ca._1505-07.jpg";
+    /**
+     * The filter of the integral mode when none is given on the command line.
+     */
+    private static final LocalFilter DEFAULT_LOCAL_FILTER = LocalFilter.THRESHOLD;
+    /**
+     * The window radius of the integral mode when none is given.
+     */
+    private static final int DEFAULT_LOCAL_RADIUS = 15;
+    /**
+     * The Sauvola k parameter of the integral mode when none is given.
+     */
+    private static final double DEFAULT_SAUVOLA_K = 0.2;
+    /**
+     * The path to the output image of the median mode.
+     */
+    private static final String MEDIAN_OUTPUT_PATH = "output/median_Christ_Carrying_the_Cross,_ca._1505-07.jpg";
+    /**
+     * The window radius of the median mode when none is given.
+     */
+    private static final int DEFAULT_RANK_RADIUS = 7;
+    /**
+     * The percentile of the median mode when none is given.
+     */
+    private static final double DEFAULT_PERCENTILE = 50;
+    /**
+     * The path to the output image of the resize mode.
+     */
+    private static final String RESIZE_OUTPUT_PATH = "output/resized_Christ_Carrying_the_Cross,_ca._1505-07.jpg";
+    /**
+     * The interpolation filter used when none is given on the command line.
+     */
+    private static final ResampleFilter DEFAULT_RESAMPLE_FILTER = ResampleFilter.LANCZOS;
+    /**
+     * The number of rows of the strips each resampling worker processes.
+     */
+    private static final int RESAMPLE_STRIP_HEIGHT = 32;
+    /**
+     * The path pattern of the levels written by the pyramid mode.
+     */
+    private static final String PYRAMID_OUTPUT_PATTERN = "output/level%d_Christ_Carrying_the_Cross,_ca._1505-07.jpg";
+    /**
+     * The longest side of the smallest level of the pyramid mode.
+     */
+    private static final int DEFAULT_THUMBNAIL_SIDE = 128;
+    /**
+     * The path to the image returned by the image service to the client mode.
+     */
+    private static final String SERVICE_OUTPUT_PATH = "output/served_Christ_Carrying_the_Cross,_ca._1505-07.jpg";
+    /**
+     * The number of requests the image service decodes, processes and
+     * encodes at the same time.
+     */
+    private static final int SERVICE_JOB_THREADS = 2;
+    /**
+     * The number of requests that may wait for a job thread of the image
+     * service before new ones are rejected as busy.
+     */
+    private static final int SERVICE_QUEUE_CAPACITY = 8;
+    /**
+     * The number of times the client mode asks a busy server again.
+     */
+    private static final int CLIENT_BUSY_RETRIES = 5;
+    /**
+     * The name of the grayscale conversion that averages all the bands.
+     */
+    private static final String AVERAGE_CONVERSION = "average";
+    /**
+     * The default input directory of the batch mode.
+     */
+    private static final String BATCH_INPUT_DIR = "input";
+    /**
+     * The default output directory of the batch mode.
+     */
+    private static final String BATCH_OUTPUT_DIR = "output";
+    /**
+     * The number of decoding and encoding threads of the batch mode. These
+     * stages are mostly waiting on disk, so a couple of threads is enough.
+     */
+    private static final int BATCH_IO_THREADS = 2;
+    /**
+     * The number of images each queue of the batch mode holds between two
+     * stages. A couple is enough to absorb uneven decoding times without
+     * keeping many decoded images in memory.
+     */
+    private static final int BATCH_QUEUE_CAPACITY = 2;
+    /**
+     * The directory, inside the output directory, where the batch mode
+     * caches its results.
+     */
+    private static final String BATCH_CACHE_DIR = ".cache";
+    /**
+     * The maximum number of results the batch mode keeps cached.
+     */
+    private static final int BATCH_CACHE_ENTRIES = 10000;
+    /**
+     * The default directory of the frames of the sequence mode.
+     */
+    private static final String SEQUENCE_INPUT_DIR = "input/frames";
+    /**
+     * The default output directory of the sequence mode.
+     */
+    private static final String SEQUENCE_OUTPUT_DIR = "output/frames";
+
+    /**
+     * The processing mode used when none is given on the command line.
+     */
+    private static final ProcessingMode DEFAULT_MODE = ProcessingMode.FORK_JOIN;
+
     /**
      * Main entry point of the application.
+     *
+     * @param args optional processing mode followed by its arguments
      */
     public static void main(String[] args) {
+        ProcessingMode mode = args.length > 0 ? ProcessingMode.fromValue(args[0]) : DEFAULT_MODE;
+        if (mode == null) {
+            printUsage();
+            return;
+        }
+
         try {
-            BufferedImage image = loadImage();
-            processImageWithThreads(image);
-            saveImage(image);
+            switch (mode) {
+                case FIXED_THREADS, FORK_JOIN, OFF_HEAP, AUTOTUNE -> processSingleImage(mode, args);
+                case PARTITION -> processPartitioned(args);
+                case BATCH -> processBatch(args);
+                case SEQUENCE -> processSequence(args);
+                case STREAM -> processStreaming(args);
+                case FILTER -> processFilterChain(args);
+                case CONVOLVE -> processConvolution(args);
+                case EDIT -> processEdits(args);
+                case INTEGRAL -> processIntegral(args);
+                case MEDIAN -> processRankFilter(args);
+                case STATS -> processStatistics(args);
+                case PROFILE -> processProfiled(args);
+                case ASYNC -> processAsynchronously(args);
+                case PYRAMID -> processPyramid(args);
+                case RESIZE -> processResize(args);
+                case WORKER -> new TileWorker(args.length > 1 ? Integer.parseInt(args[1]) : TileWorker.DEFAULT_PORT)
+                        .start();
+                case DISTRIBUTED -> processDistributed(args);
+                case SERVE -> serve(args);
+                case CLIENT -> processRemotely(args);
+            }
 
         } catch (IOException e) {
             System.err.println("I/O Error: " + e.getMessage());
@@ -47,6 +252,667 @@ public class ThreadImageProcessing {
         }
     }
 
+    /**
+     * Loads the input image, processes it with the given mode and saves it.
+     * The fixed, fork-join, off-heap and autotune modes accept the grayscale
+     * conversion after the mode: "average" (default), "rec601" or "rec709".
+     *
+     * @param mode the processing mode
+     * @param args the command line arguments
+     * @throws IOException          if an error occurs while reading or writing
+     * @throws InterruptedException if a thread is interrupted during execution
+     */
+    private static void processSingleImage(ProcessingMode mode, String[] args)
+            throws IOException, InterruptedException {
+        final String conversion = args.length > 1 ? args[1].toLowerCase() : AVERAGE_CONVERSION;
+        LuminanceWeights weights = parseWeights(conversion);
+        BufferedImage image = loadImage();
+        switch (mode) {
+            case FIXED_THREADS -> processImageWithThreads(image, weights);
+            case OFF_HEAP -> image = processImageOffHeap(image, weights);
+            case AUTOTUNE -> processImageAutotuned(image, weights, conversion);
+            default -> processImageWithForkJoin(image, weights);
+        }
+        saveImage(image);
+    }
+
+    /**
+     * Converts the input image to grayscale with a fixed number of threads
+     * taking the areas of a partition strategy in order. The strategy, the
+     * area size and the conversion can be given after the mode.
+     *
+     * @param args the command line arguments
+     * @throws IOException          if an error occurs while reading or writing
+     * @throws InterruptedException if a thread is interrupted during the wait
+     */
+    private static void processPartitioned(String[] args) throws IOException, InterruptedException {
+        PartitionStrategy strategy = args.length > 1 ? PartitionStrategy.fromValue(args[1]) : DEFAULT_PARTITION;
+        if (strategy == null) {
+            throw new IllegalArgumentException("Unknown partition strategy: " + args[1]);
+        }
+        final int size = args.length > 2 ? Integer.parseInt(args[2]) : DEFAULT_PARTITION_SIZE;
+        LuminanceWeights weights = parseWeights(args.length > 3 ? args[3] : AVERAGE_CONVERSION);
+        BufferedImage image = loadImage();
+
+        List<Rectangle> areas = strategy.partition(image.getWidth(), image.getHeight(), size);
+        System.out.println("Processing " + areas.size() + " areas of " + size + " pixels in "
+                + strategy.getValue() + " order with " + NUM_THREADS + " threads");
+
+        final long startTime = System.currentTimeMillis();
+        runOnThreads(areas, NUM_THREADS, area -> new ImageProcessor(image, area, weights));
+        final long endTime = System.currentTimeMillis();
+
+        System.out.println("Processing completed in " + (endTime - startTime) + " ms");
+        saveImage(image);
+    }
+
+    /**
+     * Parses the name of a grayscale conversion.
+     *
+     * @param name "average" or the name of predefined luminance weights
+     * @return the luminance weights, or null for the average
+     * @throws IllegalArgumentException if the name is unknown
+     */
+    private static LuminanceWeights parseWeights(String name) {
+        if (name.equalsIgnoreCase(AVERAGE_CONVERSION)) {
+            return null;
+        }
+        LuminanceWeights weights = LuminanceWeights.fromName(name);
+        if (weights == null) {
+            throw new IllegalArgumentException("Unknown grayscale conversion: " + name);
+        }
+        return weights;
+    }
+
+    /**
+     * Processes every image of a directory with the decode/process/encode
+     * pipeline. The directories can be given after the mode. Results are
+     * cached in the output directory, so unchanged inputs are only copied on
+     * the next runs, unless "nocache" is given after the directories.
+     *
+     * @param args the command line arguments
+     * @throws IOException          if the directories cannot be accessed
+     * @throws InterruptedException if interrupted while waiting for the workers
+     */
+    private static void processBatch(String[] args) throws IOException, InterruptedException {
+        Path inputDir = Path.of(args.length > 1 ? args[1] : BATCH_INPUT_DIR);
+        Path outputDir = Path.of(args.length > 2 ? args[2] : BATCH_OUTPUT_DIR);
+        ResultCache cache = args.length > 3 && args[3].equalsIgnoreCase("nocache")
+                ? null
+                : new ResultCache(outputDir.resolve(BATCH_CACHE_DIR), BATCH_CACHE_ENTRIES);
+        int processors = Runtime.getRuntime().availableProcessors();
+        BatchPipeline pipeline = new BatchPipeline(BATCH_IO_THREADS, processors, BATCH_IO_THREADS,
+                BATCH_QUEUE_CAPACITY, cache);
+
+        final long startTime = System.currentTimeMillis();
+        int written = pipeline.run(inputDir, outputDir);
+        final long endTime = System.currentTimeMillis();
+
+        System.out.println(written + " images saved to " + outputDir + " in " + (endTime - startTime) + " ms");
+    }
+
+    /**
+     * Applies a filter chain to the input image with a work-stealing pool.
+     * The chain specification can be given after the mode.
+     *
+     * @param args the command line arguments
+     * @throws IOException if an error occurs while reading or writing
+     */
+    private static void processFilterChain(String[] args) throws IOException {
+        FilterChain chain = FilterChain.parse(args.length > 1 ? args[1] : DEFAULT_FILTER_SPEC);
+        BufferedImage image = loadImage();
+
+        try (ForkJoinTileScheduler scheduler = new ForkJoinTileScheduler()) {
+            System.out.println("Applying filter chain [" + chain + "] with "
+                    + scheduler.getParallelism() + " workers");
+            final PixelFilter filter = chain.fuse();
+
+            final long startTime = System.currentTimeMillis();
+            scheduler.process(image, area -> new FilterChainProcessor(image, area, filter));
+            final long endTime = System.currentTimeMillis();
+
+            System.out.println("Processing completed in " + (endTime - startTime) + " ms");
+        }
+        saveImage(image, FILTER_OUTPUT_PATH);
+    }
+
+    /**
+     * Convolves the input image into a new image with a work-stealing pool.
+     * The convolution can be given after the mode.
+     *
+     * @param args the command line arguments
+     * @throws IOException if an error occurs while reading or writing
+     */
+    private static void processConvolution(String[] args) throws IOException {
+        ConvolutionKernel[] kernels = parseConvolution(args.length > 1 ? args[1] : DEFAULT_CONVOLUTION);
+        BufferedImage source = loadImage();
+        BufferedImage destination = createCompatibleImage(source);
+
+        try (ForkJoinTileScheduler scheduler = new ForkJoinTileScheduler()) {
+            System.out.println("Convolving with a " + kernels[0].getWidth() + "x" + kernels[0].getHeight()
+                    + (kernels[0].isSeparable() ? " separable" : "") + " kernel and "
+                    + scheduler.getParallelism() + " workers");
+
+            // Every tile borrows up to four float arrays of the same length
+            final BufferPool pool = new BufferPool(4 * scheduler.getParallelism());
+
+            final long startTime = System.currentTimeMillis();
+            scheduler.process(source, area -> new ConvolutionProcessor(source, destination, area, pool, kernels));
+            final long endTime = System.currentTimeMillis();
+
+            System.out.println("Processing completed in " + (endTime - startTime) + " ms");
+        }
+        saveImage(destination, CONVOLVE_OUTPUT_PATH);
+    }
+
+    /**
+     * Processes the input image once and then simulates an editing session:
+     * every edit paints a small square of the source, marks it dirty and
+     * brings the output up to date reprocessing only the tiles around it.
+     * The operation, a grayscale conversion or a convolution, and the number
+     * of edits can be given after the mode.
+     *
+     * @param args the command line arguments
+     * @throws IOException if an error occurs while reading or writing
+     */
+    private static void processEdits(String[] args) throws IOException {
+        final String operation = args.length > 1 ? args[1] : AVERAGE_CONVERSION;
+        final int edits = args.length > 2 ? Integer.parseInt(args[2]) : DEFAULT_EDITS;
+        BufferedImage source = loadImage();
+        BufferedImage output = new ImageTypeSpecifier(source).createBufferedImage(source.getWidth(),
+                source.getHeight());
+
+        try (ForkJoinTileScheduler scheduler = new ForkJoinTileScheduler()) {
+            IncrementalProcessor processor;
+            if (operation.equalsIgnoreCase(AVERAGE_CONVERSION) || LuminanceWeights.fromName(operation) != null) {
+                processor = IncrementalProcessor.grayscale(scheduler, source, output, parseWeights(operation));
+            } else {
+                ConvolutionKernel[] kernels = parseConvolution(operation);
+                final int halo = Math.max(kernels[0].getWidth(), kernels[0].getHeight()) / 2;
+                final BufferPool pool = new BufferPool(4 * scheduler.getParallelism());
+                processor = new IncrementalProcessor(scheduler, source.getWidth(), source.getHeight(), halo,
+                        area -> new ConvolutionProcessor(source, output, area, pool, kernels));
+            }
+
+            long startTime = System.currentTimeMillis();
+            int tiles = processor.update();
+            final long fullTime = System.currentTimeMillis() - startTime;
+            System.out.println("Full pass: " + tiles + " tiles in " + fullTime + " ms");
+
+            Random random = new Random(0);
+            int reprocessed = 0;
+            startTime = System.currentTimeMillis();
+            for (int edit = 0; edit < edits; edit++) {
+                Rectangle area = new Rectangle(random.nextInt(Math.max(1, source.getWidth() - EDIT_SIZE)),
+                        random.nextInt(Math.max(1, source.getHeight() - EDIT_SIZE)),
+                        Math.min(EDIT_SIZE, source.getWidth()), Math.min(EDIT_SIZE, source.getHeight()));
+                final int color = random.nextInt();
+                for (int y = area.y; y < area.y + area.height; y++) {
+                    for (int x = area.x; x < area.x + area.width; x++) {
+                        source.setRGB(x, y, color);
+                    }
+                }
+                processor.markDirty(area);
+                reprocessed += processor.update();
+            }
+            final long editTime = System.currentTimeMillis() - startTime;
+            System.out.println(edits + " edits: " + reprocessed + " tiles reprocessed in " + editTime + " ms ("
+                    + (edits == 0 ? 0 : editTime / edits) + " ms per edit)");
+        }
+        saveImage(output, EDIT_OUTPUT_PATH);
+    }
+
+    /**
+     * Builds the summed-area table of the input image with a work-stealing
+     * pool and applies a box filter or local statistic from it. The filter,
+     * the window radius and the Sauvola k of the threshold can be given
+     * after the mode.
+     *
+     * @param args the command line arguments
+     * @throws IOException if an error occurs while reading or writing
+     */
+    private static void processIntegral(String[] args) throws IOException {
+        LocalFilter filter = args.length > 1 ? LocalFilter.fromValue(args[1]) : DEFAULT_LOCAL_FILTER;
+        if (filter == null) {
+            throw new IllegalArgumentException("Unknown local filter: " + args[1]);
+        }
+        final int radius = args.length > 2 ? Integer.parseInt(args[2]) : DEFAULT_LOCAL_RADIUS;
+        final double sensitivity = args.length > 3 ? Double.parseDouble(args[3]) : DEFAULT_SAUVOLA_K;
+        BufferedImage image = loadImage();
+        BufferedImage destination = filter.isColor()
+                ? createCompatibleImage(image, image.getWidth(), image.getHeight())
+                : new BufferedImage(image.getWidth(), image.getHeight(), BufferedImage.TYPE_BYTE_GRAY);
+
+        try (ForkJoinTileScheduler scheduler = new ForkJoinTileScheduler()) {
+            System.out.println("Applying " + filter.getValue() + " with radius " + radius + " and "
+                    + scheduler.getParallelism() + " workers");
+
+            final long startTime = System.currentTimeMillis();
+            IntegralImage integral = filter.isColor()
+                    ? IntegralImage.ofColor(scheduler, image)
+                    : IntegralImage.ofLuminance(scheduler, image, null);
+            final long tableTime = System.currentTimeMillis();
+            scheduler.process(destination,
+                    area -> new LocalFilterProcessor(integral, destination, area, filter, radius, sensitivity));
+            final long endTime = System.currentTimeMillis();
+
+            System.out.println("Table built in " + (tableTime - startTime) + " ms, filter applied in "
+                    + (endTime - tableTime) + " ms");
+        }
+        saveImage(destination, INTEGRAL_OUTPUT_PATH);
+    }
+
+    /**
+     * Applies a median or percentile filter to the input image, one full
+     * width strip per thread. The window radius and the percentile can be
+     * given after the mode.
+     *
+     * @param args the command line arguments
+     * @throws IOException          if an error occurs while reading or writing
+     * @throws InterruptedException if a thread is interrupted during the wait
+     */
+    private static void processRankFilter(String[] args) throws IOException, InterruptedException {
+        final int radius = args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_RANK_RADIUS;
+        final double percentile = args.length > 2 ? Double.parseDouble(args[2]) : DEFAULT_PERCENTILE;
+        BufferedImage image = loadImage();
+        BufferedImage destination = createCompatibleImage(image, image.getWidth(), image.getHeight());
+        System.out.println("Applying percentile " + percentile + " with radius " + radius + " and "
+                + NUM_THREADS + " threads");
+
+        final long startTime = System.currentTimeMillis();
+        runOnThreads(divideIntoStrips(image.getWidth(), image.getHeight(), NUM_THREADS),
+                area -> new RankFilterProcessor(image, destination, area, radius, percentile));
+        final long endTime = System.currentTimeMillis();
+
+        System.out.println("Filter applied in " + (endTime - startTime) + " ms");
+        saveImage(destination, MEDIAN_OUTPUT_PATH);
+    }
+
+    /**
+     * Resizes the input image with a work-stealing pool over full width
+     * strips. The size, half of the input by default, and the filter can be
+     * given after the mode.
+     *
+     * @param args the command line arguments
+     * @throws IOException if an error occurs while reading or writing
+     */
+    private static void processResize(String[] args) throws IOException {
+        ResampleFilter filter = args.length > 2 ? ResampleFilter.fromValue(args[2]) : DEFAULT_RESAMPLE_FILTER;
+        if (filter == null) {
+            throw new IllegalArgumentException("Unknown resample filter: " + args[2]);
+        }
+        BufferedImage image = loadImage();
+        int width = (image.getWidth() + 1) / 2;
+        int height = (image.getHeight() + 1) / 2;
+        if (args.length > 1) {
+            String[] size = args[1].toLowerCase().split("x");
+            if (size.length != 2) {
+                throw new IllegalArgumentException("Invalid size, expected WIDTHxHEIGHT: " + args[1]);
+            }
+            width = Integer.parseInt(size[0].trim());
+            height = Integer.parseInt(size[1].trim());
+        }
+
+        BufferedImage resized;
+        int parallelism = Runtime.getRuntime().availableProcessors();
+        try (ForkJoinTileScheduler scheduler
+                = new ForkJoinTileScheduler(parallelism, Integer.MAX_VALUE, RESAMPLE_STRIP_HEIGHT)) {
+            System.out.println("Resizing to " + width + "x" + height + " with the " + filter.getValue()
+                    + " filter and " + scheduler.getParallelism() + " workers");
+
+            final long startTime = System.currentTimeMillis();
+            resized = new Resampler(scheduler, filter).resize(image, width, height);
+            final long endTime = System.currentTimeMillis();
+
+            System.out.println("Processing completed in " + (endTime - startTime) + " ms");
+        }
+        saveImage(resized, RESIZE_OUTPUT_PATH);
+    }
+
+    /**
+     * Converts the input image on the worker nodes listed after the mode, as
+     * comma separated host:port addresses, and saves it. The grayscale
+     * conversion can be given after the workers.
+     *
+     * @param args the command line arguments
+     * @throws IOException          if an error occurs while reading or writing,
+     *                              or if the workers could not process a tile
+     * @throws InterruptedException if interrupted while waiting for the workers
+     */
+    private static void processDistributed(String[] args) throws IOException, InterruptedException {
+        if (args.length < 2) {
+            throw new IllegalArgumentException("Missing worker addresses: distributed host:port[,host:port...]");
+        }
+        List<InetSocketAddress> workers = new ArrayList<>();
+        for (String address : args[1].split(",")) {
+            final int separator = address.lastIndexOf(':');
+            workers.add(separator < 0
+                    ? new InetSocketAddress(address.trim(), TileWorker.DEFAULT_PORT)
+                    : new InetSocketAddress(address.substring(0, separator).trim(),
+                            Integer.parseInt(address.substring(separator + 1).trim())));
+        }
+        final String conversion = args.length > 2 ? args[2].toLowerCase() : AVERAGE_CONVERSION;
+        parseWeights(conversion);
+        BufferedImage image = loadImage();
+        DistributedCoordinator coordinator = new DistributedCoordinator(workers,
+                DistributedCoordinator.DEFAULT_TILE_SIZE, DistributedCoordinator.DEFAULT_MAX_ATTEMPTS);
+
+        System.out.println("Processing image on " + workers.size() + " workers");
+        final long startTime = System.currentTimeMillis();
+        coordinator.process(image, conversion);
+        final long endTime = System.currentTimeMillis();
+
+        System.out.println("Processing completed in " + (endTime - startTime) + " ms");
+        saveImage(image);
+    }
+
+    /**
+     * Runs the image service until the process is stopped. The port can be
+     * given after the mode.
+     *
+     * @param args the command line arguments
+     * @throws IOException if the port cannot be bound
+     */
+    private static void serve(String[] args) throws IOException {
+        final int port = args.length > 1 ? Integer.parseInt(args[1]) : ImageServer.DEFAULT_PORT;
+        try (ForkJoinTileScheduler scheduler = new ForkJoinTileScheduler();
+                ImageServer server = new ImageServer(port, scheduler, SERVICE_JOB_THREADS, SERVICE_QUEUE_CAPACITY)) {
+            Runtime.getRuntime().addShutdownHook(new Thread(server::close));
+            server.run();
+        }
+    }
+
+    /**
+     * Sends the input image to the image service at the address given after
+     * the mode and saves the answer. The operation can be given after the
+     * address. A busy server is asked again after a growing pause.
+     *
+     * @param args the command line arguments
+     * @throws IOException          if the server could not process the image
+     * @throws InterruptedException if interrupted while waiting to retry
+     */
+    private static void processRemotely(String[] args) throws IOException, InterruptedException {
+        if (args.length < 2) {
+            throw new IllegalArgumentException("Missing server address: client host:port");
+        }
+        final int separator = args[1].lastIndexOf(':');
+        InetSocketAddress address = separator < 0
+                ? new InetSocketAddress(args[1], ImageServer.DEFAULT_PORT)
+                : new InetSocketAddress(args[1].substring(0, separator),
+                        Integer.parseInt(args[1].substring(separator + 1)));
+        final String operation = args.length > 2 ? args[2] : AVERAGE_CONVERSION;
+        byte[] image = Files.readAllBytes(Path.of(INPUT_PATH));
+
+        try (ImageServiceClient client = new ImageServiceClient(address)) {
+            for (int attempt = 0; ; attempt++) {
+                try {
+                    final long startTime = System.currentTimeMillis();
+                    byte[] processed = client.process(image, operation);
+                    final long endTime = System.currentTimeMillis();
+
+                    System.out.println("Image processed by " + address + " in " + (endTime - startTime) + " ms");
+                    Files.write(Path.of(SERVICE_OUTPUT_PATH), processed);
+                    System.out.println("Image saved to: " + SERVICE_OUTPUT_PATH);
+                    return;
+                } catch (ImageServiceClient.ServerBusyException e) {
+                    if (attempt == CLIENT_BUSY_RETRIES) {
+                        throw e;
+                    }
+                    System.out.println("Server busy, retrying");
+                    Thread.sleep(100L << attempt);
+                }
+            }
+        }
+    }
+
+    /**
+     * Builds the pyramid of the input image with a work-stealing pool and
+     * saves every level while the next one is computed. The side of the
+     * thumbnail can be given after the mode.
+     *
+     * @param args the command line arguments
+     * @throws IOException          if an error occurs while reading or writing
+     * @throws InterruptedException if interrupted while waiting for the encoder
+     */
+    private static void processPyramid(String[] args) throws IOException, InterruptedException {
+        final int thumbnailSide = args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_THUMBNAIL_SIDE;
+        BufferedImage image = loadImage();
+
+        try (ForkJoinTileScheduler scheduler = new ForkJoinTileScheduler()) {
+            ImagePyramid pyramid = new ImagePyramid(scheduler);
+
+            final long startTime = System.currentTimeMillis();
+            int levels = pyramid.build(image, thumbnailSide,
+                    (level, rendition) -> saveImage(rendition, String.format(PYRAMID_OUTPUT_PATTERN, level)));
+            final long endTime = System.currentTimeMillis();
+
+            System.out.println(levels + " levels built and saved in " + (endTime - startTime) + " ms");
+        }
+    }
+
+    /**
+     * Converts the input image in the background, reporting when the first
+     * tile is finished, and saves it. The grayscale conversion can be given
+     * after the mode, followed by a time in milliseconds after which the job
+     * is cancelled if not finished yet.
+     *
+     * @param args the command line arguments
+     * @throws IOException          if an error occurs while reading or writing
+     * @throws InterruptedException if interrupted while waiting for the job
+     */
+    private static void processAsynchronously(String[] args) throws IOException, InterruptedException {
+        LuminanceWeights weights = parseWeights(args.length > 1 ? args[1] : AVERAGE_CONVERSION);
+        final long cancelAfter = args.length > 2 ? Long.parseLong(args[2]) : Long.MAX_VALUE;
+        BufferedImage image = loadImage();
+
+        try (ForkJoinTileScheduler scheduler = new ForkJoinTileScheduler()) {
+            AtomicInteger finished = new AtomicInteger();
+            AtomicLong firstTile = new AtomicLong();
+            final long startTime = System.nanoTime();
+            CompletableFuture<BufferedImage> job = scheduler.processAsync(image,
+                    area -> new ImageProcessor(image, area, weights),
+                    area -> {
+                        if (finished.getAndIncrement() == 0) {
+                            firstTile.set(System.nanoTime() - startTime);
+                        }
+                    });
+
+            try {
+                job.get(cancelAfter, TimeUnit.MILLISECONDS);
+            } catch (TimeoutException e) {
+                job.cancel(true);
+                System.out.println("Job cancelled after " + cancelAfter + " ms with " + finished.get()
+                        + " tiles finished");
+                return;
+            } catch (ExecutionException e) {
+                throw e.getCause() instanceof RuntimeException cause ? cause : new IllegalStateException(e);
+            }
+            final long endTime = System.nanoTime();
+
+            System.out.printf("First tile after %.2f ms, %d tiles completed in %d ms%n", firstTile.get() / 1e6,
+                    finished.get(), (endTime - startTime) / 1_000_000);
+        }
+        saveImage(image);
+    }
+
+    /**
+     * Converts the input image with the fixed grid of threads and with the
+     * work-stealing pool, timing every tile, and prints the report of both
+     * runs. The fixed grid runs on a copy of the image. The grayscale
+     * conversion can be given after the mode.
+     *
+     * @param args the command line arguments
+     * @throws IOException          if an error occurs while reading or writing
+     * @throws InterruptedException if a thread is interrupted during execution
+     */
+    private static void processProfiled(String[] args) throws IOException, InterruptedException {
+        LuminanceWeights weights = parseWeights(args.length > 1 ? args[1] : AVERAGE_CONVERSION);
+        BufferedImage image = loadImage();
+        BufferedImage copy = new BufferedImage(image.getColorModel(), image.copyData(null),
+                image.isAlphaPremultiplied(), null);
+        TileProfiler profiler = new TileProfiler();
+
+        System.out.println("Fixed grid of " + NUM_THREADS + " threads:");
+        runOnThreads(divideImage(copy), profiler.wrap(area -> new ImageProcessor(copy, area, weights)));
+        profiler.printReport(System.out);
+
+        profiler.reset();
+        try (ForkJoinTileScheduler scheduler = new ForkJoinTileScheduler()) {
+            System.out.println("Work-stealing pool of " + scheduler.getParallelism() + " workers and "
+                    + scheduler.getTileSize() + "px tiles:");
+            scheduler.process(image, profiler.wrap(area -> new ImageProcessor(image, area, weights)));
+        }
+        profiler.printReport(System.out);
+        saveImage(image);
+    }
+
+    /**
+     * Computes the histogram of the input image with a work-stealing pool and
+     * prints the statistics of each channel. When "autocontrast" or "equalize"
+     * is given after the mode, the matching adjustment is applied and saved.
+     *
+     * @param args the command line arguments
+     * @throws IOException if an error occurs while reading or writing
+     */
+    private static void processStatistics(String[] args) throws IOException {
+        final String adjustment = args.length > 1 ? args[1].toLowerCase() : "none";
+        if (!adjustment.equals("none") && !adjustment.equals("autocontrast") && !adjustment.equals("equalize")) {
+            throw new IllegalArgumentException("Unknown adjustment: " + adjustment);
+        }
+        BufferedImage image = loadImage();
+
+        try (ForkJoinTileScheduler scheduler = new ForkJoinTileScheduler()) {
+            final long startTime = System.currentTimeMillis();
+            ImageHistogram histogram = ImageStatistics.computeHistogram(scheduler, image);
+            final long endTime = System.currentTimeMillis();
+
+            System.out.println("Histogram of " + histogram.getPixelCount() + " pixels computed in "
+                    + (endTime - startTime) + " ms");
+            String[] names = {"red", "green", "blue"};
+            for (int channel = 0; channel < ImageHistogram.CHANNELS; channel++) {
+                System.out.printf("  %-5s min %3d  max %3d  mean %6.2f  median %3d%n", names[channel],
+                        histogram.getMin(channel), histogram.getMax(channel), histogram.getMean(channel),
+                        histogram.getPercentile(channel, 0.5));
+            }
+            if (adjustment.equals("none")) {
+                return;
+            }
+
+            final LookupFilter filter = adjustment.equals("equalize")
+                    ? ImageStatistics.equalize(histogram)
+                    : ImageStatistics.autoContrast(histogram, AUTO_CONTRAST_CLIP);
+            scheduler.process(image, area -> new FilterChainProcessor(image, area, filter));
+        }
+        saveImage(image, STATS_OUTPUT_PATH);
+    }
+
+    /**
+     * Parses a convolution description.
+     *
+     * @param spec one of blur=RADIUS, gaussian=SIGMA, sharpen or sobel
+     * @return the kernels of the convolution
+     * @throws IllegalArgumentException if the description is not valid
+     */
+    private static ConvolutionKernel[] parseConvolution(String spec) {
+        String[] parts = spec.split("=", 2);
+        try {
+            return switch (parts[0].trim().toLowerCase()) {
+                case "blur" -> new ConvolutionKernel[]{ConvolutionKernel.boxBlur(Integer.parseInt(parts[1].trim()))};
+                case "gaussian" -> new ConvolutionKernel[]{
+                    ConvolutionKernel.gaussianBlur(Double.parseDouble(parts[1].trim()))};
+                case "sharpen" -> new ConvolutionKernel[]{ConvolutionKernel.sharpen()};
+                case "sobel" -> new ConvolutionKernel[]{ConvolutionKernel.sobelX(), ConvolutionKernel.sobelY()};
+                default -> throw new IllegalArgumentException("Unknown convolution: " + spec);
+            };
+        } catch (ArrayIndexOutOfBoundsException | NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid convolution: " + spec, e);
+        }
+    }
+
+    /**
+     * Creates an empty image with the size and type of the given one.
+     *
+     * @param image the model image
+     * @return the new image
+     */
+    static BufferedImage createCompatibleImage(BufferedImage image) {
+        return createCompatibleImage(image, image.getWidth(), image.getHeight());
+    }
+
+    /**
+     * Creates an empty image with the type of the given one and another size.
+     * Custom layouts cannot be recreated and indexed ones would requantise
+     * the new colors, so those get packed ARGB or RGB pixels instead.
+     *
+     * @param image  the model image
+     * @param width  the width of the new image
+     * @param height the height of the new image
+     * @return the new image
+     */
+    static BufferedImage createCompatibleImage(BufferedImage image, int width, int height) {
+        return switch (image.getType()) {
+            case BufferedImage.TYPE_CUSTOM, BufferedImage.TYPE_BYTE_BINARY, BufferedImage.TYPE_BYTE_INDEXED ->
+                new BufferedImage(width, height, image.getColorModel().hasAlpha()
+                        ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB);
+            default -> new BufferedImage(width, height, image.getType());
+        };
+    }
+
+    /**
+     * Converts a sequence of frames to grayscale in a single run. The input
+     * and output directories and the conversion can be given after the mode.
+     *
+     * @param args the command line arguments
+     * @throws IOException          if the directories cannot be accessed
+     * @throws InterruptedException if interrupted while waiting for the workers
+     */
+    private static void processSequence(String[] args) throws IOException, InterruptedException {
+        Path inputDir = Path.of(args.length > 1 ? args[1] : SEQUENCE_INPUT_DIR);
+        Path outputDir = Path.of(args.length > 2 ? args[2] : SEQUENCE_OUTPUT_DIR);
+        LuminanceWeights weights = parseWeights(args.length > 3 ? args[3] : AVERAGE_CONVERSION);
+
+        try (ForkJoinTileScheduler scheduler = new ForkJoinTileScheduler()) {
+            final long startTime = System.currentTimeMillis();
+            int written = new FrameSequenceProcessor(scheduler, weights).run(inputDir, outputDir);
+            final long endTime = System.currentTimeMillis();
+
+            System.out.println(written + " frames saved to " + outputDir + " in " + (endTime - startTime) + " ms");
+        }
+    }
+
+    /**
+     * Processes an image band by band without loading it whole. The input and
+     * output paths can be given after the mode.
+     *
+     * @param args the command line arguments
+     * @throws IOException if an error occurs while reading or writing
+     */
+    private static void processStreaming(String[] args) throws IOException {
+        Path input = Path.of(args.length > 1 ? args[1] : INPUT_PATH);
+        Path output = Path.of(args.length > 2 ? args[2] : STREAM_OUTPUT_PATH);
+
+        try (ForkJoinTileScheduler scheduler = new ForkJoinTileScheduler()) {
+            StripStreamingProcessor processor
+                    = new StripStreamingProcessor(scheduler, StripStreamingProcessor.DEFAULT_BAND_HEIGHT);
+
+            final long startTime = System.currentTimeMillis();
+            processor.process(input, output);
+            final long endTime = System.currentTimeMillis();
+
+            System.out.println("Image streamed to " + output + " in " + (endTime - startTime) + " ms");
+        }
+    }
+
+    /**
+     * Prints the available processing modes.
+     */
+    private static void printUsage() {
+        System.err.println("Usage: ThreadImageProcessing [mode] [arguments]");
+        for (ProcessingMode mode : ProcessingMode.values()) {
+            System.err.println("  " + mode.getValue() + " - " + mode.getDescription());
+        }
+    }
+
     /**
      * Loads an image from the file system.
      *
@@ -68,13 +934,15 @@ public class ThreadImageProcessing {
      * Processes the image using multiple threads, dividing the image into
      * areas.
      *
-     * @param image the image to process
+     * @param image   the image to process
+     * @param weights the luminance weights, or null to average the bands
      * @throws InterruptedException if a thread is interrupted during execution
      */
-    private static void processImageWithThreads(BufferedImage image) throws InterruptedException {
+    private static void processImageWithThreads(BufferedImage image, LuminanceWeights weights)
+            throws InterruptedException {
         System.out.println("Processing image with " + NUM_THREADS + " threads");
         List<Rectangle> areas = divideImage(image);
-        List<Thread> threads = createAndStartThreads(image, areas);
+        List<Thread> threads = createAndStartThreads(areas, area -> new ImageProcessor(image, area, weights));
 
         final long startTime = System.currentTimeMillis();
         waitForThreads(threads);
@@ -83,17 +951,134 @@ public class ThreadImageProcessing {
         System.out.println("Processing completed in " + (endTime - startTime) + " ms");
     }
 
+    /**
+     * Processes the image with a work-stealing pool whose tile shape and
+     * number of workers are chosen by the {@link TileAutotuner}, measuring
+     * them on a sample the first time this kind of image is seen.
+     *
+     * @param image      the image to process
+     * @param weights    the luminance weights, or null to average the bands
+     * @param conversion the name of the grayscale conversion
+     */
+    private static void processImageAutotuned(BufferedImage image, LuminanceWeights weights, String conversion) {
+        TileAutotuner tuner = new TileAutotuner(Path.of(AUTOTUNE_CACHE_PATH));
+        TileAutotuner.Configuration configuration = tuner.tune("grayscale-" + conversion, image,
+                (target, area) -> new ImageProcessor(target, area, weights));
+
+        try (ForkJoinTileScheduler scheduler = configuration.createScheduler()) {
+            System.out.println("Processing image with " + configuration.threads() + " workers and "
+                    + configuration.tileSize() + "px " + configuration.shape().name().toLowerCase());
+
+            final long startTime = System.currentTimeMillis();
+            scheduler.process(image, area -> new ImageProcessor(image, area, weights));
+            final long endTime = System.currentTimeMillis();
+
+            System.out.println("Processing completed in " + (endTime - startTime) + " ms");
+        }
+    }
+
+    /**
+     * Processes the image with a work-stealing pool that splits it into small
+     * tiles. Uses one worker per available processor.
+     *
+     * @param image   the image to process
+     * @param weights the luminance weights, or null to average the bands
+     */
+    private static void processImageWithForkJoin(BufferedImage image, LuminanceWeights weights) {
+        try (ForkJoinTileScheduler scheduler = new ForkJoinTileScheduler()) {
+            System.out.println("Processing image with a work-stealing pool of "
+                    + scheduler.getParallelism() + " workers and "
+                    + scheduler.getTileSize() + "px tiles");
+
+            final long startTime = System.currentTimeMillis();
+            scheduler.process(image, area -> new ImageProcessor(image, area, weights));
+            final long endTime = System.currentTimeMillis();
+
+            System.out.println("Processing completed in " + (endTime - startTime) + " ms");
+        }
+    }
+
+    /**
+     * Copies the image to off-heap memory, processes it there with a
+     * work-stealing pool and copies the result back to the heap.
+     *
+     * @param image   the image to process
+     * @param weights the luminance weights, or null to average all the bands
+     * @return the processed image
+     */
+    private static BufferedImage processImageOffHeap(BufferedImage image, LuminanceWeights weights) {
+        try (ForkJoinTileScheduler scheduler = new ForkJoinTileScheduler();
+                OffHeapRaster raster = OffHeapRaster.fromImage(image)) {
+            System.out.println("Processing off-heap image with " + scheduler.getParallelism() + " workers");
+
+            final long startTime = System.currentTimeMillis();
+            scheduler.process(raster.getWidth(), raster.getHeight(),
+                    area -> new OffHeapImageProcessor(raster, area, weights));
+            final long endTime = System.currentTimeMillis();
+
+            System.out.println("Processing completed in " + (endTime - startTime) + " ms");
+            return raster.toImage();
+        }
+    }
+
+    /**
+     * Processes the given areas with one thread per area, waiting for all of
+     * them to finish. This is the fixed-thread baseline, reusable with any
+     * processor.
+     *
+     * @param areas            the list of rectangular areas to process
+     * @param processorFactory creates the processor for a given area
+     * @throws InterruptedException if a thread is interrupted during the wait
+     */
+    public static void runOnThreads(List<Rectangle> areas, Function<Rectangle, Runnable> processorFactory)
+            throws InterruptedException {
+        waitForThreads(createAndStartThreads(areas, processorFactory));
+    }
+
+    /**
+     * Processes the given areas with a fixed number of threads that take them
+     * one at a time in list order, waiting for all of them to finish. The
+     * threads work on neighbouring areas at about the same time when the list
+     * follows a locality preserving {@link PartitionStrategy}.
+     *
+     * @param areas            the list of rectangular areas to process
+     * @param numThreads       the number of threads
+     * @param processorFactory creates the processor for a given area
+     * @throws InterruptedException     if a thread is interrupted during the wait
+     * @throws IllegalArgumentException if the number of threads is not positive
+     */
+    public static void runOnThreads(List<Rectangle> areas, int numThreads,
+            Function<Rectangle, Runnable> processorFactory) throws InterruptedException {
+        if (numThreads <= 0) {
+            throw new IllegalArgumentException("Number of threads must be positive: " + numThreads);
+        }
+        AtomicInteger next = new AtomicInteger();
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < numThreads; i++) {
+            Thread thread = new Thread(() -> {
+                int area;
+                while ((area = next.getAndIncrement()) < areas.size()) {
+                    processorFactory.apply(areas.get(area)).run();
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        waitForThreads(threads);
+    }
+
     /**
      * Creates and starts threads to process each area of the image.
      *
-     * @param image the image to process
-     * @param areas the list of rectangular areas to process
+     * @param areas            the list of rectangular areas to process
+     * @param processorFactory creates the processor for a given area
      * @return the list of created and started threads
      */
-    private static List<Thread> createAndStartThreads(BufferedImage image, List<Rectangle> areas) {
+    private static List<Thread> createAndStartThreads(List<Rectangle> areas,
+            Function<Rectangle, Runnable> processorFactory) {
         List<Thread> threads = new ArrayList<>();
         for (Rectangle area : areas) {
-            ImageProcessor processor = new ImageProcessor(image, area);
+            Runnable processor = processorFactory.apply(area);
             Thread thread = new Thread(processor);
             threads.add(thread);
             thread.start();
@@ -120,8 +1105,19 @@ public class ThreadImageProcessing {
      * @throws IOException if an error occurs while writing the file
      */
     private static void saveImage(BufferedImage image) throws IOException {
-        ImageIO.write(image, getFileExtension(OUTPUT_PATH), new File(OUTPUT_PATH));
-        System.out.println("Image saved to: " + OUTPUT_PATH);
+        saveImage(image, OUTPUT_PATH);
+    }
+
+    /**
+     * Saves an image to the given path of the file system.
+     *
+     * @param image the image to save
+     * @param path  the path of the output file
+     * @throws IOException if an error occurs while writing the file
+     */
+    private static void saveImage(BufferedImage image, String path) throws IOException {
+        ImageIO.write(image, getFileExtension(path), new File(path));
+        System.out.println("Image saved to: " + path);
     }
 
     /**
@@ -132,12 +1128,23 @@ public class ThreadImageProcessing {
      * @return a list of rectangles representing the processing areas
      */
     private static List<Rectangle> divideImage(BufferedImage image) {
+        return divideImage(image.getWidth(), image.getHeight(), NUM_THREADS);
+    }
+
+    /**
+     * Divides an area of the given size into a grid of approximately square
+     * rectangles, one per thread.
+     *
+     * @param width    the width of the area to divide
+     * @param height   the height of the area to divide
+     * @param numAreas the number of areas to create
+     * @return a list of rectangles representing the processing areas
+     */
+    public static List<Rectangle> divideImage(int width, int height, int numAreas) {
         List<Rectangle> areas = new ArrayList<>();
-        int width = image.getWidth();
-        int height = image.getHeight();
 
-        int cols = (int) Math.sqrt(NUM_THREADS);
-        int rows = (int) Math.ceil((double) NUM_THREADS / cols);
+        int cols = (int) Math.sqrt(numAreas);
+        int rows = (int) Math.ceil((double) numAreas / cols);
 
         int tileWidth = width / cols;
         int tileHeight = height / rows;
@@ -152,11 +1159,11 @@ public class ThreadImageProcessing {
 
                 areas.add(new Rectangle(x, y, w, h));
 
-                if (areas.size() >= NUM_THREADS) {
+                if (areas.size() >= numAreas) {
                     break;
                 }
             }
-            if (areas.size() >= NUM_THREADS) {
+            if (areas.size() >= numAreas) {
                 break;
             }
         }
@@ -164,13 +1171,33 @@ public class ThreadImageProcessing {
         return areas;
     }
 
+    /**
+     * Divides an area of the given size into horizontal strips of the full
+     * width, for the processors that sweep whole rows.
+     *
+     * @param width     the width of the area to divide
+     * @param height    the height of the area to divide
+     * @param numStrips the number of strips to create, at most the height
+     * @return a list of rectangles representing the processing areas
+     */
+    public static List<Rectangle> divideIntoStrips(int width, int height, int numStrips) {
+        List<Rectangle> areas = new ArrayList<>();
+        final int strips = Math.max(1, Math.min(numStrips, height));
+        for (int strip = 0; strip < strips; strip++) {
+            int y = (int) ((long) height * strip / strips);
+            int end = (int) ((long) height * (strip + 1) / strips);
+            areas.add(new Rectangle(0, y, width, end - y));
+        }
+        return areas;
+    }
+
     /**
      * Gets the file extension to determine the image format.
      *
      * @param filename the file name
      * @return the file extension in lowercase, or "jpg" by default if not found
      */
-    private static String getFileExtension(String filename) {
+    static String getFileExtension(String filename) {
         int lastDot = filename.lastIndexOf('.');
         if (lastDot > 0 && lastDot < filename.length() - 1) {
             return filename.substring(lastDot + 1).toLowerCase();
@@ -0,0 +1,265 @@
+package com.sistemasdistribuidos.thread.image.processing;
+
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.TreeSet;
+import java.util.function.BiFunction;
+
+/**
+ * Chooses the partitioning of the image and the number of workers at run
+ * time. A sample cut from the centre of the image is processed with every
+ * candidate configuration (square tiles or full width strips, several tile
+ * sizes and several thread counts) and the fastest one is kept.
+ *
+ * The choice is stored in a properties file keyed by the workload, the image
+ * layout and size and the number of processors, so later runs on the same
+ * host and the same kind of image skip the measurements.
+ *
+ * @author mariovillacortagarcia
+ */
+public class TileAutotuner {
+
+    /**
+     * Tile sizes tried, in pixels.
+     */
+    private static final int[] TILE_SIZES = {32, 64, 128, 256};
+    /**
+     * Maximum side of the sample used for the measurements.
+     */
+    private static final int SAMPLE_SIZE = 1024;
+    /**
+     * Untimed runs of each candidate, to let the JIT compile the kernel.
+     */
+    private static final int WARMUP_RUNS = 2;
+    /**
+     * Timed runs of each candidate. The fastest one is taken, as slower runs
+     * are mostly noise from the rest of the system.
+     */
+    private static final int MEASURED_RUNS = 3;
+
+    private final Path cacheFile;
+    private final Properties cache = new Properties();
+
+    /**
+     * Shape of the tiles of a configuration.
+     */
+    public enum Shape {
+        /**
+         * Square tiles of the tile size.
+         */
+        TILES,
+        /**
+         * Full width strips with as many rows as the tile size.
+         */
+        STRIPS
+    }
+
+    /**
+     * Partitioning and parallelism chosen for a workload.
+     *
+     * @param shape    the shape of the tiles
+     * @param tileSize the tile side, or the strip height, in pixels
+     * @param threads  the number of workers
+     */
+    public record Configuration(Shape shape, int tileSize, int threads) {
+
+        /**
+         * Creates a scheduler that runs this configuration.
+         *
+         * @return the scheduler, to be closed by the caller
+         */
+        public ForkJoinTileScheduler createScheduler() {
+            return shape == Shape.STRIPS
+                    ? new ForkJoinTileScheduler(threads, Integer.MAX_VALUE, tileSize)
+                    : new ForkJoinTileScheduler(threads, tileSize);
+        }
+
+        /**
+         * Formats the configuration as stored in the cache.
+         *
+         * @return the shape, tile size and threads separated by commas
+         */
+        @Override
+        public String toString() {
+            return shape.name().toLowerCase() + "," + tileSize + "," + threads;
+        }
+
+        /**
+         * Parses a configuration stored in the cache.
+         *
+         * @param value the shape, tile size and threads separated by commas
+         * @return the configuration, or null if the value is not valid
+         */
+        static Configuration parse(String value) {
+            String[] parts = value.split(",");
+            if (parts.length != 3) {
+                return null;
+            }
+            try {
+                Configuration configuration = new Configuration(Shape.valueOf(parts[0].trim().toUpperCase()),
+                        Integer.parseInt(parts[1].trim()), Integer.parseInt(parts[2].trim()));
+                return configuration.tileSize > 0 && configuration.threads > 0 ? configuration : null;
+            } catch (IllegalArgumentException e) {
+                return null;
+            }
+        }
+    }
+
+    /**
+     * Constructs an autotuner that remembers its choices in a file. A missing
+     * or unreadable file starts an empty cache.
+     *
+     * @param cacheFile the properties file holding the previous choices
+     */
+    public TileAutotuner(Path cacheFile) {
+        this.cacheFile = cacheFile;
+        if (Files.isRegularFile(cacheFile)) {
+            try (Reader reader = Files.newBufferedReader(cacheFile)) {
+                cache.load(reader);
+            } catch (IOException | IllegalArgumentException e) {
+                System.err.println("Ignoring autotuning cache " + cacheFile + ": " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Gets the best configuration for a workload on the given image, from the
+     * cache if this kind of image has been tuned before, or by measuring
+     * every candidate on a sample of the image otherwise.
+     *
+     * @param workload         the name of the workload, part of the cache key
+     * @param image            the image that will be processed; it is not modified
+     * @param processorFactory creates the processor of a tile for a given image
+     * @return the fastest configuration
+     */
+    public synchronized Configuration tune(String workload, BufferedImage image,
+            BiFunction<BufferedImage, Rectangle, Runnable> processorFactory) {
+        final String key = keyOf(workload, image);
+        String cached = cache.getProperty(key);
+        Configuration configuration = cached == null ? null : Configuration.parse(cached);
+        if (configuration != null) {
+            System.out.println("Using tuned configuration " + configuration + " for " + key);
+            return configuration;
+        }
+
+        BufferedImage sample = cutSample(image);
+        Configuration best = null;
+        long bestTime = Long.MAX_VALUE;
+        for (Configuration candidate : candidates()) {
+            final long time = measure(candidate, sample, processorFactory);
+            System.out.printf("  %-16s %8.3f ms%n", candidate, time / 1e6);
+            if (time < bestTime) {
+                bestTime = time;
+                best = candidate;
+            }
+        }
+        System.out.println("Tuned configuration " + best + " for " + key);
+
+        cache.setProperty(key, best.toString());
+        save();
+        return best;
+    }
+
+    /**
+     * Builds the cache key of a workload on an image. Images with the same
+     * layout and size on a host with the same number of processors share it.
+     *
+     * @param workload the name of the workload
+     * @param image    the image
+     * @return the cache key
+     */
+    static String keyOf(String workload, BufferedImage image) {
+        return workload + ".type" + image.getType() + "." + image.getWidth() + "x" + image.getHeight()
+                + ".cpu" + Runtime.getRuntime().availableProcessors();
+    }
+
+    /**
+     * Lists the configurations to measure: both shapes with every tile size,
+     * with one worker per processor and with half of them.
+     *
+     * @return the candidate configurations
+     */
+    private static List<Configuration> candidates() {
+        final int processors = Runtime.getRuntime().availableProcessors();
+        TreeSet<Integer> threadCounts = new TreeSet<>(List.of(Math.max(1, processors / 2), processors));
+        List<Configuration> candidates = new ArrayList<>();
+        for (Shape shape : Shape.values()) {
+            for (int tileSize : TILE_SIZES) {
+                for (int threads : threadCounts) {
+                    candidates.add(new Configuration(shape, tileSize, threads));
+                }
+            }
+        }
+        return candidates;
+    }
+
+    /**
+     * Copies the centre of the image, at most {@link #SAMPLE_SIZE} pixels on
+     * each side, into a new image of the same layout. The processors work in
+     * place, so the measurements must not touch the real image.
+     *
+     * @param image the image to sample
+     * @return the sample
+     */
+    private static BufferedImage cutSample(BufferedImage image) {
+        final int width = Math.min(SAMPLE_SIZE, image.getWidth());
+        final int height = Math.min(SAMPLE_SIZE, image.getHeight());
+        final int x = (image.getWidth() - width) / 2;
+        final int y = (image.getHeight() - height) / 2;
+        BufferedImage sample = new BufferedImage(image.getColorModel(),
+                image.getRaster().createCompatibleWritableRaster(width, height),
+                image.isAlphaPremultiplied(), null);
+        sample.setData(image.getRaster().createChild(x, y, width, height, 0, 0, null));
+        return sample;
+    }
+
+    /**
+     * Measures a configuration on the sample.
+     *
+     * @param candidate        the configuration to measure
+     * @param sample           the sample image
+     * @param processorFactory creates the processor of a tile
+     * @return the fastest of the timed runs, in nanoseconds
+     */
+    private static long measure(Configuration candidate, BufferedImage sample,
+            BiFunction<BufferedImage, Rectangle, Runnable> processorFactory) {
+        long best = Long.MAX_VALUE;
+        try (ForkJoinTileScheduler scheduler = candidate.createScheduler()) {
+            for (int run = 0; run < WARMUP_RUNS + MEASURED_RUNS; run++) {
+                final long start = System.nanoTime();
+                scheduler.process(sample, area -> processorFactory.apply(sample, area));
+                final long time = System.nanoTime() - start;
+                if (run >= WARMUP_RUNS) {
+                    best = Math.min(best, time);
+                }
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Writes the cache file. A failure is reported but does not stop the
+     * processing, the choice is simply measured again on the next run.
+     */
+    private void save() {
+        try {
+            Path parent = cacheFile.toAbsolutePath().getParent();
+            if (parent != null) {
+                Files.createDirectories(parent);
+            }
+            try (Writer writer = Files.newBufferedWriter(cacheFile)) {
+                cache.store(writer, "Tile configurations chosen by TileAutotuner");
+            }
+        } catch (IOException e) {
+            System.err.println("Could not save autotuning cache " + cacheFile + ": " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,153 @@
+package com.sistemasdistribuidos.thread.image.processing;
+
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+
+/**
+ * Copies areas of an image to and from packed ARGB int buffers. Used by the
+ * neighbourhood processors, which read a tile together with a halo of the
+ * surrounding pixels and write their result to another image, and by the
+ * processors that copy unchanged tiles from one image to another.
+ *
+ * @author mariovillacortagarcia
+ */
+final class TileBuffers {
+
+    /**
+     * Utility class, not instantiable.
+     */
+    private TileBuffers() {
+    }
+
+    /**
+     * Reads an area extended by a halo on every side. Pixels of the halo that
+     * fall outside the image repeat the nearest edge pixel.
+     *
+     * @param image the image to read
+     * @param area  the area to read
+     * @param haloX the number of extra columns on the left and on the right
+     * @param haloY the number of extra rows on the top and on the bottom
+     * @return the pixels in row-major order, (width + 2 * haloX) per row
+     */
+    static int[] readWithHalo(BufferedImage image, Rectangle area, int haloX, int haloY) {
+        final int[] buffer = new int[(area.width + 2 * haloX) * (area.height + 2 * haloY)];
+        readWithHalo(image, area, haloX, haloY, buffer);
+        return buffer;
+    }
+
+    /**
+     * Reads an area extended by a halo on every side into an existing buffer.
+     * Pixels of the halo that fall outside the image repeat the nearest edge
+     * pixel.
+     *
+     * @param image  the image to read
+     * @param area   the area to read
+     * @param haloX  the number of extra columns on the left and on the right
+     * @param haloY  the number of extra rows on the top and on the bottom
+     * @param buffer receives the pixels in row-major order, (width + 2 * haloX)
+     *               per row; it must hold at least (height + 2 * haloY) rows
+     */
+    static void readWithHalo(BufferedImage image, Rectangle area, int haloX, int haloY, int[] buffer) {
+        final int bufferWidth = area.width + 2 * haloX;
+        final int bufferHeight = area.height + 2 * haloY;
+
+        final int firstX = Math.max(0, area.x - haloX);
+        final int lastX = Math.min(image.getWidth() - 1, area.x + area.width - 1 + haloX);
+        final int leftPadding = firstX - (area.x - haloX);
+        final int readWidth = lastX - firstX + 1;
+        DirectRaster direct = DirectRaster.ofArgb(image);
+
+        for (int row = 0; row < bufferHeight; row++) {
+            final int y = Math.clamp(area.y - haloY + row, 0, image.getHeight() - 1);
+            final int rowStart = row * bufferWidth;
+            final int readStart = rowStart + leftPadding;
+            readRow(image, direct, firstX, y, readWidth, buffer, readStart);
+
+            final int first = buffer[readStart];
+            for (int i = rowStart; i < readStart; i++) {
+                buffer[i] = first;
+            }
+            final int last = buffer[readStart + readWidth - 1];
+            for (int i = readStart + readWidth; i < rowStart + bufferWidth; i++) {
+                buffer[i] = last;
+            }
+        }
+    }
+
+    /**
+     * Reads an area without halo.
+     *
+     * @param image the image to read
+     * @param area  the area to read
+     * @return the pixels in row-major order
+     */
+    static int[] read(BufferedImage image, Rectangle area) {
+        return readWithHalo(image, area, 0, 0);
+    }
+
+    /**
+     * Writes pixels to an area of the image.
+     *
+     * @param image  the image to write
+     * @param area   the area to write
+     * @param pixels the pixels in row-major order, area.width per row
+     */
+    static void write(BufferedImage image, Rectangle area, int[] pixels) {
+        DirectRaster direct = DirectRaster.ofArgb(image);
+        if (direct == null) {
+            image.setRGB(area.x, area.y, area.width, area.height, pixels, 0, area.width);
+            return;
+        }
+        final int pixelStride = direct.getPixelStride();
+        for (int row = 0; row < area.height; row++) {
+            int index = direct.indexOf(area.x, area.y + row);
+            final int offset = row * area.width;
+            for (int x = 0; x < area.width; x++, index += pixelStride) {
+                direct.setArgb(index, pixels[offset + x]);
+            }
+        }
+    }
+
+    /**
+     * Copies an area between two images of the same size and layout, element
+     * by element, without unpacking the pixels.
+     *
+     * @param from the image to read
+     * @param to   the image to write
+     * @param area the area to copy
+     */
+    static void copy(BufferedImage from, BufferedImage to, Rectangle area) {
+        DirectRaster source = DirectRaster.of(from.getRaster());
+        DirectRaster destination = DirectRaster.of(to.getRaster());
+        if (source == null || destination == null) {
+            to.getRaster().setDataElements(area.x, area.y, area.width, area.height,
+                    from.getRaster().getDataElements(area.x, area.y, area.width, area.height, null));
+            return;
+        }
+        final int length = area.width * source.getPixelStride();
+        final Object sourceArray = source.getLayout() == DirectRaster.Layout.PACKED_INT
+                ? source.getInts() : source.getBytes();
+        final Object destinationArray = destination.getLayout() == DirectRaster.Layout.PACKED_INT
+                ? destination.getInts() : destination.getBytes();
+        for (int y = area.y; y < area.y + area.height; y++) {
+            System.arraycopy(sourceArray, source.indexOf(area.x, y), destinationArray,
+                    destination.indexOf(area.x, y), length);
+        }
+    }
+
+    /**
+     * Reads part of a row of the image into the buffer.
+     */
+    private static void readRow(BufferedImage image, DirectRaster direct, int x, int y, int width,
+            int[] buffer, int offset) {
+        if (direct == null) {
+            image.getRGB(x, y, width, 1, buffer, offset, width);
+            return;
+        }
+        final int pixelStride = direct.getPixelStride();
+        int index = direct.indexOf(x, y);
+        for (int i = 0; i < width; i++, index += pixelStride) {
+            buffer[offset + i] = direct.getArgb(index);
+        }
+    }
+}
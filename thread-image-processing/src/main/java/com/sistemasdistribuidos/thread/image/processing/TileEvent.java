@@ -0,0 +1,44 @@
+package com.sistemasdistribuidos.thread.image.processing;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+/**
+ * Flight Recorder event emitted for every tile run under a
+ * {@link TileProfiler}. The event duration is the processing time of the
+ * tile and the event thread is the worker that processed it. Recording is
+ * off unless a JFR recording enables the event, in which case it costs a
+ * single object per tile.
+ *
+ * @author mariovillacortagarcia
+ */
+@Name("com.sistemasdistribuidos.thread.image.processing.Tile")
+@Label("Image Tile")
+@Category({"Image Processing"})
+@Description("Processing of one tile of an image")
+final class TileEvent extends Event {
+
+    @Label("X")
+    int x;
+
+    @Label("Y")
+    int y;
+
+    @Label("Width")
+    int width;
+
+    @Label("Height")
+    int height;
+
+    @Label("Pixels")
+    long pixels;
+
+    @Label("Queue Wait")
+    @Description("Time between the tile being handed out and a worker starting it")
+    @Timespan(Timespan.NANOSECONDS)
+    long queueWait;
+}
@@ -0,0 +1,275 @@
+package com.sistemasdistribuidos.thread.image.processing;
+
+import java.awt.image.DataBuffer;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Binary framing of the messages exchanged by the
+ * {@link DistributedCoordinator} and the {@link TileWorker} nodes.
+ *
+ * Every frame is an int with the length of the rest of the frame, a type
+ * byte and the body, all big-endian:
+ * <ul>
+ * <li>TILE: tile id, image type, conversion name, width, height and the raw
+ * data elements of the tile.</li>
+ * <li>RESULT: tile id and the processed data elements.</li>
+ * <li>ERROR: tile id and the error message.</li>
+ * </ul>
+ * Text is stored as a short with its length followed by its UTF-8 bytes.
+ * Data elements are the samples returned by
+ * {@code Raster.getDataElements} for the image type, stored as bytes, shorts
+ * or ints depending on its transfer type, so tiles travel in the layout of
+ * the source image without conversion.
+ *
+ * @author mariovillacortagarcia
+ */
+final class TileProtocol {
+
+    /**
+     * Type of a frame carrying a tile to process.
+     */
+    static final byte TILE = 1;
+    /**
+     * Type of a frame carrying a processed tile.
+     */
+    static final byte RESULT = 2;
+    /**
+     * Type of a frame reporting that a tile could not be processed.
+     */
+    static final byte ERROR = 3;
+
+    /**
+     * Largest accepted frame, to reject corrupt lengths before allocating.
+     */
+    private static final int MAX_FRAME_LENGTH = 256 * 1024 * 1024;
+    /**
+     * Longest text, in UTF-8 bytes, that fits in the length field.
+     */
+    private static final int MAX_TEXT_LENGTH = 0xFFFF;
+
+    /**
+     * Tile received by a worker.
+     *
+     * @param id         the tile id, echoed in the response
+     * @param imageType  the BufferedImage type of the source image
+     * @param conversion the grayscale conversion name
+     * @param width      the width of the tile
+     * @param height     the height of the tile
+     * @param data       the raw data elements
+     */
+    record TileRequest(int id, int imageType, String conversion, int width, int height, ByteBuffer data) {
+    }
+
+    /**
+     * Response received by the coordinator.
+     *
+     * @param id    the tile id
+     * @param error the error message, or null if the tile was processed
+     * @param data  the processed data elements, or null on error
+     */
+    record TileResponse(int id, String error, ByteBuffer data) {
+    }
+
+    /**
+     * Utility class, not instantiable.
+     */
+    private TileProtocol() {
+    }
+
+    /**
+     * Writes a TILE frame.
+     *
+     * @param out        the stream to write to
+     * @param id         the tile id
+     * @param imageType  the BufferedImage type of the source image
+     * @param conversion the grayscale conversion name
+     * @param width      the width of the tile
+     * @param height     the height of the tile
+     * @param elements   the data elements, a byte, short or int array
+     * @throws IOException if the frame cannot be written
+     */
+    static void writeTile(DataOutputStream out, int id, int imageType, String conversion, int width, int height,
+            Object elements) throws IOException {
+        byte[] data = encode(elements);
+        byte[] name = truncate(conversion.getBytes(StandardCharsets.UTF_8));
+        out.writeInt(1 + 4 + 4 + 2 + name.length + 4 + 4 + data.length);
+        out.writeByte(TILE);
+        out.writeInt(id);
+        out.writeInt(imageType);
+        out.writeShort(name.length);
+        out.write(name);
+        out.writeInt(width);
+        out.writeInt(height);
+        out.write(data);
+    }
+
+    /**
+     * Writes a RESULT frame.
+     *
+     * @param out      the stream to write to
+     * @param id       the tile id
+     * @param elements the processed data elements
+     * @throws IOException if the frame cannot be written
+     */
+    static void writeResult(DataOutputStream out, int id, Object elements) throws IOException {
+        byte[] data = encode(elements);
+        out.writeInt(1 + 4 + data.length);
+        out.writeByte(RESULT);
+        out.writeInt(id);
+        out.write(data);
+    }
+
+    /**
+     * Writes an ERROR frame.
+     *
+     * @param out     the stream to write to
+     * @param id      the tile id
+     * @param message the error message
+     * @throws IOException if the frame cannot be written
+     */
+    static void writeError(DataOutputStream out, int id, String message) throws IOException {
+        byte[] text = truncate(message.getBytes(StandardCharsets.UTF_8));
+        out.writeInt(1 + 4 + 2 + text.length);
+        out.writeByte(ERROR);
+        out.writeInt(id);
+        out.writeShort(text.length);
+        out.write(text);
+    }
+
+    /**
+     * Reads a TILE frame.
+     *
+     * @param in the stream to read from
+     * @return the tile, or null if the peer closed the connection between frames
+     * @throws IOException if the frame is malformed or cannot be read
+     */
+    static TileRequest readTile(DataInputStream in) throws IOException {
+        final int length;
+        try {
+            length = in.readInt();
+        } catch (EOFException e) {
+            return null;
+        }
+        byte[] body = readFrame(in, length);
+        if (body[0] != TILE) {
+            throw new IOException("Unexpected frame type: " + body[0]);
+        }
+        DataInputStream frame = new DataInputStream(new ByteArrayInputStream(body, 1, body.length - 1));
+        final int id = frame.readInt();
+        final int imageType = frame.readInt();
+        final String conversion = readText(frame);
+        final int width = frame.readInt();
+        final int height = frame.readInt();
+        return new TileRequest(id, imageType, conversion, width, height, ByteBuffer.wrap(frame.readAllBytes()));
+    }
+
+    /**
+     * Reads a RESULT or ERROR frame.
+     *
+     * @param in the stream to read from
+     * @return the response
+     * @throws IOException if the frame is malformed or cannot be read
+     */
+    static TileResponse readResponse(DataInputStream in) throws IOException {
+        byte[] body = readFrame(in, in.readInt());
+        DataInputStream frame = new DataInputStream(new ByteArrayInputStream(body, 1, body.length - 1));
+        final int id = frame.readInt();
+        return switch (body[0]) {
+            case RESULT -> new TileResponse(id, null, ByteBuffer.wrap(body, 5, body.length - 5));
+            case ERROR -> new TileResponse(id, readText(frame), null);
+            default -> throw new IOException("Unexpected frame type: " + body[0]);
+        };
+    }
+
+    /**
+     * Decodes data elements into the array type of a transfer type.
+     *
+     * @param data         the encoded elements
+     * @param transferType the transfer type of the raster
+     * @param count        the expected number of elements
+     * @return a byte, short or int array
+     * @throws IOException if the data does not hold exactly count elements
+     */
+    static Object decode(ByteBuffer data, int transferType, int count) throws IOException {
+        final int size = DataBuffer.getDataTypeSize(transferType) / 8;
+        if (data.remaining() != count * size) {
+            throw new IOException("Expected " + count * size + " data bytes, got " + data.remaining());
+        }
+        return switch (transferType) {
+            case DataBuffer.TYPE_BYTE -> {
+                byte[] elements = new byte[count];
+                data.get(elements);
+                yield elements;
+            }
+            case DataBuffer.TYPE_USHORT, DataBuffer.TYPE_SHORT -> {
+                short[] elements = new short[count];
+                data.asShortBuffer().get(elements);
+                yield elements;
+            }
+            case DataBuffer.TYPE_INT -> {
+                int[] elements = new int[count];
+                data.asIntBuffer().get(elements);
+                yield elements;
+            }
+            default -> throw new IOException("Unsupported transfer type: " + transferType);
+        };
+    }
+
+    /**
+     * Encodes data elements as big-endian bytes.
+     *
+     * @param elements a byte, short or int array
+     * @return the encoded elements
+     */
+    private static byte[] encode(Object elements) {
+        if (elements instanceof byte[] bytes) {
+            return bytes;
+        }
+        if (elements instanceof short[] shorts) {
+            ByteBuffer buffer = ByteBuffer.allocate(shorts.length * 2);
+            buffer.asShortBuffer().put(shorts);
+            return buffer.array();
+        }
+        if (elements instanceof int[] ints) {
+            ByteBuffer buffer = ByteBuffer.allocate(ints.length * 4);
+            buffer.asIntBuffer().put(ints);
+            return buffer.array();
+        }
+        throw new IllegalArgumentException("Unsupported data elements: " + elements.getClass());
+    }
+
+    /**
+     * Reads text written as a length and its UTF-8 bytes.
+     */
+    private static String readText(DataInputStream in) throws IOException {
+        byte[] text = new byte[in.readUnsignedShort()];
+        in.readFully(text);
+        return new String(text, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Cuts text down to the longest length a short can hold.
+     */
+    private static byte[] truncate(byte[] text) {
+        return text.length <= MAX_TEXT_LENGTH ? text : Arrays.copyOf(text, MAX_TEXT_LENGTH);
+    }
+
+    /**
+     * Reads the rest of a frame, its type byte followed by its body.
+     */
+    private static byte[] readFrame(DataInputStream in, int length) throws IOException {
+        if (length < 1 || length > MAX_FRAME_LENGTH) {
+            throw new IOException("Invalid frame length: " + length);
+        }
+        byte[] frame = new byte[length];
+        in.readFully(frame);
+        return frame;
+    }
+}
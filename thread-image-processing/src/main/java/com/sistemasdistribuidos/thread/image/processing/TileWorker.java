@@ -0,0 +1,190 @@
+package com.sistemasdistribuidos.thread.image.processing;
+
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.awt.image.WritableRaster;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Worker node of the distributed mode. Listens for coordinators on a TCP
+ * port and converts every tile it receives with the {@link ImageProcessor}
+ * kernel, answering with the processed tile on the same connection.
+ *
+ * Each connection is served by its own thread and its tiles are processed
+ * in the order they arrive. A tile that cannot be processed is answered
+ * with an error frame, so the coordinator can retry it on another node.
+ * Closing the worker drops every connection at once, as a crashed node
+ * would.
+ *
+ * @author mariovillacortagarcia
+ */
+public class TileWorker implements AutoCloseable {
+
+    /**
+     * Port the workers listen on when none is given.
+     */
+    public static final int DEFAULT_PORT = 5000;
+
+    private final int port;
+    private final Set<Socket> connections = ConcurrentHashMap.newKeySet();
+    private final AtomicLong processedTiles = new AtomicLong();
+    private ServerSocket serverSocket;
+
+    /**
+     * Constructs a worker for the specified port.
+     *
+     * @param port the TCP port to listen on, 0 for any free port
+     */
+    public TileWorker(int port) {
+        this.port = port;
+    }
+
+    /**
+     * Binds the worker to its port, if not bound yet. Coordinators can
+     * connect from then on, and are served once {@link #start()} is called.
+     *
+     * @return the local port
+     * @throws IOException if the server socket cannot be created
+     */
+    public synchronized int bind() throws IOException {
+        if (serverSocket == null) {
+            serverSocket = new ServerSocket(port);
+        }
+        return serverSocket.getLocalPort();
+    }
+
+    /**
+     * Accepts coordinator connections until the worker is closed, serving
+     * each one on a new thread.
+     *
+     * @throws IOException if the server socket cannot be created
+     */
+    public void start() throws IOException {
+        System.out.println("[Worker] Listening on port " + bind());
+        ServerSocket listener;
+        synchronized (this) {
+            listener = serverSocket;
+        }
+        try (listener) {
+            while (!listener.isClosed()) {
+                try {
+                    Socket socket = listener.accept();
+                    connections.add(socket);
+                    Thread thread = new Thread(() -> serve(socket), "worker-" + socket.getPort());
+                    thread.start();
+                } catch (IOException e) {
+                    if (!listener.isClosed()) {
+                        System.err.println("[Worker] Error accepting connection: " + e.getMessage());
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Gets the number of tiles processed over all the connections.
+     *
+     * @return the number of processed tiles
+     */
+    public long getProcessedTiles() {
+        return processedTiles.get();
+    }
+
+    /**
+     * Stops accepting coordinators and closes every open connection, so the
+     * tiles in flight are never answered.
+     */
+    @Override
+    public void close() {
+        synchronized (this) {
+            closeQuietly(serverSocket);
+        }
+        for (Socket connection : connections) {
+            closeQuietly(connection);
+        }
+    }
+
+    /**
+     * Closes a socket, ignoring errors.
+     */
+    private static void closeQuietly(Closeable socket) {
+        if (socket == null) {
+            return;
+        }
+        try {
+            socket.close();
+        } catch (IOException e) {
+            // Nothing left to serve on it
+        }
+    }
+
+    /**
+     * Processes the tiles of a connection until the coordinator closes it.
+     *
+     * @param connection the connection with the coordinator
+     */
+    private void serve(Socket connection) {
+        final String peer = connection.getInetAddress().getHostAddress() + ":" + connection.getPort();
+        System.out.println("[Worker] Coordinator connected from " + peer);
+        int tiles = 0;
+        try (Socket socket = connection;
+                DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+                DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()))) {
+            TileProtocol.TileRequest request;
+            while ((request = TileProtocol.readTile(in)) != null) {
+                try {
+                    TileProtocol.writeResult(out, request.id(), process(request));
+                    tiles++;
+                    processedTiles.incrementAndGet();
+                } catch (IOException | RuntimeException e) {
+                    TileProtocol.writeError(out, request.id(), e.toString());
+                }
+                out.flush();
+            }
+            System.out.println("[Worker] Coordinator " + peer + " disconnected after " + tiles + " tiles");
+        } catch (IOException e) {
+            System.err.println("[Worker] Error serving " + peer + ": " + e.getMessage());
+        } finally {
+            connections.remove(connection);
+        }
+    }
+
+    /**
+     * Converts a tile to grayscale in an image of the type of the source.
+     *
+     * @param request the tile
+     * @return the processed data elements
+     * @throws IOException if the data does not match the tile
+     */
+    private static Object process(TileProtocol.TileRequest request) throws IOException {
+        if (request.imageType() == BufferedImage.TYPE_CUSTOM) {
+            throw new IllegalArgumentException("Custom image types cannot be rebuilt from raw data");
+        }
+        LuminanceWeights weights = null;
+        if (!request.conversion().equalsIgnoreCase("average")) {
+            weights = LuminanceWeights.fromName(request.conversion());
+            if (weights == null) {
+                throw new IllegalArgumentException("Unknown grayscale conversion: " + request.conversion());
+            }
+        }
+
+        BufferedImage image = new BufferedImage(request.width(), request.height(), request.imageType());
+        WritableRaster raster = image.getRaster();
+        final int count = request.width() * request.height() * raster.getNumDataElements();
+        raster.setDataElements(0, 0, request.width(), request.height(),
+                TileProtocol.decode(request.data(), raster.getTransferType(), count));
+
+        new ImageProcessor(image, new Rectangle(0, 0, request.width(), request.height()), weights).run();
+        return raster.getDataElements(0, 0, request.width(), request.height(), null);
+    }
+}
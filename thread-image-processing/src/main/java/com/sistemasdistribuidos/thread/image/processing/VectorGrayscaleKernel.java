@@ -0,0 +1,69 @@
+package com.sistemasdistribuidos.thread.image.processing;
+
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * Grayscale kernel for packed int pixels using the Vector API. Each lane holds
+ * one pixel, so a whole vector of pixels is unpacked, averaged and packed back
+ * with a handful of SIMD instructions. The pixels left over at the end of a
+ * row are processed with a scalar loop.
+ *
+ * Requires the jdk.incubator.vector module at runtime; the
+ * {@link ImageProcessor} only loads this class when the module is present.
+ *
+ * @author mariovillacortagarcia
+ */
+final class VectorGrayscaleKernel implements PackedGrayscaleKernel {
+
+    private static final VectorSpecies<Integer> SPECIES = IntVector.SPECIES_PREFERRED;
+
+    /**
+     * Multiplier that, followed by a 17 bit shift, divides by 3 exactly for
+     * every sum of three 8-bit bands (0 to 765).
+     */
+    private static final int DIVIDE_BY_3_MULTIPLIER = 43691;
+    private static final int DIVIDE_BY_3_SHIFT = 17;
+
+    /**
+     * Converts the pixels of a row to grayscale in place.
+     */
+    @Override
+    public void processRow(int[] data, int start, int end, int numBands, int bandsMask) {
+        final int upperBound = start + SPECIES.loopBound(end - start);
+        int i = start;
+        for (; i < upperBound; i += SPECIES.length()) {
+            IntVector pixels = IntVector.fromArray(SPECIES, data, i);
+            IntVector masked = pixels.and(bandsMask);
+            IntVector sum = masked.lanewise(VectorOperators.LSHR, 24)
+                    .add(masked.lanewise(VectorOperators.LSHR, 16).and(0xFF))
+                    .add(masked.lanewise(VectorOperators.LSHR, 8).and(0xFF))
+                    .add(masked.and(0xFF));
+            IntVector gray = divide(sum, numBands);
+            pixels.and(~bandsMask)
+                    .or(gray.mul(0x01010101).and(bandsMask))
+                    .intoArray(data, i);
+        }
+        for (; i < end; i++) {
+            data[i] = PackedGrayscaleKernel.toGray(data[i], numBands, bandsMask);
+        }
+    }
+
+    /**
+     * Divides every lane by the number of bands, avoiding the vector integer
+     * division for the common 3 and 4 band cases.
+     *
+     * @param sum      the sum of the bands of each pixel
+     * @param numBands the number of bands
+     * @return the average of the bands of each pixel
+     */
+    private static IntVector divide(IntVector sum, int numBands) {
+        return switch (numBands) {
+            case 1 -> sum;
+            case 3 -> sum.mul(DIVIDE_BY_3_MULTIPLIER).lanewise(VectorOperators.LSHR, DIVIDE_BY_3_SHIFT);
+            case 4 -> sum.lanewise(VectorOperators.LSHR, 2);
+            default -> sum.lanewise(VectorOperators.DIV, numBands);
+        };
+    }
+}
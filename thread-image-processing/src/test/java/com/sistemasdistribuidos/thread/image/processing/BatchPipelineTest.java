@@ -0,0 +1,102 @@
+package com.sistemasdistribuidos.thread.image.processing;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Random;
+import javax.imageio.ImageIO;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Checks that the {@link BatchPipeline} converts every image of a directory,
+ * and that a stage worker dying from an error does not leave the pipeline
+ * waiting forever for its end of stream.
+ *
+ * @author mariovillacortagarcia
+ */
+class BatchPipelineTest {
+
+    private static final int IMAGES = 5;
+    private static final int WIDTH = 23;
+    private static final int HEIGHT = 17;
+    /**
+     * Length of a file too large to be read into an array, which makes
+     * {@link Files#readAllBytes(Path)} throw an {@link OutOfMemoryError}. The
+     * file is sparse, so it takes no space on disk.
+     */
+    private static final long HUGE_FILE_LENGTH = 3L << 30;
+    private static final Duration TIMEOUT = Duration.ofSeconds(30);
+    private static final long SEED = 23L;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void everyImageIsConverted() throws IOException {
+        Path input = writeImages();
+        Path output = directory.resolve("output");
+
+        int written = assertTimeoutPreemptively(TIMEOUT, () -> new BatchPipeline(2, 2, 2, 1).run(input, output));
+
+        assertEquals(IMAGES, written);
+        assertConverted(input, output);
+    }
+
+    @Test
+    void decoderDyingFromAnErrorStillEndsTheStream() throws IOException {
+        Path input = writeImages();
+        Path output = directory.resolve("output");
+        // Sorted first, so one of the decoders takes it and dies
+        try (RandomAccessFile huge = new RandomAccessFile(input.resolve("0_huge.png").toFile(), "rw")) {
+            huge.setLength(HUGE_FILE_LENGTH);
+        }
+
+        int written = assertTimeoutPreemptively(TIMEOUT, () -> new BatchPipeline(2, 2, 1, 1).run(input, output));
+
+        assertEquals(IMAGES, written);
+        assertConverted(input, output);
+    }
+
+    /**
+     * Writes the input images.
+     *
+     * @return the input directory
+     */
+    private Path writeImages() throws IOException {
+        Path input = Files.createDirectories(directory.resolve("input"));
+        Random random = new Random(SEED);
+        for (int i = 0; i < IMAGES; i++) {
+            BufferedImage image = new BufferedImage(WIDTH, HEIGHT, BufferedImage.TYPE_3BYTE_BGR);
+            for (int y = 0; y < HEIGHT; y++) {
+                for (int x = 0; x < WIDTH; x++) {
+                    image.setRGB(x, y, random.nextInt());
+                }
+            }
+            ImageIO.write(image, "png", input.resolve("image" + i + ".png").toFile());
+        }
+        return input;
+    }
+
+    /**
+     * Compares every output with its input converted on its own.
+     */
+    private static void assertConverted(Path input, Path output) throws IOException {
+        for (int i = 0; i < IMAGES; i++) {
+            BufferedImage expected = ImageIO.read(input.resolve("image" + i + ".png").toFile());
+            new ImageProcessor(expected, new Rectangle(0, 0, WIDTH, HEIGHT)).run();
+            BufferedImage actual = ImageIO.read(
+                    output.resolve(BatchPipeline.OUTPUT_PREFIX + "image" + i + ".png").toFile());
+            assertArrayEquals(expected.getRGB(0, 0, WIDTH, HEIGHT, null, 0, WIDTH),
+                    actual.getRGB(0, 0, WIDTH, HEIGHT, null, 0, WIDTH), "image " + i);
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package com.sistemasdistribuidos.thread.image.processing;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.awt.image.BufferedImage;
+import javax.imageio.ImageTypeSpecifier;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Checks that {@link BufferPool} reuses the buffers it is given back and
+ * keeps its idle buffers under its byte bound, whatever the number of sizes.
+ *
+ * @author mariovillacortagarcia
+ */
+class BufferPoolTest {
+
+    private static final long MAX_IDLE_BYTES = 64 * 1024;
+
+    @Test
+    void returnedBuffersAreReused() {
+        BufferPool pool = new BufferPool(2, MAX_IDLE_BYTES);
+        int[] ints = pool.acquireInts(100);
+        pool.releaseInts(ints);
+
+        assertSame(ints, pool.acquireInts(100));
+        assertEquals(1, pool.getReuses());
+        assertEquals(0, pool.getIdleBytes());
+    }
+
+    @Test
+    void arraysOfTheSameLengthAndDifferentTypeAreNotMixed() {
+        BufferPool pool = new BufferPool(2, MAX_IDLE_BYTES);
+        pool.releaseInts(new int[100]);
+
+        float[] floats = pool.acquireFloats(100);
+
+        assertEquals(100, floats.length);
+        assertEquals(0, pool.getReuses());
+    }
+
+    @Test
+    void manyDistinctSizesStayUnderTheBound() {
+        BufferPool pool = new BufferPool(4, MAX_IDLE_BYTES);
+        ImageTypeSpecifier type = ImageTypeSpecifier.createFromBufferedImageType(BufferedImage.TYPE_INT_ARGB);
+        for (int size = 1; size <= 500; size++) {
+            pool.releaseInts(new int[size * 7]);
+            pool.releaseFloats(new float[size * 5]);
+            pool.releaseImage(type.createBufferedImage(size % 60 + 1, size % 40 + 1));
+            assertTrue(pool.getIdleBytes() <= MAX_IDLE_BYTES, "Idle bytes: " + pool.getIdleBytes());
+        }
+        assertTrue(pool.getIdleBytes() > 0);
+    }
+
+    @Test
+    void leastRecentlyUsedSizesAreEvictedFirst() {
+        BufferPool pool = new BufferPool(1, 3 * 1024 * Integer.BYTES);
+        int[] first = new int[1024];
+        int[] second = new int[1025];
+        pool.releaseInts(first);
+        pool.releaseInts(second);
+        // Uses the first size again, so the second one is the least recent
+        pool.releaseInts(pool.acquireInts(1024));
+        pool.releaseInts(new int[1026]);
+
+        assertSame(first, pool.acquireInts(1024));
+        assertNotSame(second, pool.acquireInts(1025));
+    }
+
+    @Test
+    void buffersLargerThanTheBoundAreNotKept() {
+        BufferPool pool = new BufferPool(1, 1024);
+        pool.releaseInts(new int[16]);
+        pool.releaseInts(new int[1024]);
+
+        assertEquals(16 * Integer.BYTES, pool.getIdleBytes());
+    }
+}
@@ -0,0 +1,117 @@
+package com.sistemasdistribuidos.thread.image.processing;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+/**
+ * Checks that the ARGB views of {@link DirectRaster} are only used on images
+ * whose samples are straight colors, and that palette and premultiplied
+ * images read and write the same colors as getRGB and setRGB.
+ *
+ * @author mariovillacortagarcia
+ */
+class DirectRasterTest {
+
+    private static final int WIDTH = 9;
+    private static final int HEIGHT = 7;
+    private static final int RED = 0xFFFF0000;
+    private static final long SEED = 7L;
+
+    @ParameterizedTest
+    @ValueSource(ints = {BufferedImage.TYPE_INT_RGB, BufferedImage.TYPE_INT_ARGB, BufferedImage.TYPE_INT_BGR,
+        BufferedImage.TYPE_3BYTE_BGR, BufferedImage.TYPE_4BYTE_ABGR, BufferedImage.TYPE_BYTE_GRAY})
+    void straightColorImagesGetAnArgbView(int type) {
+        assertNotNull(DirectRaster.ofArgb(new BufferedImage(WIDTH, HEIGHT, type)));
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {BufferedImage.TYPE_BYTE_INDEXED, BufferedImage.TYPE_BYTE_BINARY,
+        BufferedImage.TYPE_INT_ARGB_PRE, BufferedImage.TYPE_4BYTE_ABGR_PRE})
+    void paletteAndPremultipliedImagesGetNoArgbView(int type) {
+        assertNull(DirectRaster.ofArgb(new BufferedImage(WIDTH, HEIGHT, type)));
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {BufferedImage.TYPE_BYTE_INDEXED, BufferedImage.TYPE_INT_ARGB_PRE,
+        BufferedImage.TYPE_4BYTE_ABGR_PRE})
+    void tilesReadTheColorsOfTheColorModel(int type) {
+        BufferedImage image = noise(type);
+        Rectangle area = new Rectangle(2, 1, 5, 4);
+        int[] expected = image.getRGB(area.x, area.y, area.width, area.height, null, 0, area.width);
+
+        assertArrayEquals(expected, TileBuffers.read(image, area));
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {BufferedImage.TYPE_BYTE_INDEXED, BufferedImage.TYPE_INT_ARGB_PRE,
+        BufferedImage.TYPE_4BYTE_ABGR_PRE})
+    void tilesWriteTheColorsOfTheColorModel(int type) {
+        BufferedImage actual = new BufferedImage(WIDTH, HEIGHT, type);
+        BufferedImage expected = new BufferedImage(WIDTH, HEIGHT, type);
+        Rectangle area = new Rectangle(1, 2, 6, 3);
+        int[] pixels = new Random(SEED).ints(area.width * area.height).toArray();
+
+        TileBuffers.write(actual, area, pixels);
+        expected.setRGB(area.x, area.y, area.width, area.height, pixels, 0, area.width);
+
+        assertArrayEquals(expected.getRGB(0, 0, WIDTH, HEIGHT, null, 0, WIDTH),
+                actual.getRGB(0, 0, WIDTH, HEIGHT, null, 0, WIDTH));
+    }
+
+    @Test
+    void invertOfIndexedRedIsCyan() {
+        BufferedImage image = solid(BufferedImage.TYPE_BYTE_INDEXED, RED);
+
+        new FilterChainProcessor(image, new Rectangle(0, 0, WIDTH, HEIGHT),
+                FilterChain.parse("invert").fuse()).run();
+
+        assertEquals(0xFF00FFFF, image.getRGB(WIDTH / 2, HEIGHT / 2));
+    }
+
+    @Test
+    void medianOfIndexedRedIsRed() {
+        BufferedImage source = solid(BufferedImage.TYPE_BYTE_INDEXED, RED);
+        BufferedImage destination = new BufferedImage(WIDTH, HEIGHT, BufferedImage.TYPE_BYTE_INDEXED);
+
+        new RankFilterProcessor(source, destination, new Rectangle(0, 0, WIDTH, HEIGHT), 1, 50).run();
+
+        assertEquals(RED, destination.getRGB(WIDTH / 2, HEIGHT / 2));
+    }
+
+    /**
+     * Creates an image filled with one color.
+     */
+    private static BufferedImage solid(int type, int argb) {
+        BufferedImage image = new BufferedImage(WIDTH, HEIGHT, type);
+        for (int y = 0; y < HEIGHT; y++) {
+            for (int x = 0; x < WIDTH; x++) {
+                image.setRGB(x, y, argb);
+            }
+        }
+        return image;
+    }
+
+    /**
+     * Creates an image of random colors, translucent where the image has
+     * alpha.
+     */
+    private static BufferedImage noise(int type) {
+        BufferedImage image = new BufferedImage(WIDTH, HEIGHT, type);
+        Random random = new Random(SEED);
+        for (int y = 0; y < HEIGHT; y++) {
+            for (int x = 0; x < WIDTH; x++) {
+                image.setRGB(x, y, random.nextInt());
+            }
+        }
+        return image;
+    }
+}
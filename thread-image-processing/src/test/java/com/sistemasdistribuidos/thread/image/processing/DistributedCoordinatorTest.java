@@ -0,0 +1,194 @@
+package com.sistemasdistribuidos.thread.image.processing;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Runs a {@link DistributedCoordinator} against {@link TileWorker} nodes on
+ * ephemeral ports of localhost and checks the stitched image against the
+ * local {@link ImageProcessor} result, with every worker alive, with a
+ * worker killed in the middle of the job and with a worker that fails every
+ * tile.
+ *
+ * @author mariovillacortagarcia
+ */
+class DistributedCoordinatorTest {
+
+    private static final Duration TIMEOUT = Duration.ofSeconds(60);
+    private static final int WIDTH = 480;
+    private static final int HEIGHT = 320;
+    private static final int TILE_SIZE = 16;
+    private static final int TILES = (WIDTH / TILE_SIZE) * (HEIGHT / TILE_SIZE);
+    private static final int TILES_BEFORE_KILL = 20;
+
+    private final List<TileWorker> workers = new ArrayList<>();
+    private final List<Thread> threads = new ArrayList<>();
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        for (TileWorker worker : workers) {
+            worker.close();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+    }
+
+    @Test
+    void stitchedImageMatchesTheLocalResult() {
+        assertTimeoutPreemptively(TIMEOUT, () -> {
+            List<InetSocketAddress> addresses = List.of(startWorker(), startWorker(), startWorker());
+            BufferedImage image = noise();
+
+            new DistributedCoordinator(addresses, TILE_SIZE, DistributedCoordinator.DEFAULT_MAX_ATTEMPTS)
+                    .process(image, "average");
+
+            assertSamePixels(processLocally(noise()), image);
+        });
+    }
+
+    @Test
+    void tilesOfAKilledWorkerAreReassigned() {
+        assertTimeoutPreemptively(TIMEOUT, () -> {
+            List<InetSocketAddress> addresses = List.of(startWorker(), startWorker());
+            TileWorker victim = workers.get(0);
+            Thread killer = killAfterSomeTiles(victim);
+            BufferedImage image = noise();
+
+            new DistributedCoordinator(addresses, TILE_SIZE, DistributedCoordinator.DEFAULT_MAX_ATTEMPTS)
+                    .process(image, "average");
+            killer.join();
+
+            assertTrue(victim.getProcessedTiles() < TILES, "The worker was killed after the job");
+            assertSamePixels(processLocally(noise()), image);
+        });
+    }
+
+    @Test
+    void retriedTilesAvoidEveryWorkerTheyFailedOn() {
+        assertTimeoutPreemptively(TIMEOUT, () -> {
+            // Every tile fails once on the failing node; the tiles the killed
+            // worker had in flight must not go back to it, or they would run
+            // out of attempts
+            List<InetSocketAddress> addresses = List.of(startFailingWorker(), startWorker(), startWorker());
+            TileWorker victim = workers.get(0);
+            Thread killer = killAfterSomeTiles(victim);
+            BufferedImage image = noise();
+
+            new DistributedCoordinator(addresses, TILE_SIZE, 3).process(image, "average");
+            killer.join();
+
+            assertSamePixels(processLocally(noise()), image);
+        });
+    }
+
+    /**
+     * Starts a thread that closes a worker once it has processed a few
+     * tiles.
+     */
+    private static Thread killAfterSomeTiles(TileWorker worker) {
+        Thread killer = new Thread(() -> {
+            try {
+                while (worker.getProcessedTiles() < TILES_BEFORE_KILL) {
+                    Thread.sleep(1);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            worker.close();
+        });
+        killer.start();
+        return killer;
+    }
+
+    /**
+     * Starts a worker on an ephemeral port.
+     */
+    private InetSocketAddress startWorker() throws IOException {
+        TileWorker worker = new TileWorker(0);
+        final int port = worker.bind();
+        workers.add(worker);
+        Thread thread = new Thread(() -> {
+            try {
+                worker.start();
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        threads.add(thread);
+        thread.start();
+        return new InetSocketAddress("localhost", port);
+    }
+
+    /**
+     * Starts a node that answers every tile of a single coordinator with an
+     * error.
+     */
+    private InetSocketAddress startFailingWorker() throws IOException {
+        ServerSocket server = new ServerSocket(0);
+        Thread thread = new Thread(() -> {
+            try (server; Socket socket = server.accept();
+                    DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+                    DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()))) {
+                TileProtocol.TileRequest request;
+                while ((request = TileProtocol.readTile(in)) != null) {
+                    TileProtocol.writeError(out, request.id(), "failing node");
+                    out.flush();
+                }
+            } catch (IOException e) {
+                // The coordinator closed the connection
+            }
+        });
+        threads.add(thread);
+        thread.start();
+        return new InetSocketAddress("localhost", server.getLocalPort());
+    }
+
+    /**
+     * Converts the whole image on the calling thread.
+     */
+    private static BufferedImage processLocally(BufferedImage image) {
+        new ImageProcessor(image, new Rectangle(0, 0, image.getWidth(), image.getHeight())).run();
+        return image;
+    }
+
+    /**
+     * Compares every pixel of two images.
+     */
+    private static void assertSamePixels(BufferedImage expected, BufferedImage actual) {
+        assertArrayEquals(expected.getRGB(0, 0, WIDTH, HEIGHT, null, 0, WIDTH),
+                actual.getRGB(0, 0, WIDTH, HEIGHT, null, 0, WIDTH));
+    }
+
+    /**
+     * Creates an image of random colors, the same for every call.
+     */
+    private static BufferedImage noise() {
+        BufferedImage image = new BufferedImage(WIDTH, HEIGHT, BufferedImage.TYPE_3BYTE_BGR);
+        Random random = new Random(17);
+        for (int y = 0; y < HEIGHT; y++) {
+            for (int x = 0; x < WIDTH; x++) {
+                image.setRGB(x, y, random.nextInt());
+            }
+        }
+        return image;
+    }
+}
@@ -0,0 +1,58 @@
+package com.sistemasdistribuidos.thread.image.processing;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Checks the 2x2 averages of {@link DownsampleProcessor}.
+ *
+ * @author mariovillacortagarcia
+ */
+class DownsampleProcessorTest {
+
+    @Test
+    void opaquePixelsAreAveragedAndRounded() {
+        BufferedImage source = new BufferedImage(2, 2, BufferedImage.TYPE_INT_RGB);
+        source.setRGB(0, 0, 0x000000);
+        source.setRGB(1, 0, 0x0A0B0C);
+        source.setRGB(0, 1, 0x141516);
+        source.setRGB(1, 1, 0x1E1F21);
+
+        assertEquals(0xFF0F1011, downsample(source).getRGB(0, 0));
+    }
+
+    @Test
+    void transparentPixelsDoNotBleedIntoTheColor() {
+        BufferedImage source = new BufferedImage(2, 2, BufferedImage.TYPE_INT_ARGB);
+        source.setRGB(0, 0, 0xFFFF0000);
+        source.setRGB(1, 0, 0x000000FF);
+        source.setRGB(0, 1, 0x000000FF);
+        source.setRGB(1, 1, 0x000000FF);
+
+        assertEquals(0x40FF0000, downsample(source).getRGB(0, 0));
+    }
+
+    @Test
+    void oddSidesAverageThePixelsThatExist() {
+        BufferedImage source = new BufferedImage(3, 1, BufferedImage.TYPE_INT_ARGB);
+        source.setRGB(0, 0, 0xFF000000);
+        source.setRGB(1, 0, 0xFF000000);
+        source.setRGB(2, 0, 0x80402010);
+
+        assertEquals(0x80402010, downsample(source).getRGB(1, 0));
+    }
+
+    /**
+     * Halves an image in a single area.
+     */
+    private static BufferedImage downsample(BufferedImage source) {
+        BufferedImage destination = new BufferedImage((source.getWidth() + 1) / 2, (source.getHeight() + 1) / 2,
+                source.getType());
+        new DownsampleProcessor(source, destination, new Rectangle(0, 0, destination.getWidth(),
+                destination.getHeight())).run();
+        return destination;
+    }
+}
@@ -0,0 +1,127 @@
+package com.sistemasdistribuidos.thread.image.processing;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Random;
+import javax.imageio.ImageIO;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Checks that the {@link FrameSequenceProcessor} copies exactly the tiles
+ * that did not change from the previous frame, and that every result is the
+ * same as converting its frame on its own. Also checks that the sequence
+ * ends when the decoder dies.
+ *
+ * @author mariovillacortagarcia
+ */
+class FrameSequenceProcessorTest {
+
+    private static final int WIDTH = 64;
+    private static final int HEIGHT = 32;
+    private static final int SMALL_WIDTH = 32;
+    private static final int TILE_SIZE = 16;
+    private static final int PARALLELISM = 2;
+    private static final long HUGE_FILE_LENGTH = 3L << 30;
+    private static final Duration TIMEOUT = Duration.ofSeconds(30);
+    private static final long SEED = 19L;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void unchangedTilesAreCopiedAndResultsMatchTheFrames() throws IOException, InterruptedException {
+        BufferedImage first = noise(WIDTH, HEIGHT);
+        BufferedImage edited = noise(WIDTH, HEIGHT);
+        // One pixel of the second tile of the second row
+        edited.setRGB(TILE_SIZE + 3, TILE_SIZE + 5, ~edited.getRGB(TILE_SIZE + 3, TILE_SIZE + 5));
+        BufferedImage small = noise(SMALL_WIDTH, HEIGHT);
+        List<BufferedImage> frames = List.of(first, edited, edited, small, small);
+        Path input = directory.resolve("input");
+        Path output = directory.resolve("output");
+        Files.createDirectories(input);
+        for (int i = 0; i < frames.size(); i++) {
+            ImageIO.write(frames.get(i), "png", input.resolve(name(i)).toFile());
+        }
+
+        FrameSequenceProcessor processor;
+        int written;
+        try (ForkJoinTileScheduler scheduler = new ForkJoinTileScheduler(PARALLELISM, TILE_SIZE)) {
+            processor = new FrameSequenceProcessor(scheduler, null);
+            written = processor.run(input, output);
+        }
+
+        // 8 tiles per large frame and 4 per small one. The edited frame
+        // reuses all but one tile, its copy reuses all of them and the first
+        // small frame has no reference of its size
+        assertEquals(frames.size(), written);
+        assertEquals(3 * 8 + 2 * 4, processor.getTiles());
+        assertEquals(7 + 8 + 4, processor.getSkippedTiles());
+        for (int i = 0; i < frames.size(); i++) {
+            BufferedImage expected = ImageIO.read(input.resolve(name(i)).toFile());
+            new ImageProcessor(expected, new Rectangle(0, 0, expected.getWidth(), expected.getHeight()), null).run();
+            BufferedImage actual = ImageIO.read(output.resolve(name(i)).toFile());
+            assertArrayEquals(pixels(expected), pixels(actual), name(i));
+        }
+    }
+
+    @Test
+    void decoderDyingFromAnErrorStillEndsTheSequence() throws IOException {
+        Path input = Files.createDirectories(directory.resolve("input"));
+        Path output = directory.resolve("output");
+        ImageIO.write(noise(WIDTH, HEIGHT), "png", input.resolve(name(0)).toFile());
+        ImageIO.write(noise(WIDTH, HEIGHT), "png", input.resolve(name(1)).toFile());
+        // Too large to be read into an array, so the decoder dies with an
+        // OutOfMemoryError after the two frames. Sparse, so it takes no space
+        try (RandomAccessFile huge = new RandomAccessFile(input.resolve(name(2)).toFile(), "rw")) {
+            huge.setLength(HUGE_FILE_LENGTH);
+        }
+
+        int written = assertTimeoutPreemptively(TIMEOUT, () -> {
+            try (ForkJoinTileScheduler scheduler = new ForkJoinTileScheduler(PARALLELISM, TILE_SIZE)) {
+                return new FrameSequenceProcessor(scheduler, null).run(input, output);
+            }
+        });
+
+        assertEquals(2, written);
+    }
+
+    /**
+     * Gets the file name of a frame.
+     */
+    private static String name(int frame) {
+        return String.format("frame%02d.png", frame);
+    }
+
+    /**
+     * Reads every pixel of an image.
+     */
+    private static int[] pixels(BufferedImage image) {
+        return image.getRGB(0, 0, image.getWidth(), image.getHeight(), null, 0, image.getWidth());
+    }
+
+    /**
+     * Creates an image of random colors, the same for every call with the
+     * same size.
+     */
+    private static BufferedImage noise(int width, int height) {
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_3BYTE_BGR);
+        Random random = new Random(SEED);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                image.setRGB(x, y, random.nextInt());
+            }
+        }
+        return image;
+    }
+}
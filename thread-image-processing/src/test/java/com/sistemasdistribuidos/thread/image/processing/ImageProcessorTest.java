@@ -0,0 +1,120 @@
+package com.sistemasdistribuidos.thread.image.processing;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.awt.image.WritableRaster;
+import java.util.Arrays;
+import java.util.Random;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+/**
+ * Checks that the direct array paths of {@link ImageProcessor} produce
+ * exactly the samples of the baseline per-pixel conversion, which averages
+ * every band of a pixel through the raster.
+ *
+ * @author mariovillacortagarcia
+ */
+class ImageProcessorTest {
+
+    private static final int WIDTH = 67;
+    private static final int HEIGHT = 43;
+    private static final long SEED = 42L;
+
+    @ParameterizedTest
+    @ValueSource(ints = {BufferedImage.TYPE_3BYTE_BGR, BufferedImage.TYPE_4BYTE_ABGR,
+        BufferedImage.TYPE_4BYTE_ABGR_PRE, BufferedImage.TYPE_INT_RGB, BufferedImage.TYPE_INT_ARGB,
+        BufferedImage.TYPE_INT_ARGB_PRE, BufferedImage.TYPE_INT_BGR, BufferedImage.TYPE_BYTE_GRAY,
+        BufferedImage.TYPE_USHORT_GRAY})
+    void wholeImageMatchesPerPixelConversion(int type) {
+        assertMatchesPerPixel(type, new Rectangle(0, 0, WIDTH, HEIGHT));
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {BufferedImage.TYPE_3BYTE_BGR, BufferedImage.TYPE_4BYTE_ABGR,
+        BufferedImage.TYPE_4BYTE_ABGR_PRE, BufferedImage.TYPE_INT_RGB, BufferedImage.TYPE_INT_ARGB,
+        BufferedImage.TYPE_INT_ARGB_PRE, BufferedImage.TYPE_INT_BGR, BufferedImage.TYPE_BYTE_GRAY,
+        BufferedImage.TYPE_USHORT_GRAY})
+    void partialAreaMatchesPerPixelConversion(int type) {
+        assertMatchesPerPixel(type, new Rectangle(5, 3, 17, 29));
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {BufferedImage.TYPE_3BYTE_BGR, BufferedImage.TYPE_4BYTE_ABGR,
+        BufferedImage.TYPE_INT_RGB, BufferedImage.TYPE_INT_ARGB, BufferedImage.TYPE_INT_BGR,
+        BufferedImage.TYPE_BYTE_GRAY})
+    void subImageMatchesPerPixelConversion(int type) {
+        final Rectangle bounds = new Rectangle(11, 7, 31, 23);
+        final Rectangle area = new Rectangle(2, 4, 19, 13);
+        BufferedImage actual = noise(type);
+        BufferedImage expected = noise(type);
+
+        new ImageProcessor(actual.getSubimage(bounds.x, bounds.y, bounds.width, bounds.height), area).run();
+        convertPerPixel(expected.getSubimage(bounds.x, bounds.y, bounds.width, bounds.height), area);
+
+        assertArrayEquals(samples(expected), samples(actual));
+    }
+
+    /**
+     * Converts an area of a noise image with the processor and with the
+     * per-pixel conversion, and compares every sample of both images.
+     */
+    private static void assertMatchesPerPixel(int type, Rectangle area) {
+        BufferedImage actual = noise(type);
+        BufferedImage expected = noise(type);
+
+        new ImageProcessor(actual, area).run();
+        convertPerPixel(expected, area);
+
+        assertArrayEquals(samples(expected), samples(actual));
+    }
+
+    /**
+     * Baseline conversion: every band of a pixel is replaced with the
+     * average of all of them, one pixel at a time through the raster.
+     */
+    private static void convertPerPixel(BufferedImage image, Rectangle area) {
+        WritableRaster raster = image.getRaster();
+        final int[] pixel = new int[raster.getNumBands()];
+        for (int y = area.y; y < area.y + area.height; y++) {
+            for (int x = area.x; x < area.x + area.width; x++) {
+                raster.getPixel(x, y, pixel);
+                int sum = 0;
+                for (int sample : pixel) {
+                    sum += sample;
+                }
+                Arrays.fill(pixel, sum / pixel.length);
+                raster.setPixel(x, y, pixel);
+            }
+        }
+    }
+
+    /**
+     * Creates an image of random samples, the same for every call with the
+     * same type.
+     */
+    private static BufferedImage noise(int type) {
+        BufferedImage image = new BufferedImage(WIDTH, HEIGHT, type);
+        WritableRaster raster = image.getRaster();
+        Random random = new Random(SEED);
+        final int[] pixel = new int[raster.getNumBands()];
+        for (int y = 0; y < HEIGHT; y++) {
+            for (int x = 0; x < WIDTH; x++) {
+                for (int band = 0; band < pixel.length; band++) {
+                    pixel[band] = random.nextInt(1 << raster.getSampleModel().getSampleSize(band));
+                }
+                raster.setPixel(x, y, pixel);
+            }
+        }
+        return image;
+    }
+
+    /**
+     * Reads every sample of an image.
+     */
+    private static int[] samples(BufferedImage image) {
+        return image.getRaster().getPixels(0, 0, image.getWidth(), image.getHeight(), (int[]) null);
+    }
+}
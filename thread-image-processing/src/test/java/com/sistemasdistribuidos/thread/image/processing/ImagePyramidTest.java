@@ -0,0 +1,102 @@
+package com.sistemasdistribuidos.thread.image.processing;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+
+import java.awt.image.BufferedImage;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Checks the levels built by {@link ImagePyramid} and that a failure of the
+ * builder or of the consumer always ends the build and its consumer thread.
+ *
+ * @author mariovillacortagarcia
+ */
+class ImagePyramidTest {
+
+    private static final Duration TIMEOUT = Duration.ofSeconds(10);
+    private static final String CONSUMER_THREAD = "pyramid-consumer";
+
+    private ForkJoinTileScheduler scheduler;
+
+    @BeforeEach
+    void setUp() {
+        scheduler = new ForkJoinTileScheduler(2, 16);
+    }
+
+    @AfterEach
+    void tearDown() {
+        scheduler.close();
+    }
+
+    @Test
+    void levelsHalveUntilTheMinimumSide() throws Exception {
+        List<Integer> widths = new ArrayList<>();
+        int levels = new ImagePyramid(scheduler).build(image(100, 60), 10,
+                (level, image) -> widths.add(image.getWidth()));
+
+        assertEquals(4, levels);
+        assertEquals(List.of(50, 25, 13, 7), widths);
+    }
+
+    @Test
+    void errorOfTheConsumerIsRethrown() {
+        final Error failure = new OutOfMemoryError("consumer");
+        Error thrown = assertTimeoutPreemptively(TIMEOUT, () -> assertThrows(Error.class,
+                () -> new ImagePyramid(scheduler).build(image(512, 512), 4, (level, image) -> {
+                    throw failure;
+                })));
+
+        assertSame(failure, thrown);
+    }
+
+    @Test
+    void failureOfALevelStopsTheConsumer() throws InterruptedException {
+        ImagePyramid pyramid = new ImagePyramid(scheduler) {
+            private int calls;
+
+            @Override
+            BufferedImage downsample(BufferedImage source) {
+                if (++calls == 2) {
+                    throw new IllegalStateException("level");
+                }
+                return super.downsample(source);
+            }
+        };
+
+        assertTimeoutPreemptively(TIMEOUT, () -> assertThrows(IllegalStateException.class,
+                () -> pyramid.build(image(256, 256), 4, (level, image) -> { })));
+        for (Thread thread : consumerThreads()) {
+            thread.join(TIMEOUT.toMillis());
+            assertFalse(thread.isAlive());
+        }
+    }
+
+    /**
+     * Finds the consumer threads still running.
+     */
+    private static List<Thread> consumerThreads() {
+        List<Thread> threads = new ArrayList<>();
+        for (Thread thread : Thread.getAllStackTraces().keySet()) {
+            if (thread.getName().equals(CONSUMER_THREAD)) {
+                threads.add(thread);
+            }
+        }
+        return threads;
+    }
+
+    /**
+     * Creates an opaque image of the given size.
+     */
+    private static BufferedImage image(int width, int height) {
+        return new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+    }
+}
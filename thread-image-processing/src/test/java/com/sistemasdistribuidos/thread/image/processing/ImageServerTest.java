@@ -0,0 +1,117 @@
+package com.sistemasdistribuidos.thread.image.processing;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.time.Duration;
+import javax.imageio.ImageIO;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Runs an {@link ImageServer} on an ephemeral port with a single job thread
+ * and no queue, and talks to it with {@link ImageServiceClient}.
+ *
+ * @author mariovillacortagarcia
+ */
+class ImageServerTest {
+
+    private static final Duration TIMEOUT = Duration.ofSeconds(30);
+    private static final int MAX_FRAME_LENGTH = 1 << 20;
+    private static final int LARGE_REQUEST = 900_000;
+
+    private ForkJoinTileScheduler scheduler;
+    private ImageServer server;
+    private Thread serverThread;
+    private InetSocketAddress address;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        scheduler = new ForkJoinTileScheduler(1, 64);
+        server = new ImageServer(0, scheduler, 1, 0, MAX_FRAME_LENGTH, MAX_FRAME_LENGTH);
+        serverThread = new Thread(() -> {
+            try {
+                server.run();
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        serverThread.start();
+        address = new InetSocketAddress("localhost", server.getPort());
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        server.close();
+        serverThread.join();
+        scheduler.close();
+    }
+
+    @Test
+    void requestIsProcessed() {
+        assertTimeoutPreemptively(TIMEOUT, () -> {
+            try (ImageServiceClient client = new ImageServiceClient(address)) {
+                BufferedImage result = ImageIO.read(new ByteArrayInputStream(client.process(png(0xFF204060),
+                        "average")));
+                assertEquals(0xFF404040, result.getRGB(1, 1));
+            }
+        });
+    }
+
+    @Test
+    void unreadableImageIsAnsweredWithAnError() {
+        assertTimeoutPreemptively(TIMEOUT, () -> {
+            try (ImageServiceClient client = new ImageServiceClient(address)) {
+                assertThrows(IOException.class, () -> client.process(new byte[16], "average"));
+                // The connection is still in sync for the next request
+                client.process(png(0xFF000000), "average");
+            }
+        });
+    }
+
+    @Test
+    void requestOverTheBudgetIsRejectedAndTheConnectionKept() {
+        assertTimeoutPreemptively(TIMEOUT, () -> {
+            try (Socket pending = new Socket(address.getHostString(), address.getPort());
+                    ImageServiceClient client = new ImageServiceClient(address)) {
+                // A large request that never completes holds most of the budget
+                DataOutputStream out = new DataOutputStream(pending.getOutputStream());
+                out.writeInt(LARGE_REQUEST);
+                out.flush();
+                Thread.sleep(200);
+                byte[] large = new byte[LARGE_REQUEST / 2];
+                assertThrows(ImageServiceClient.ServerBusyException.class, () -> client.process(large, "average"));
+                assertEquals(1, server.getRejected());
+
+                pending.close();
+                Thread.sleep(200);
+                client.process(png(0xFF000000), "average");
+                assertEquals(1, server.getServed());
+            }
+        });
+    }
+
+    /**
+     * Encodes a small image of a single color as PNG.
+     */
+    private static byte[] png(int argb) throws IOException {
+        BufferedImage image = new BufferedImage(4, 4, BufferedImage.TYPE_INT_RGB);
+        for (int y = 0; y < image.getHeight(); y++) {
+            for (int x = 0; x < image.getWidth(); x++) {
+                image.setRGB(x, y, argb);
+            }
+        }
+        ByteArrayOutputStream encoded = new ByteArrayOutputStream();
+        ImageIO.write(image, "png", encoded);
+        return encoded.toByteArray();
+    }
+}
@@ -0,0 +1,168 @@
+package com.sistemasdistribuidos.thread.image.processing;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.awt.image.BufferedImage;
+import java.util.Arrays;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+/**
+ * Checks the percentiles of {@link ImageHistogram} against sorted levels, the
+ * parallel histogram of {@link ImageStatistics} against a sequential count,
+ * and the mappings of the auto-contrast and equalisation filters.
+ *
+ * @author mariovillacortagarcia
+ */
+class ImageStatisticsTest {
+
+    private static final int WIDTH = 45;
+    private static final int HEIGHT = 31;
+    private static final int TILE_SIZE = 8;
+    private static final int PARALLELISM = 3;
+    private static final int MAX_LEVEL = 255;
+    private static final long SEED = 3L;
+
+    @ParameterizedTest
+    @ValueSource(doubles = {0, 0.001, 0.01, 0.25, 0.5, 0.7, 0.99, 1})
+    void percentileMatchesTheSortedLevels(double fraction) {
+        Random random = new Random(SEED);
+        int[] levels = new int[WIDTH * HEIGHT];
+        ImageHistogram histogram = new ImageHistogram();
+        for (int i = 0; i < levels.length; i++) {
+            // Skewed towards the dark levels, with gaps in the bright ones
+            levels[i] = (int) (MAX_LEVEL * Math.pow(random.nextDouble(), 3));
+            histogram.add(levels[i] << 16);
+        }
+        Arrays.sort(levels);
+        final int rank = Math.max(1, (int) Math.ceil(fraction * levels.length));
+
+        assertEquals(levels[rank - 1], histogram.getPercentile(ImageHistogram.RED, fraction));
+    }
+
+    @Test
+    void percentileRejectsFractionsOutOfRange() {
+        ImageHistogram histogram = new ImageHistogram();
+
+        assertThrows(IllegalArgumentException.class, () -> histogram.getPercentile(ImageHistogram.RED, -0.1));
+        assertThrows(IllegalArgumentException.class, () -> histogram.getPercentile(ImageHistogram.RED, 1.1));
+        assertEquals(0, histogram.getPercentile(ImageHistogram.RED, 0.5));
+    }
+
+    @Test
+    void parallelHistogramMatchesASequentialCount() {
+        BufferedImage image = noise();
+        ImageHistogram expected = new ImageHistogram();
+        for (int pixel : image.getRGB(0, 0, WIDTH, HEIGHT, null, 0, WIDTH)) {
+            expected.add(pixel);
+        }
+
+        ImageHistogram actual;
+        try (ForkJoinTileScheduler scheduler = new ForkJoinTileScheduler(PARALLELISM, TILE_SIZE)) {
+            actual = ImageStatistics.computeHistogram(scheduler, image);
+        }
+
+        assertEquals(expected.getPixelCount(), actual.getPixelCount());
+        for (int channel = 0; channel < ImageHistogram.CHANNELS; channel++) {
+            for (int level = 0; level <= MAX_LEVEL; level++) {
+                assertEquals(expected.getCount(channel, level), actual.getCount(channel, level),
+                        "channel " + channel + " level " + level);
+            }
+        }
+    }
+
+    @Test
+    void autoContrastStretchesThePercentilesToTheFullRange() {
+        // Red spans 50 to 150, with one dark and one bright outlier out of 103
+        ImageHistogram histogram = new ImageHistogram();
+        for (int level = 50; level <= 150; level++) {
+            histogram.add(level << 16);
+        }
+        histogram.add(0);
+        histogram.add(MAX_LEVEL << 16);
+
+        LookupFilter stretch = ImageStatistics.autoContrast(histogram, 0.01);
+        LookupFilter identity = ImageStatistics.autoContrast(histogram, 0);
+
+        assertEquals(0, red(stretch.apply(50 << 16)));
+        assertEquals(128, red(stretch.apply(100 << 16)));
+        assertEquals(MAX_LEVEL, red(stretch.apply(150 << 16)));
+        assertEquals(0, red(stretch.apply(0)), "the dark outlier is clipped");
+        assertEquals(MAX_LEVEL, red(stretch.apply(MAX_LEVEL << 16)), "the bright outlier is clipped");
+        assertEquals(100, red(identity.apply(100 << 16)), "the full range is already stretched");
+        assertEquals(0x7B, stretch.apply(0x7B) & MAX_LEVEL, "a constant channel is left as it is");
+        assertThrows(IllegalArgumentException.class, () -> ImageStatistics.autoContrast(histogram, 0.5));
+    }
+
+    @Test
+    void equalizeMapsEveryLevelToItsCumulativeFrequency() {
+        // Red has one pixel at 10, one at 20 and two at 30
+        ImageHistogram histogram = new ImageHistogram();
+        for (int level : new int[] {10, 20, 30, 30}) {
+            histogram.add(0xFF000000 | level << 16 | 0x40);
+        }
+
+        LookupFilter equalize = ImageStatistics.equalize(histogram);
+
+        assertEquals(0, red(equalize.apply(10 << 16)));
+        assertEquals(85, red(equalize.apply(20 << 16)));
+        assertEquals(MAX_LEVEL, red(equalize.apply(30 << 16)));
+        assertEquals(0, red(equalize.apply(5 << 16)), "levels below the minimum go to black");
+        assertEquals(0x40, equalize.apply(0x40) & MAX_LEVEL, "a constant channel is left as it is");
+        assertEquals(0xFF000000, equalize.apply(0xFF000000 | 10 << 16) & 0xFF000000, "alpha is left as it is");
+    }
+
+    @Test
+    void equalizedNoiseIsSpreadOverTheFullRange() {
+        BufferedImage image = noise();
+        ImageHistogram histogram = new ImageHistogram();
+        for (int pixel : image.getRGB(0, 0, WIDTH, HEIGHT, null, 0, WIDTH)) {
+            histogram.add(pixel);
+        }
+
+        LookupFilter equalize = ImageStatistics.equalize(histogram);
+        ImageHistogram equalized = new ImageHistogram();
+        for (int pixel : image.getRGB(0, 0, WIDTH, HEIGHT, null, 0, WIDTH)) {
+            equalized.add(equalize.apply(pixel));
+        }
+
+        for (int channel = 0; channel < ImageHistogram.CHANNELS; channel++) {
+            assertEquals(0, equalized.getMin(channel));
+            assertEquals(MAX_LEVEL, equalized.getMax(channel));
+            // Every quarter of the range holds about a quarter of the pixels
+            for (int quarter = 1; quarter < 4; quarter++) {
+                final double below = (double) equalized.getCumulative(channel)[quarter * 64 - 1] / WIDTH / HEIGHT;
+                assertEquals(quarter / 4.0, below, 0.05, "channel " + channel + " quarter " + quarter);
+            }
+        }
+    }
+
+    /**
+     * Extracts the red level of a pixel.
+     */
+    private static int red(int argb) {
+        return (argb >> 16) & MAX_LEVEL;
+    }
+
+    /**
+     * Creates an image of random colors, skewed towards the dark levels so
+     * the equalisation has something to spread.
+     */
+    private static BufferedImage noise() {
+        BufferedImage image = new BufferedImage(WIDTH, HEIGHT, BufferedImage.TYPE_INT_RGB);
+        Random random = new Random(SEED);
+        for (int y = 0; y < HEIGHT; y++) {
+            for (int x = 0; x < WIDTH; x++) {
+                int pixel = 0;
+                for (int channel = 0; channel < ImageHistogram.CHANNELS; channel++) {
+                    pixel = pixel << 8 | (int) (MAX_LEVEL * Math.pow(random.nextDouble(), 2));
+                }
+                image.setRGB(x, y, pixel);
+            }
+        }
+        return image;
+    }
+}
@@ -0,0 +1,160 @@
+package com.sistemasdistribuidos.thread.image.processing;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Checks which tiles the {@link IncrementalProcessor} reprocesses: dirty
+ * areas grown by the halo and clipped to the image, tiles clipped at the
+ * right and bottom edges, and an output that matches a full pass.
+ *
+ * @author mariovillacortagarcia
+ */
+class IncrementalProcessorTest {
+
+    /**
+     * Size of an image that is not a whole number of tiles, so the last
+     * column and row of tiles are clipped.
+     */
+    private static final int WIDTH = 43;
+    private static final int HEIGHT = 35;
+    private static final int TILE_SIZE = 8;
+    private static final int PARALLELISM = 2;
+    private static final int TILES = 6 * 5;
+    private static final long SEED = 17L;
+
+    @Test
+    void firstUpdateProcessesEveryTile() {
+        Set<Rectangle> processed = ConcurrentHashMap.newKeySet();
+        try (ForkJoinTileScheduler scheduler = new ForkJoinTileScheduler(PARALLELISM, TILE_SIZE)) {
+            IncrementalProcessor processor = recording(scheduler, 0, processed);
+
+            assertEquals(TILES, processor.getDirtyTiles());
+            assertEquals(TILES, processor.update());
+            assertEquals(0, processor.getDirtyTiles());
+            assertEquals(0, processor.update());
+        }
+        assertEquals(TILES, processed.size());
+        assertEquals(WIDTH * HEIGHT, processed.stream().mapToInt(tile -> tile.width * tile.height).sum());
+    }
+
+    @Test
+    void dirtyAreasGrowByTheHalo() {
+        Set<Rectangle> processed = ConcurrentHashMap.newKeySet();
+        try (ForkJoinTileScheduler scheduler = new ForkJoinTileScheduler(PARALLELISM, TILE_SIZE)) {
+            IncrementalProcessor exact = recording(scheduler, 0, processed);
+            IncrementalProcessor grown = recording(scheduler, 3, processed);
+            exact.update();
+            grown.update();
+            processed.clear();
+
+            exact.markDirty(new Rectangle(9, 9, 2, 2));
+            assertEquals(1, exact.update());
+            assertEquals(Set.of(new Rectangle(8, 8, 8, 8)), processed);
+
+            processed.clear();
+            grown.markDirty(new Rectangle(9, 9, 2, 2));
+            assertEquals(4, grown.update());
+            assertEquals(Set.of(new Rectangle(0, 0, 8, 8), new Rectangle(8, 0, 8, 8), new Rectangle(0, 8, 8, 8),
+                    new Rectangle(8, 8, 8, 8)), processed);
+        }
+    }
+
+    @Test
+    void dirtyAreasAreClippedToTheImage() {
+        Set<Rectangle> processed = ConcurrentHashMap.newKeySet();
+        try (ForkJoinTileScheduler scheduler = new ForkJoinTileScheduler(PARALLELISM, TILE_SIZE)) {
+            IncrementalProcessor processor = recording(scheduler, 2, processed);
+            processor.update();
+            processed.clear();
+
+            processor.markDirty(new Rectangle(WIDTH - 1, HEIGHT - 1, 10, 10));
+            assertEquals(Set.of(new Rectangle(40, 32, 3, 3)), Set.copyOf(updated(processor, processed)));
+
+            processor.markDirty(new Rectangle(-10, -10, 9, 9));
+            assertEquals(List.of(new Rectangle(0, 0, 8, 8)), updated(processor, processed));
+
+            processor.markDirty(new Rectangle(-10, -10, 7, 7));
+            processor.markDirty(new Rectangle(WIDTH + 2, 0, 5, HEIGHT));
+            assertEquals(0, processor.getDirtyTiles());
+        }
+    }
+
+    @Test
+    void updatedOutputMatchesAFullPass() {
+        BufferedImage source = noise();
+        BufferedImage output = new BufferedImage(WIDTH, HEIGHT, source.getType());
+        try (ForkJoinTileScheduler scheduler = new ForkJoinTileScheduler(PARALLELISM, TILE_SIZE)) {
+            IncrementalProcessor processor = IncrementalProcessor.grayscale(scheduler, source, output, null);
+            processor.update();
+
+            Rectangle edit = new Rectangle(12, 22, 9, 4);
+            for (int y = edit.y; y < edit.y + edit.height; y++) {
+                for (int x = edit.x; x < edit.x + edit.width; x++) {
+                    source.setRGB(x, y, 0xFF2080F0);
+                }
+            }
+            processor.markDirty(edit);
+            assertEquals(4, processor.update());
+        }
+
+        BufferedImage expected = new BufferedImage(WIDTH, HEIGHT, source.getType());
+        expected.setData(source.getRaster());
+        new ImageProcessor(expected, new Rectangle(0, 0, WIDTH, HEIGHT), null).run();
+
+        assertArrayEquals(expected.getRGB(0, 0, WIDTH, HEIGHT, null, 0, WIDTH),
+                output.getRGB(0, 0, WIDTH, HEIGHT, null, 0, WIDTH));
+    }
+
+    @Test
+    void failedUpdateLeavesItsTilesDirty() {
+        try (ForkJoinTileScheduler scheduler = new ForkJoinTileScheduler(PARALLELISM, TILE_SIZE)) {
+            IncrementalProcessor processor = new IncrementalProcessor(scheduler, WIDTH, HEIGHT, 0, area -> () -> {
+                throw new IllegalStateException("Tile failed");
+            });
+
+            assertThrows(IllegalStateException.class, processor::update);
+            assertEquals(TILES, processor.getDirtyTiles());
+        }
+    }
+
+    /**
+     * Creates a processor that records the tiles it processes.
+     */
+    private static IncrementalProcessor recording(ForkJoinTileScheduler scheduler, int halo,
+            Set<Rectangle> processed) {
+        return new IncrementalProcessor(scheduler, WIDTH, HEIGHT, halo, area -> () -> processed.add(area));
+    }
+
+    /**
+     * Runs an update and returns the tiles it processed.
+     */
+    private static List<Rectangle> updated(IncrementalProcessor processor, Set<Rectangle> processed) {
+        processed.clear();
+        processor.update();
+        return List.copyOf(processed);
+    }
+
+    /**
+     * Creates an image of random colors.
+     */
+    private static BufferedImage noise() {
+        BufferedImage image = new BufferedImage(WIDTH, HEIGHT, BufferedImage.TYPE_INT_RGB);
+        Random random = new Random(SEED);
+        for (int y = 0; y < HEIGHT; y++) {
+            for (int x = 0; x < WIDTH; x++) {
+                image.setRGB(x, y, random.nextInt());
+            }
+        }
+        return image;
+    }
+}
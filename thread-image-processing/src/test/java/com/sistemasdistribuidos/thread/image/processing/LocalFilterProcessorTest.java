@@ -0,0 +1,152 @@
+package com.sistemasdistribuidos.thread.image.processing;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+
+import java.awt.image.BufferedImage;
+import java.util.Random;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+/**
+ * Checks every {@link LocalFilter} computed from an {@link IntegralImage}
+ * against sums taken pixel by pixel over each window, for every radius from
+ * zero to well past the size of the image and with square tiles, full width
+ * strips and tall tiles.
+ *
+ * @author mariovillacortagarcia
+ */
+class LocalFilterProcessorTest {
+
+    private static final int WIDTH = 23;
+    private static final int HEIGHT = 19;
+    private static final int MAX_RADIUS = 60;
+    private static final double SENSITIVITY = 0.2;
+    private static final int MAX_LEVEL = 255;
+    private static final int PARALLELISM = 2;
+    private static final long SEED = 5L;
+
+    /**
+     * Tile shapes, as width and height: square tiles, full width strips and
+     * tall tiles.
+     */
+    private static final int[][] TILE_SHAPES = {{8, 8}, {Integer.MAX_VALUE, 4}, {3, Integer.MAX_VALUE}};
+
+    @ParameterizedTest
+    @EnumSource(LocalFilter.class)
+    void everyRadiusMatchesTheWindowSums(LocalFilter filter) {
+        BufferedImage source = noise();
+        int[][] samples = filter.isColor() ? colors(source) : luminance(source);
+
+        for (int[] shape : TILE_SHAPES) {
+            try (ForkJoinTileScheduler scheduler = new ForkJoinTileScheduler(PARALLELISM, shape[0], shape[1])) {
+                IntegralImage integral = filter.isColor()
+                        ? IntegralImage.ofColor(scheduler, source)
+                        : IntegralImage.ofLuminance(scheduler, source, null);
+                for (int radius = 0; radius <= MAX_RADIUS; radius++) {
+                    final int r = radius;
+                    BufferedImage destination = new BufferedImage(WIDTH, HEIGHT, BufferedImage.TYPE_INT_ARGB);
+                    scheduler.process(destination,
+                            area -> new LocalFilterProcessor(integral, destination, area, filter, r, SENSITIVITY));
+
+                    assertArrayEquals(expected(filter, samples, radius),
+                            destination.getRGB(0, 0, WIDTH, HEIGHT, null, 0, WIDTH),
+                            filter.getValue() + " with radius " + radius + " on " + shape[0] + "x" + shape[1]
+                                    + " tiles");
+                }
+            }
+        }
+    }
+
+    /**
+     * Applies a filter summing every window pixel by pixel.
+     *
+     * @param samples the red, green, blue and alpha of every pixel for the
+     *                color filters, or its luminance for the others
+     */
+    private static int[] expected(LocalFilter filter, int[][] samples, int radius) {
+        int[] pixels = new int[WIDTH * HEIGHT];
+        for (int y = 0; y < HEIGHT; y++) {
+            for (int x = 0; x < WIDTH; x++) {
+                final long[] sums = new long[samples.length];
+                long squares = 0;
+                int count = 0;
+                for (int v = Math.max(0, y - radius); v < Math.min(HEIGHT, y + radius + 1); v++) {
+                    for (int u = Math.max(0, x - radius); u < Math.min(WIDTH, x + radius + 1); u++) {
+                        for (int channel = 0; channel < samples.length; channel++) {
+                            sums[channel] += samples[channel][v * WIDTH + u];
+                        }
+                        squares += (long) samples[0][v * WIDTH + u] * samples[0][v * WIDTH + u];
+                        count++;
+                    }
+                }
+                final double mean = (double) sums[0] / count;
+                final double variance = Math.max(0, (double) squares / count - mean * mean);
+                pixels[y * WIDTH + x] = switch (filter) {
+                    case BOX_BLUR -> mean(sums[3], count) << 24 | mean(sums[0], count) << 16
+                            | mean(sums[1], count) << 8 | mean(sums[2], count);
+                    case MEAN -> gray(mean(sums[0], count));
+                    case VARIANCE -> gray(Math.min(MAX_LEVEL, (int) Math.round(2 * Math.sqrt(variance))));
+                    case THRESHOLD -> gray(samples[0][y * WIDTH + x]
+                            > mean * (1 + SENSITIVITY * (Math.sqrt(variance) / 128 - 1)) ? MAX_LEVEL : 0);
+                };
+            }
+        }
+        return pixels;
+    }
+
+    /**
+     * Computes the rounded mean of a sum.
+     */
+    private static int mean(long sum, int count) {
+        return (int) ((sum + count / 2) / count);
+    }
+
+    /**
+     * Packs a level as an opaque gray pixel.
+     */
+    private static int gray(int level) {
+        return 0xFF000000 | level * 0x010101;
+    }
+
+    /**
+     * Splits the pixels of an image into red, green, blue and alpha.
+     */
+    private static int[][] colors(BufferedImage image) {
+        int[] pixels = image.getRGB(0, 0, WIDTH, HEIGHT, null, 0, WIDTH);
+        int[][] channels = new int[4][pixels.length];
+        for (int i = 0; i < pixels.length; i++) {
+            channels[0][i] = (pixels[i] >> 16) & MAX_LEVEL;
+            channels[1][i] = (pixels[i] >> 8) & MAX_LEVEL;
+            channels[2][i] = pixels[i] & MAX_LEVEL;
+            channels[3][i] = pixels[i] >>> 24;
+        }
+        return channels;
+    }
+
+    /**
+     * Computes the luminance of every pixel of an image as the average of
+     * its colors.
+     */
+    private static int[][] luminance(BufferedImage image) {
+        int[] pixels = image.getRGB(0, 0, WIDTH, HEIGHT, null, 0, WIDTH);
+        int[] gray = new int[pixels.length];
+        for (int i = 0; i < pixels.length; i++) {
+            gray[i] = (((pixels[i] >> 16) & MAX_LEVEL) + ((pixels[i] >> 8) & MAX_LEVEL) + (pixels[i] & MAX_LEVEL)) / 3;
+        }
+        return new int[][] {gray};
+    }
+
+    /**
+     * Creates an image of random translucent colors.
+     */
+    private static BufferedImage noise() {
+        BufferedImage image = new BufferedImage(WIDTH, HEIGHT, BufferedImage.TYPE_INT_ARGB);
+        Random random = new Random(SEED);
+        for (int y = 0; y < HEIGHT; y++) {
+            for (int x = 0; x < WIDTH; x++) {
+                image.setRGB(x, y, random.nextInt());
+            }
+        }
+        return image;
+    }
+}
@@ -0,0 +1,58 @@
+package com.sistemasdistribuidos.thread.image.processing;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.util.Random;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+/**
+ * Checks that the {@link OffHeapImageProcessor} converts an off-heap copy of
+ * an image exactly like the {@link ImageProcessor} converts the image, with
+ * every grayscale conversion and with and without alpha.
+ *
+ * @author mariovillacortagarcia
+ */
+class OffHeapImageProcessorTest {
+
+    private static final int WIDTH = 37;
+    private static final int HEIGHT = 29;
+    private static final int TILE_SIZE = 8;
+    private static final int PARALLELISM = 2;
+    private static final long SEED = 29L;
+
+    @ParameterizedTest
+    @ValueSource(strings = {"average", "rec601", "rec709"})
+    void offHeapMatchesTheHeapProcessor(String conversion) {
+        final LuminanceWeights weights = LuminanceWeights.fromName(conversion);
+        for (int type : new int[] {BufferedImage.TYPE_INT_RGB, BufferedImage.TYPE_INT_ARGB}) {
+            BufferedImage expected = noise(type);
+            BufferedImage actual;
+            try (ForkJoinTileScheduler scheduler = new ForkJoinTileScheduler(PARALLELISM, TILE_SIZE);
+                    OffHeapRaster raster = OffHeapRaster.fromImage(expected)) {
+                scheduler.process(WIDTH, HEIGHT, area -> new OffHeapImageProcessor(raster, area, weights));
+                actual = raster.toImage();
+            }
+            new ImageProcessor(expected, new Rectangle(0, 0, WIDTH, HEIGHT), weights).run();
+
+            assertArrayEquals(expected.getRGB(0, 0, WIDTH, HEIGHT, null, 0, WIDTH),
+                    actual.getRGB(0, 0, WIDTH, HEIGHT, null, 0, WIDTH), conversion + " of type " + type);
+        }
+    }
+
+    /**
+     * Creates an image of random colors.
+     */
+    private static BufferedImage noise(int type) {
+        BufferedImage image = new BufferedImage(WIDTH, HEIGHT, type);
+        Random random = new Random(SEED);
+        for (int y = 0; y < HEIGHT; y++) {
+            for (int x = 0; x < WIDTH; x++) {
+                image.setRGB(x, y, random.nextInt());
+            }
+        }
+        return image;
+    }
+}
@@ -0,0 +1,136 @@
+package com.sistemasdistribuidos.thread.image.processing;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.awt.Point;
+import java.awt.Rectangle;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+import org.junit.jupiter.params.provider.ValueSource;
+
+/**
+ * Checks that every {@link PartitionStrategy} covers the image exactly, and
+ * that the Hilbert order is a walk of unit steps along the curve, compared
+ * with an independent decoding of the curve.
+ *
+ * @author mariovillacortagarcia
+ */
+class PartitionStrategyTest {
+
+    /**
+     * Image sizes and partition sizes: whole numbers of tiles, clipped last
+     * rows and columns, a size larger than the image and single pixels.
+     */
+    private static final int[][] CASES = {{64, 64, 16}, {100, 37, 16}, {37, 100, 7}, {10, 10, 32}, {1, 1, 1},
+        {5, 3, 1}, {130, 2, 3}};
+
+    @ParameterizedTest
+    @EnumSource(PartitionStrategy.class)
+    void areasCoverTheImageExactly(PartitionStrategy strategy) {
+        for (int[] size : CASES) {
+            final int width = size[0];
+            final int height = size[1];
+            final String where = strategy.getValue() + " of " + width + "x" + height + " by " + size[2];
+            int[] covered = new int[width * height];
+            for (Rectangle area : strategy.partition(width, height, size[2])) {
+                assertTrue(!area.isEmpty() && new Rectangle(0, 0, width, height).contains(area), where + ": " + area);
+                for (int y = area.y; y < area.y + area.height; y++) {
+                    for (int x = area.x; x < area.x + area.width; x++) {
+                        covered[y * width + x]++;
+                    }
+                }
+            }
+            for (int i = 0; i < covered.length; i++) {
+                assertEquals(1, covered[i], where + " at " + i % width + "," + i / width);
+            }
+        }
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {1, 2, 4, 8, 16})
+    void hilbertOrderOfASquareGridIsTheCurve(int side) {
+        final int size = 3;
+        List<Point> tiles = columnsAndRows(PartitionStrategy.HILBERT.partition(side * size, side * size, size), size);
+
+        for (int d = 0; d < tiles.size(); d++) {
+            assertEquals(curvePoint(side, d), tiles.get(d), "position " + d);
+            if (d > 0) {
+                assertEquals(1, distance(tiles.get(d - 1), tiles.get(d)), "step to " + d);
+            }
+        }
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {3, 5, 6, 7})
+    void hilbertOrderOfOtherGridsFollowsTheEnclosingCurve(int columns) {
+        final int rows = 3;
+        final int size = 4;
+        List<Point> tiles = columnsAndRows(PartitionStrategy.HILBERT.partition(columns * size - 1, rows * size, size),
+                size);
+        // Curve of the smallest square grid of a power of two that holds them
+        int side = 1;
+        while (side < Math.max(columns, rows)) {
+            side *= 2;
+        }
+        List<Point> expected = new ArrayList<>();
+        for (int d = 0; d < side * side; d++) {
+            Point point = curvePoint(side, d);
+            if (point.x < columns && point.y < rows) {
+                expected.add(point);
+            }
+        }
+
+        assertEquals(expected, tiles);
+    }
+
+    @ParameterizedTest
+    @EnumSource(PartitionStrategy.class)
+    void sizeMustBePositive(PartitionStrategy strategy) {
+        assertThrows(IllegalArgumentException.class, () -> strategy.partition(10, 10, 0));
+        assertEquals(strategy, PartitionStrategy.fromValue(strategy.getValue()));
+    }
+
+    /**
+     * Converts tiles to their column and row in the grid.
+     */
+    private static List<Point> columnsAndRows(List<Rectangle> tiles, int size) {
+        return tiles.stream().map(tile -> new Point(tile.x / size, tile.y / size)).toList();
+    }
+
+    /**
+     * Computes the Manhattan distance between two tiles.
+     */
+    private static int distance(Point a, Point b) {
+        return Math.abs(a.x - b.x) + Math.abs(a.y - b.y);
+    }
+
+    /**
+     * Decodes a position along the Hilbert curve of a square grid into its
+     * column and row, climbing from the smallest quadrants to the largest.
+     */
+    private static Point curvePoint(int side, int d) {
+        int x = 0;
+        int y = 0;
+        for (int s = 1; s < side; s *= 2) {
+            final int right = 1 & (d / 2);
+            final int bottom = 1 & (d ^ right);
+            if (bottom == 0) {
+                if (right == 1) {
+                    x = s - 1 - x;
+                    y = s - 1 - y;
+                }
+                final int swap = x;
+                x = y;
+                y = swap;
+            }
+            x += s * right;
+            y += s * bottom;
+            d /= 4;
+        }
+        return new Point(x, y);
+    }
+}
@@ -0,0 +1,110 @@
+package com.sistemasdistribuidos.thread.image.processing;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+/**
+ * Checks the {@link RankFilterProcessor} against the percentiles of the
+ * sorted levels of every window, with the edge pixels repeated outside the
+ * image.
+ *
+ * @author mariovillacortagarcia
+ */
+class RankFilterProcessorTest {
+
+    private static final int WIDTH = 29;
+    private static final int HEIGHT = 23;
+    private static final int STRIP_HEIGHT = 5;
+    private static final int PARALLELISM = 2;
+    private static final int MAX_LEVEL = 255;
+    private static final long SEED = 13L;
+
+    static Stream<Arguments> windows() {
+        Stream.Builder<Arguments> arguments = Stream.builder();
+        for (int radius : new int[] {0, 1, 2, 7, 20}) {
+            for (double percentile : new double[] {0, 10, 50, 75, 100}) {
+                arguments.add(Arguments.of(radius, percentile));
+            }
+        }
+        return arguments.build();
+    }
+
+    @ParameterizedTest
+    @MethodSource("windows")
+    void stripsMatchTheSortedWindows(int radius, double percentile) {
+        BufferedImage source = noise();
+        BufferedImage destination = new BufferedImage(WIDTH, HEIGHT, BufferedImage.TYPE_INT_ARGB);
+
+        try (ForkJoinTileScheduler scheduler
+                = new ForkJoinTileScheduler(PARALLELISM, Integer.MAX_VALUE, STRIP_HEIGHT)) {
+            scheduler.process(destination,
+                    area -> new RankFilterProcessor(source, destination, area, radius, percentile));
+        }
+
+        assertArrayEquals(expected(source, radius, percentile),
+                destination.getRGB(0, 0, WIDTH, HEIGHT, null, 0, WIDTH));
+    }
+
+    @Test
+    void radiusZeroCopiesTheImage() {
+        BufferedImage source = noise();
+        BufferedImage destination = new BufferedImage(WIDTH, HEIGHT, BufferedImage.TYPE_INT_ARGB);
+
+        new RankFilterProcessor(source, destination, new Rectangle(0, 0, WIDTH, HEIGHT), 0, 50).run();
+
+        assertArrayEquals(source.getRGB(0, 0, WIDTH, HEIGHT, null, 0, WIDTH),
+                destination.getRGB(0, 0, WIDTH, HEIGHT, null, 0, WIDTH));
+    }
+
+    /**
+     * Filters an image sorting the levels of every window, channel by
+     * channel, and copying alpha.
+     */
+    private static int[] expected(BufferedImage source, int radius, double percentile) {
+        final int diameter = 2 * radius + 1;
+        final int rank = (int) Math.round(percentile / 100 * (diameter * diameter - 1));
+        int[] pixels = new int[WIDTH * HEIGHT];
+        int[] levels = new int[diameter * diameter];
+        for (int y = 0; y < HEIGHT; y++) {
+            for (int x = 0; x < WIDTH; x++) {
+                int pixel = source.getRGB(x, y) & 0xFF000000;
+                for (int shift = 16; shift >= 0; shift -= 8) {
+                    int i = 0;
+                    for (int v = y - radius; v <= y + radius; v++) {
+                        for (int u = x - radius; u <= x + radius; u++) {
+                            final int edge = source.getRGB(Math.clamp(u, 0, WIDTH - 1), Math.clamp(v, 0, HEIGHT - 1));
+                            levels[i++] = (edge >> shift) & MAX_LEVEL;
+                        }
+                    }
+                    Arrays.sort(levels);
+                    pixel |= levels[rank] << shift;
+                }
+                pixels[y * WIDTH + x] = pixel;
+            }
+        }
+        return pixels;
+    }
+
+    /**
+     * Creates an image of random translucent colors.
+     */
+    private static BufferedImage noise() {
+        BufferedImage image = new BufferedImage(WIDTH, HEIGHT, BufferedImage.TYPE_INT_ARGB);
+        Random random = new Random(SEED);
+        for (int y = 0; y < HEIGHT; y++) {
+            for (int x = 0; x < WIDTH; x++) {
+                image.setRGB(x, y, random.nextInt());
+            }
+        }
+        return image;
+    }
+}
@@ -0,0 +1,223 @@
+package com.sistemasdistribuidos.thread.image.processing;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.awt.image.BufferedImage;
+import java.util.Random;
+import java.util.stream.Stream;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.EnumSource;
+import org.junit.jupiter.params.provider.MethodSource;
+
+/**
+ * Checks the {@link Resampler} against a reference that filters the
+ * premultiplied colors in double precision, and that transparent pixels do
+ * not bleed their colors into their opaque neighbours.
+ *
+ * @author mariovillacortagarcia
+ */
+class ResamplerTest {
+
+    private static final int WIDTH = 37;
+    private static final int HEIGHT = 29;
+    private static final int STRIP_HEIGHT = 4;
+    private static final int EDGE_SIZE = 16;
+    private static final int OPAQUE_RED = 0xFFFF0000;
+    private static final int TRANSPARENT_GREEN = 0x0000FF00;
+    private static final int RGB = 0xFFFFFF;
+    private static final int MAX_LEVEL = 255;
+    /**
+     * Levels the result may differ from the reference: the source is
+     * premultiplied and the intermediate buffer is stored with 8 bits.
+     */
+    private static final int TOLERANCE = 3;
+    private static final long SEED = 11L;
+
+    static Stream<Arguments> resizes() {
+        int[][] sizes = {{17, 13}, {53, 41}, {WIDTH, 41}, {17, HEIGHT}};
+        Stream.Builder<Arguments> arguments = Stream.builder();
+        for (ResampleFilter filter : ResampleFilter.values()) {
+            for (int[] size : sizes) {
+                arguments.add(Arguments.of(filter, size[0], size[1]));
+            }
+        }
+        return arguments.build();
+    }
+
+    @ParameterizedTest
+    @MethodSource("resizes")
+    void resizeMatchesThePremultipliedReference(ResampleFilter filter, int width, int height) {
+        BufferedImage source = noise();
+
+        BufferedImage actual = resize(source, filter, width, height);
+        double[][] expected = reference(source, filter, width, height);
+
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                final int pixel = actual.getRGB(x, y);
+                final int alpha = pixel >>> 24;
+                final double[] channels = expected[y * width + x];
+                final String where = " at " + x + "," + y;
+                assertEquals(channels[0], alpha, TOLERANCE, "alpha" + where);
+                for (int channel = 1; channel < 4; channel++) {
+                    final int level = (pixel >> (24 - 8 * channel)) & MAX_LEVEL;
+                    assertEquals(channels[channel], (double) level * alpha / MAX_LEVEL, TOLERANCE,
+                            "premultiplied channel " + channel + where);
+                }
+            }
+        }
+    }
+
+    @ParameterizedTest
+    @EnumSource(ResampleFilter.class)
+    void transparentColorsDoNotBleedAcrossAnAlphaEdge(ResampleFilter filter) {
+        BufferedImage source = new BufferedImage(EDGE_SIZE, EDGE_SIZE, BufferedImage.TYPE_INT_ARGB);
+        for (int y = 0; y < EDGE_SIZE; y++) {
+            for (int x = 0; x < EDGE_SIZE; x++) {
+                source.setRGB(x, y, x < EDGE_SIZE / 2 ? OPAQUE_RED : TRANSPARENT_GREEN);
+            }
+        }
+
+        for (int[] size : new int[][] {{7, 9}, {24, 24}}) {
+            BufferedImage resized = resize(source, filter, size[0], size[1]);
+            boolean translucent = false;
+            for (int y = 0; y < size[1]; y++) {
+                for (int x = 0; x < size[0]; x++) {
+                    final int pixel = resized.getRGB(x, y);
+                    final int alpha = pixel >>> 24;
+                    translucent |= alpha > 0 && alpha < MAX_LEVEL;
+                    assertEquals(alpha == 0 ? 0 : OPAQUE_RED & RGB, pixel & RGB, "color at " + x + "," + y);
+                }
+            }
+            assertTrue(translucent, "The edge was not filtered");
+        }
+    }
+
+    @ParameterizedTest
+    @EnumSource(ResampleFilter.class)
+    void resizeToTheSameSizeIsACopy(ResampleFilter filter) {
+        BufferedImage source = noise();
+
+        BufferedImage resized = resize(source, filter, WIDTH, HEIGHT);
+
+        assertArrayEquals(source.getRGB(0, 0, WIDTH, HEIGHT, null, 0, WIDTH),
+                resized.getRGB(0, 0, WIDTH, HEIGHT, null, 0, WIDTH));
+    }
+
+    /**
+     * Resizes an image on narrow strips, so both passes are split in several
+     * areas.
+     */
+    private static BufferedImage resize(BufferedImage source, ResampleFilter filter, int width, int height) {
+        try (ForkJoinTileScheduler scheduler = new ForkJoinTileScheduler(2, Integer.MAX_VALUE, STRIP_HEIGHT)) {
+            return new Resampler(scheduler, filter).resize(source, width, height);
+        }
+    }
+
+    /**
+     * Resizes an image in double precision, horizontally and then vertically
+     * as the resampler does, clamping the channels after each pass.
+     *
+     * @return the premultiplied alpha, red, green and blue of every pixel
+     */
+    private static double[][] reference(BufferedImage source, ResampleFilter filter, int width, int height) {
+        final int sourceWidth = source.getWidth();
+        final int sourceHeight = source.getHeight();
+        double[][] pixels = new double[sourceWidth * sourceHeight][];
+        for (int y = 0; y < sourceHeight; y++) {
+            for (int x = 0; x < sourceWidth; x++) {
+                final int pixel = source.getRGB(x, y);
+                final double alpha = pixel >>> 24;
+                pixels[y * sourceWidth + x] = new double[] {alpha,
+                    ((pixel >> 16) & MAX_LEVEL) * alpha / MAX_LEVEL,
+                    ((pixel >> 8) & MAX_LEVEL) * alpha / MAX_LEVEL,
+                    (pixel & MAX_LEVEL) * alpha / MAX_LEVEL};
+            }
+        }
+
+        double[][] intermediate = new double[width * sourceHeight][];
+        double[][] columns = weights(filter, sourceWidth, width);
+        for (int y = 0; y < sourceHeight; y++) {
+            for (int x = 0; x < width; x++) {
+                double[] sum = new double[4];
+                for (int i = 0; i < sourceWidth; i++) {
+                    add(sum, columns[x][i], pixels[y * sourceWidth + i]);
+                }
+                intermediate[y * width + x] = clamp(sum);
+            }
+        }
+
+        double[][] result = new double[width * height][];
+        double[][] rows = weights(filter, sourceHeight, height);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                double[] sum = new double[4];
+                for (int i = 0; i < sourceHeight; i++) {
+                    add(sum, rows[y][i], intermediate[i * width + x]);
+                }
+                result[y * width + x] = clamp(sum);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Computes the normalised weight of every source position for every
+     * output position of a 1-D resampling.
+     */
+    private static double[][] weights(ResampleFilter filter, int sourceLength, int targetLength) {
+        final double scale = (double) sourceLength / targetLength;
+        final double filterScale = Math.max(1, scale);
+        double[][] weights = new double[targetLength][sourceLength];
+        for (int i = 0; i < targetLength; i++) {
+            final double center = (i + 0.5) * scale;
+            double sum = 0;
+            for (int j = 0; j < sourceLength; j++) {
+                weights[i][j] = filter.weight((j + 0.5 - center) / filterScale);
+                sum += weights[i][j];
+            }
+            for (int j = 0; j < sourceLength; j++) {
+                weights[i][j] /= sum;
+            }
+        }
+        return weights;
+    }
+
+    /**
+     * Adds the weighted channels of a pixel to a sum.
+     */
+    private static void add(double[] sum, double weight, double[] pixel) {
+        for (int channel = 0; channel < sum.length; channel++) {
+            sum[channel] += weight * pixel[channel];
+        }
+    }
+
+    /**
+     * Clamps premultiplied channels so the alpha is a level and no color
+     * exceeds it.
+     */
+    private static double[] clamp(double[] pixel) {
+        final double alpha = Math.clamp(pixel[0], 0, MAX_LEVEL);
+        return new double[] {alpha, Math.clamp(pixel[1], 0, alpha), Math.clamp(pixel[2], 0, alpha),
+            Math.clamp(pixel[3], 0, alpha)};
+    }
+
+    /**
+     * Creates an image of random colors, half of them opaque and the others
+     * of any alpha.
+     */
+    private static BufferedImage noise() {
+        BufferedImage image = new BufferedImage(WIDTH, HEIGHT, BufferedImage.TYPE_INT_ARGB);
+        Random random = new Random(SEED);
+        for (int y = 0; y < HEIGHT; y++) {
+            for (int x = 0; x < WIDTH; x++) {
+                final int pixel = random.nextInt();
+                image.setRGB(x, y, random.nextBoolean() ? pixel | 0xFF000000 : pixel);
+            }
+        }
+        return image;
+    }
+}
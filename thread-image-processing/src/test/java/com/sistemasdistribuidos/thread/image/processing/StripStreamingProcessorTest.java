@@ -0,0 +1,84 @@
+package com.sistemasdistribuidos.thread.image.processing;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Random;
+import javax.imageio.ImageIO;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+/**
+ * Checks that {@link StripStreamingProcessor} writes the same pixels as the
+ * conversion of the whole image in memory, for bands that cut the strips of
+ * the input, bands rounded up to the strips of the output and a single band.
+ *
+ * @author mariovillacortagarcia
+ */
+class StripStreamingProcessorTest {
+
+    private static final int WIDTH = 173;
+    private static final int HEIGHT = 101;
+    private static final int BAND_HEIGHT = 16;
+
+    @TempDir
+    Path directory;
+
+    private ForkJoinTileScheduler scheduler;
+
+    @BeforeEach
+    void setUp() {
+        scheduler = new ForkJoinTileScheduler(2, 32);
+    }
+
+    @AfterEach
+    void tearDown() {
+        scheduler.close();
+    }
+
+    @ParameterizedTest
+    @CsvSource({"png, 16", "tif, 16", "png, 7", "tif, 40", "png, 100", "tif, 256"})
+    void streamedOutputMatchesTheInMemoryResult(String format, int bandHeight) throws IOException {
+        Path input = directory.resolve("input." + format);
+        Path output = directory.resolve("output.tif");
+        ImageIO.write(noise(), format.equals("tif") ? "tiff" : format, input.toFile());
+
+        new StripStreamingProcessor(scheduler, bandHeight).process(input, output);
+
+        BufferedImage expected = ImageIO.read(input.toFile());
+        scheduler.process(expected, area -> new ImageProcessor(expected, area));
+        BufferedImage actual = ImageIO.read(output.toFile());
+        assertArrayEquals(expected.getRGB(0, 0, WIDTH, HEIGHT, null, 0, WIDTH),
+                actual.getRGB(0, 0, WIDTH, HEIGHT, null, 0, WIDTH));
+    }
+
+    @Test
+    void formatThatCannotReplacePixelsIsRejected() throws IOException {
+        Path input = directory.resolve("input.png");
+        ImageIO.write(noise(), "png", input.toFile());
+
+        assertThrows(IllegalArgumentException.class,
+                () -> new StripStreamingProcessor(scheduler, BAND_HEIGHT).process(input, directory.resolve("out.png")));
+    }
+
+    /**
+     * Creates an image of random colors.
+     */
+    private static BufferedImage noise() {
+        BufferedImage image = new BufferedImage(WIDTH, HEIGHT, BufferedImage.TYPE_3BYTE_BGR);
+        Random random = new Random(5);
+        for (int y = 0; y < HEIGHT; y++) {
+            for (int x = 0; x < WIDTH; x++) {
+                image.setRGB(x, y, random.nextInt());
+            }
+        }
+        return image;
+    }
+}